@@ -0,0 +1,236 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+    Runs the benchmarks with the GC profiler and writes a tab separated report, one line per benchmark and
+    parameter combination, sorted by key. Reports of two versions can be compared line by line:
+
+        java -jar benchmarks.jar run results-1.2.0.tsv [benchmark regex]
+        java -jar benchmarks.jar compare results-1.2.0.tsv results-1.3.0.tsv
+
+    Token counts are taken by lexing the same seeded inputs in this JVM, so the 100MB inputs need a few
+    gigabytes of heap here as well. The raw JMH results are written next to the report as JSON.
+*/
+public class BenchmarkMain {
+
+    private static final String HEADER = "benchmark\tparameters\tops_per_second\terror\ttokens_per_second\tbytes_per_op\tbytes_per_token";
+    private static final String ALLOCATION_RATE = "gc.alloc.rate.norm";
+
+    private final Map<String, Integer> tokenCounts = new HashMap<>();
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length == 3 && args[0].equals("compare"))
+            compare(args[1], args[2]);
+        else if (args.length >= 2 && args[0].equals("run"))
+            new BenchmarkMain().run(args[1], args.length > 2 ? args[2] : BenchmarkMain.class.getPackage().getName() + ".*Benchmark");
+        else {
+            System.err.println("Usage: run <report.tsv> [benchmark regex] | compare <old.tsv> <new.tsv>");
+            System.exit(1);
+        }
+
+    }
+
+    private void run(String reportFile, String include) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(reportFile + ".json")
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+        Map<String, String> lines = new TreeMap<>();
+
+        for (RunResult result : results) {
+
+            BenchmarkParams params = result.getParams();
+            String benchmark = params.getBenchmark().substring(params.getBenchmark().lastIndexOf('.', params.getBenchmark().lastIndexOf('.') - 1) + 1);
+
+            StringBuilder parameters = new StringBuilder();
+
+            for (String key : params.getParamsKeys()) {
+
+                if (parameters.length() > 0)
+                    parameters.append(',');
+
+                parameters.append(key).append('=').append(params.getParam(key));
+
+            }
+
+            Result primary = result.getPrimaryResult();
+            double bytesPerOp = Double.NaN;
+
+            for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet())
+                if (secondary.getKey().endsWith(ALLOCATION_RATE))
+                    bytesPerOp = secondary.getValue().getScore();
+
+            int tokenCount = getTokenCount(params);
+
+            String key = benchmark + '\t' + parameters;
+
+            lines.put(key, key + '\t' + String.format(
+                    Locale.ROOT,
+                    "%.3f\t%.3f\t%.0f\t%.1f\t%.2f",
+                    primary.getScore(),
+                    primary.getScoreError(),
+                    tokenCount == 0 ? Double.NaN : primary.getScore() * tokenCount,
+                    bytesPerOp,
+                    tokenCount == 0 ? Double.NaN : bytesPerOp / tokenCount
+            ));
+
+        }
+
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+
+            writer.println(HEADER);
+
+            for (String line : lines.values())
+                writer.println(line);
+
+        }
+
+    }
+
+    /*
+        Number of tokens one operation of the benchmark goes through, or 0 if it does not work on tokens.
+    */
+    private int getTokenCount(BenchmarkParams params) throws Exception {
+
+        String key;
+        String language = params.getParam("language");
+        String size = params.getParam("size");
+        String lookahead = params.getParam("lookahead");
+
+        if (lookahead != null)
+            key = "lookahead " + lookahead;
+        else if (language != null && size != null)
+            key = language + " " + size;
+        else
+            return 0;
+
+        Integer tokenCount = tokenCounts.get(key);
+
+        if (tokenCount == null) {
+
+            if (lookahead != null)
+                tokenCount = LookaheadBenchmark.lex(Integer.parseInt(lookahead), null).size();
+            else
+                tokenCount = Inputs.lex(Language.valueOf(language), Inputs.generate(Language.valueOf(language), size), null).size();
+
+            tokenCounts.put(key, tokenCount);
+
+        }
+
+        return tokenCount;
+
+    }
+
+    private static Map<String, String[]> readReport(String file) throws IOException {
+
+        Map<String, String[]> lines = new TreeMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+
+            String line = reader.readLine();
+
+            while ((line = reader.readLine()) != null)
+                if (!line.isEmpty()) {
+                    String[] fields = line.split("\t");
+                    lines.put(fields[0] + '\t' + fields[1], fields);
+                }
+
+        }
+
+        return lines;
+
+    }
+
+    private static String change(String oldValue, String newValue) {
+
+        double oldNumber = Double.parseDouble(oldValue);
+        double newNumber = Double.parseDouble(newValue);
+
+        if (Double.isNaN(oldNumber) || Double.isNaN(newNumber) || oldNumber == 0)
+            return "n/a";
+
+        return String.format(Locale.ROOT, "%+.1f%%", (newNumber - oldNumber) * 100 / oldNumber);
+
+    }
+
+    /*
+        Prints the throughput and allocation change of every benchmark present in both reports.
+    */
+    private static void compare(String oldFile, String newFile) throws IOException {
+
+        Map<String, String[]> oldLines = readReport(oldFile);
+        Map<String, String[]> newLines = readReport(newFile);
+        List<String> missing = new ArrayList<>();
+
+        Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        writer.write("benchmark\tparameters\told_ops_per_second\tnew_ops_per_second\tthroughput_change\tallocation_change\n");
+
+        for (Map.Entry<String, String[]> entry : oldLines.entrySet()) {
+
+            String[] oldFields = entry.getValue();
+            String[] newFields = newLines.get(entry.getKey());
+
+            if (newFields == null) {
+                missing.add(entry.getKey());
+                continue;
+            }
+
+            writer.write(entry.getKey() + '\t' + oldFields[2] + '\t' + newFields[2] + '\t'
+                    + change(oldFields[2], newFields[2]) + '\t' + change(oldFields[5], newFields[5]) + '\n');
+
+        }
+
+        for (String key : missing)
+            writer.write(key + "\tmissing in " + newFile + '\n');
+
+        writer.flush();
+
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simplegrammar.CompiledGrammar;
+import simplegrammar.GrammarException;
+import simplegrammar.GrammarParseException;
+
+/*
+    Loading of grammar definitions: parsing the text and compiling it into prediction tables.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GrammarLoaderBenchmark {
+
+    @Param({"JSON", "EXPR", "PLSQL"})
+    public Language language;
+
+    private String definition;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] bytes = new byte[4096];
+
+        try (InputStream input = GrammarLoaderBenchmark.class.getResourceAsStream(language.getGrammarResource())) {
+
+            int count;
+
+            while ((count = input.read(bytes)) >= 0)
+                buffer.write(bytes, 0, count);
+
+        }
+
+        definition = new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+
+    }
+
+    @Benchmark
+    public ResourceGrammar load() throws IOException, GrammarParseException {
+        return new ResourceGrammar(new StringReader(definition));
+    }
+
+    @Benchmark
+    public CompiledGrammar loadAndCompile() throws IOException, GrammarParseException, GrammarException {
+        return new ResourceGrammar(new StringReader(definition)).compile();
+    }
+
+}
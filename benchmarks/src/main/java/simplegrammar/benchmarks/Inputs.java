@@ -0,0 +1,85 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import simplegrammar.ParseException;
+import simplegrammar.PatternTokenizer;
+import simplegrammar.SymbolTable;
+import simplegrammar.Token;
+
+/*
+    Synthetic benchmark inputs. Generation is seeded, so an input of a given language and size is the same in
+    every run and in every version, which is what makes the results comparable.
+*/
+public final class Inputs {
+
+    private static final long SEED = 20190101;
+
+    private Inputs() {
+    }
+
+    /*
+        Parses sizes like "1KB", "64KB", "1MB" or "100MB".
+    */
+    public static int parseSize(String size) {
+
+        String value = size.trim().toUpperCase();
+
+        if (value.endsWith("MB"))
+            return Integer.parseInt(value.substring(0, value.length() - 2).trim()) * 1024 * 1024;
+        else if (value.endsWith("KB"))
+            return Integer.parseInt(value.substring(0, value.length() - 2).trim()) * 1024;
+        else
+            return Integer.parseInt(value);
+
+    }
+
+    public static String generate(Language language, String size) {
+
+        int length = parseSize(size);
+        StringBuilder source = new StringBuilder(length + 1024);
+
+        language.generate(new Random(SEED), source, length);
+
+        return source.toString();
+
+    }
+
+    public static List<Token> lex(Language language, CharSequence source, SymbolTable symbols) throws ParseException {
+        return lex(source, symbols, language.createTokenizer());
+    }
+
+    static List<Token> lex(CharSequence source, SymbolTable symbols, PatternTokenizer tokenizer) throws ParseException {
+
+        if (symbols != null)
+            tokenizer.setSymbols(symbols);
+
+        tokenizer.parse(source);
+
+        List<Token> tokens = new ArrayList<>();
+
+        while (tokenizer.hasNext())
+            tokens.add(tokenizer.get());
+
+        return tokens;
+
+    }
+
+}
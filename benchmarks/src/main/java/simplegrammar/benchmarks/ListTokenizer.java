@@ -0,0 +1,50 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.benchmarks;
+
+import java.util.List;
+
+import simplegrammar.Token;
+import simplegrammar.Tokenizer;
+
+/*
+    Tokenizer over a list of tokens lexed in advance, so that parser benchmarks do not measure lexing.
+*/
+public class ListTokenizer extends Tokenizer {
+
+    private final List<Token> tokens;
+    private int position;
+
+    public ListTokenizer(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public boolean hasNext(int depth) {
+        return position + depth <= tokens.size();
+    }
+
+    @Override
+    protected Token doPeek(int depth) {
+        return tokens.get(position + depth - 1);
+    }
+
+    @Override
+    protected Token doGet() {
+        return tokens.get(position++);
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simplegrammar.CompiledGrammar;
+import simplegrammar.GrammarException;
+import simplegrammar.GrammarParseException;
+import simplegrammar.ParseException;
+import simplegrammar.PatternTokenizer;
+import simplegrammar.SymbolTable;
+import simplegrammar.SyntaxTreeNode;
+import simplegrammar.Token;
+
+/*
+    Items whose options share a prefix of lookahead - 1 tokens, so every item needs a prediction with the given
+    peek depth. The input size is fixed, so the scores show the cost of deeper lookahead per token.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookaheadBenchmark {
+
+    public static final String SIZE = "1MB";
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int lookahead;
+
+    private CompiledGrammar grammar;
+    private List<Token> tokens;
+
+    static String createDefinition(int lookahead) {
+
+        StringBuilder prefix = new StringBuilder();
+
+        for (int i = 1; i < lookahead; i++)
+            prefix.append(" {id,+}");
+
+        return "items: ^;\n"
+                + "items: item items;\n"
+                + "item+:" + prefix + " {op,\"!\"+};\n"
+                + "item+:" + prefix + " {op,\"?\"+};\n"
+                + "item+: {number,+};\n";
+
+    }
+
+    static String generate(int lookahead) {
+
+        int size = Inputs.parseSize(SIZE);
+        Random random = new Random(lookahead);
+        StringBuilder source = new StringBuilder(size + 1024);
+
+        while (source.length() < size) {
+
+            if (random.nextInt(4) == 0)
+                source.append(random.nextInt(1000));
+            else {
+
+                for (int i = 1; i < lookahead; i++)
+                    source.append("name").append(random.nextInt(100)).append(' ');
+
+                source.append(random.nextBoolean() ? '!' : '?');
+
+            }
+
+            source.append('\n');
+
+        }
+
+        return source.toString();
+
+    }
+
+    static List<Token> lex(int lookahead, SymbolTable symbols) throws ParseException {
+        return Inputs.lex(generate(lookahead), symbols, createTokenizer());
+    }
+
+    static PatternTokenizer createTokenizer() {
+
+        PatternTokenizer tokenizer = new PatternTokenizer();
+
+        tokenizer.addTokenPattern("whitespace", "\\s+");
+        tokenizer.addTokenPattern("id", "([a-z][a-z0-9]*)");
+        tokenizer.addTokenPattern("number", "(\\d+)");
+        tokenizer.addTokenPattern("op", "([!?])");
+        tokenizer.ignoreTokens("whitespace");
+
+        return tokenizer;
+
+    }
+
+    @Setup
+    public void setUp() throws IOException, GrammarParseException, GrammarException, ParseException {
+        grammar = new ResourceGrammar(new StringReader(createDefinition(lookahead))).compile();
+        tokens = lex(lookahead, grammar.getSymbols());
+    }
+
+    @Benchmark
+    public SyntaxTreeNode parse() throws ParseException, GrammarException {
+        return grammar.parse(new ListTokenizer(tokens));
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simplegrammar.CompactSyntaxTree;
+import simplegrammar.CompactTreeBuilder;
+import simplegrammar.CompiledGrammar;
+import simplegrammar.GrammarException;
+import simplegrammar.GrammarParseException;
+import simplegrammar.ParseException;
+import simplegrammar.PatternTokenizer;
+import simplegrammar.SyntaxTreeNode;
+import simplegrammar.Token;
+
+/*
+    Parsing of tokens lexed in advance into both tree representations, and lexing plus parsing end to end.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"JSON", "EXPR", "PLSQL"})
+    public Language language;
+
+    @Param({"1KB", "1MB", "100MB"})
+    public String size;
+
+    private CompiledGrammar grammar;
+    private String source;
+    private List<Token> tokens;
+
+    @Setup
+    public void setUp() throws IOException, GrammarParseException, GrammarException, ParseException {
+
+        grammar = new ResourceGrammar(language.getGrammarResource()).compile();
+        source = Inputs.generate(language, size);
+        tokens = Inputs.lex(language, source, grammar.getSymbols());
+
+    }
+
+    @Benchmark
+    public SyntaxTreeNode parse() throws ParseException, GrammarException {
+        return grammar.parse(new ListTokenizer(tokens));
+    }
+
+    @Benchmark
+    public CompactSyntaxTree parseCompact() throws ParseException, GrammarException {
+
+        CompactTreeBuilder treeBuilder = new CompactTreeBuilder();
+        grammar.parse(new ListTokenizer(tokens), treeBuilder);
+
+        return treeBuilder.getSyntaxTree();
+
+    }
+
+    @Benchmark
+    public SyntaxTreeNode lexAndParse() throws ParseException, GrammarException {
+
+        PatternTokenizer tokenizer = language.createTokenizer();
+
+        tokenizer.setSymbols(grammar.getSymbols());
+        tokenizer.parse(source);
+
+        return grammar.parse(tokenizer);
+
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import simplegrammar.Grammar;
+import simplegrammar.GrammarParseException;
+
+/*
+    Grammar loaded from a text definition on the class path, as an application would do.
+*/
+public class ResourceGrammar extends Grammar {
+
+    public ResourceGrammar(String resourceName) throws IOException, GrammarParseException {
+        try (Reader reader = new InputStreamReader(ResourceGrammar.class.getResourceAsStream(resourceName), StandardCharsets.UTF_8)) {
+            append(reader);
+        }
+    }
+
+    public ResourceGrammar(Reader source) throws IOException, GrammarParseException {
+        append(source);
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simplegrammar.ParseException;
+import simplegrammar.PatternTokenizer;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+
+    @Param({"JSON", "EXPR", "PLSQL"})
+    public Language language;
+
+    @Param({"1KB", "1MB", "100MB"})
+    public String size;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private String source;
+    private PatternTokenizer template;
+
+    @Setup
+    public void setUp() {
+
+        source = Inputs.generate(language, size);
+
+        template = language.createTokenizer();
+        template.setCompiled(compiled);
+
+    }
+
+    @Benchmark
+    public PatternTokenizer parse() throws ParseException {
+
+        PatternTokenizer tokenizer = new PatternTokenizer(template);
+        tokenizer.parse(source);
+
+        return tokenizer;
+
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import simplegrammar.GrammarException;
+import simplegrammar.GrammarParseException;
+import simplegrammar.ParserGenerator;
+
+/*
+    Generates a parser class for every grammar file in the source directory. The package of the class follows
+    the directory of the file, unless it is configured, and the class is named after the file: json.grammar
+    becomes JsonParser. Parsers are generated again only when their grammar files change, or when the stamp
+    of the previous run shows a different plugin version, generator version or target class.
+*/
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class GenerateParserMojo extends AbstractMojo {
+
+    private static final String EXTENSION = ".grammar";
+    private static final String STAMP_EXTENSION = ".stamp";
+    private static final String OUTPUT_STAMP = "output ";
+
+    @Parameter(defaultValue = "${project.basedir}/src/main/grammar")
+    private File sourceDirectory;
+
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/simple-grammar")
+    private File outputDirectory;
+
+    @Parameter(defaultValue = "${project.build.directory}/simple-grammar-stamps")
+    private File stampDirectory;
+
+    @Parameter
+    private String packageName;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true, required = true)
+    private PluginDescriptor plugin;
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+
+        project.addCompileSourceRoot(outputDirectory.getPath());
+
+        if (!sourceDirectory.isDirectory()) {
+            getLog().info("No grammars to generate parsers for, " + sourceDirectory + " does not exist");
+            return;
+        }
+
+        List<Path> grammarFiles = new ArrayList<>();
+
+        try {
+            findGrammarFiles(sourceDirectory.toPath(), grammarFiles);
+        } catch (IOException exception) {
+            throw new MojoExecutionException("Could not list " + sourceDirectory, exception);
+        }
+
+        for (Path grammarFile : grammarFiles)
+            generate(grammarFile);
+
+    }
+
+    private static void findGrammarFiles(Path directory, List<Path> grammarFiles) throws IOException {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+            for (Path path : paths)
+                if (Files.isDirectory(path))
+                    findGrammarFiles(path, grammarFiles);
+                else if (path.getFileName().toString().endsWith(EXTENSION))
+                    grammarFiles.add(path);
+        }
+    }
+
+    private static String getClassName(String fileName) {
+
+        StringBuilder className = new StringBuilder();
+        boolean upperCase = true;
+
+        for (char c : fileName.substring(0, fileName.length() - EXTENSION.length()).toCharArray())
+            if (!Character.isJavaIdentifierPart(c))
+                upperCase = true;
+            else if (upperCase) {
+                className.append(Character.toUpperCase(c));
+                upperCase = false;
+            } else
+                className.append(c);
+
+        if (className.length() == 0 || !Character.isJavaIdentifierStart(className.charAt(0)))
+            className.insert(0, '_');
+
+        return className.append("Parser").toString();
+
+    }
+
+    private void generate(Path grammarFile) throws MojoExecutionException, MojoFailureException {
+
+        Path relativeDirectory = sourceDirectory.toPath().relativize(grammarFile).getParent();
+        String packageName = this.packageName;
+
+        if (packageName == null)
+            packageName = relativeDirectory == null ? "" : relativeDirectory.toString().replace(File.separatorChar, '.');
+
+        String className = getClassName(grammarFile.getFileName().toString());
+        Path outputFile = outputDirectory.toPath().resolve(packageName.replace('.', File.separatorChar)).resolve(className + ".java");
+        Path stampFile = stampDirectory.toPath().resolve(sourceDirectory.toPath().relativize(grammarFile) + STAMP_EXTENSION);
+
+        List<String> stamp = Arrays.asList(
+                "plugin " + plugin.getVersion(),
+                "generator " + ParserGenerator.VERSION,
+                "package " + packageName,
+                "class " + className,
+                OUTPUT_STAMP + outputFile.toAbsolutePath()
+        );
+
+        try {
+
+            List<String> oldStamp = Files.exists(stampFile) ? Files.readAllLines(stampFile, StandardCharsets.UTF_8) : null;
+
+            if (stamp.equals(oldStamp)
+                    && Files.exists(outputFile)
+                    && Files.getLastModifiedTime(outputFile).compareTo(Files.getLastModifiedTime(grammarFile)) >= 0) {
+                getLog().debug(outputFile + " is up to date");
+                return;
+            }
+
+            /* The class of a previous run is removed if the package or the output directory have changed since. */
+            if (oldStamp != null)
+                for (String line : oldStamp)
+                    if (line.startsWith(OUTPUT_STAMP) && !stamp.contains(line))
+                        Files.deleteIfExists(Paths.get(line.substring(OUTPUT_STAMP.length())));
+
+            String source;
+
+            try (Reader reader = Files.newBufferedReader(grammarFile, StandardCharsets.UTF_8)) {
+                source = new ParserGenerator(new SourceGrammar(reader).compile()).generate(packageName, className);
+            }
+
+            Files.createDirectories(outputFile.getParent());
+
+            try (Writer writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+                writer.write(source);
+            }
+
+            Files.createDirectories(stampFile.getParent());
+            Files.write(stampFile, stamp, StandardCharsets.UTF_8);
+
+        } catch (GrammarParseException | GrammarException exception) {
+            throw new MojoFailureException(grammarFile + ": " + exception.getMessage(), exception);
+        } catch (IOException exception) {
+            throw new MojoExecutionException("Could not generate a parser from " + grammarFile, exception);
+        }
+
+        getLog().info("Generated " + (packageName.isEmpty() ? "" : packageName + ".") + className + " from " + grammarFile);
+
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar.maven;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GenerateParserMojoTest {
+
+    private static final String CHANGED = "changed";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path sourceDirectory;
+    private Path outputDirectory;
+    private Path stampDirectory;
+
+    @Before
+    public void createGrammar() throws Exception {
+
+        sourceDirectory = folder.newFolder("grammar").toPath();
+        outputDirectory = folder.newFolder("generated").toPath();
+        stampDirectory = folder.getRoot().toPath().resolve("stamps");
+
+        Path grammarFile = sourceDirectory.resolve("com/example/list.grammar");
+        Files.createDirectories(grammarFile.getParent());
+        Files.write(grammarFile, "list: ^;\nlist: {id,+} list;\n".getBytes(StandardCharsets.UTF_8));
+
+    }
+
+    private static void set(Object object, String fieldName, Object value) throws Exception {
+        Field field = object.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(object, value);
+    }
+
+    private void generate(String packageName, String pluginVersion) throws Exception {
+
+        PluginDescriptor plugin = new PluginDescriptor();
+        plugin.setVersion(pluginVersion);
+
+        GenerateParserMojo mojo = new GenerateParserMojo();
+        set(mojo, "sourceDirectory", sourceDirectory.toFile());
+        set(mojo, "outputDirectory", outputDirectory.toFile());
+        set(mojo, "stampDirectory", stampDirectory.toFile());
+        set(mojo, "packageName", packageName);
+        set(mojo, "plugin", plugin);
+        set(mojo, "project", new MavenProject());
+
+        mojo.execute();
+
+    }
+
+    private Path getOutputFile(String packageName) {
+        return outputDirectory.resolve(packageName.replace('.', File.separatorChar)).resolve("ListParser.java");
+    }
+
+    /*
+        Marks the generated class, so that a following run shows whether it has been written again.
+    */
+    private void change(Path outputFile) throws Exception {
+        Files.write(outputFile, CHANGED.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void upToDateParserIsKept() throws Exception {
+
+        generate(null, "1.0");
+        assertTrue(read(getOutputFile("com.example")).contains("public final class ListParser"));
+
+        change(getOutputFile("com.example"));
+        generate(null, "1.0");
+
+        assertEquals(CHANGED, read(getOutputFile("com.example")));
+
+    }
+
+    @Test
+    public void pluginVersionChangeRegenerates() throws Exception {
+
+        generate(null, "1.0");
+        change(getOutputFile("com.example"));
+        generate(null, "1.1");
+
+        assertNotEquals(CHANGED, read(getOutputFile("com.example")));
+
+    }
+
+    @Test
+    public void packageChangeRegenerates() throws Exception {
+
+        generate(null, "1.0");
+        generate("org.example.parsers", "1.0");
+
+        assertTrue(read(getOutputFile("org.example.parsers")).startsWith("package org.example.parsers;"));
+        assertFalse(Files.exists(getOutputFile("com.example")));
+
+        change(getOutputFile("org.example.parsers"));
+        generate("org.example.parsers", "1.0");
+
+        assertEquals(CHANGED, read(getOutputFile("org.example.parsers")));
+
+    }
+
+}
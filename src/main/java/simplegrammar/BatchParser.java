@@ -0,0 +1,202 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+public class BatchParser {
+
+    private static final int TASKS_PER_THREAD = 8;
+
+    private static volatile ForkJoinPool defaultPool;
+
+    private final CompiledGrammar grammar;
+    private final PatternTokenizer template;
+    private final String rootRuleName;
+    private final ThreadLocal<PatternTokenizer> tokenizers;
+
+    public BatchParser(CompiledGrammar grammar, PatternTokenizer template, String rootRuleName) throws GrammarException {
+
+        if (!grammar.hasRule(rootRuleName))
+            throw new GrammarException("Rule \"" + rootRuleName + "\" does not exist!");
+
+        this.grammar = grammar;
+        this.template = new PatternTokenizer(template);
+        this.rootRuleName = rootRuleName;
+
+        if (this.template.getSymbols() == null)
+            this.template.setSymbols(grammar.getSymbols());
+
+        tokenizers = new ThreadLocal<>();
+
+    }
+
+    public BatchParser(CompiledGrammar grammar, PatternTokenizer template) throws GrammarException {
+        this(grammar, template, grammar.getRootRuleName());
+    }
+
+    private static ForkJoinPool getDefaultPool() {
+
+        ForkJoinPool pool = defaultPool;
+
+        if (pool == null)
+            synchronized (BatchParser.class) {
+                if (defaultPool == null)
+                    defaultPool = new ForkJoinPool();
+                pool = defaultPool;
+            }
+
+        return pool;
+
+    }
+
+    public ParseResult parse(CharSequence source) {
+
+        PatternTokenizer tokenizer = tokenizers.get();
+
+        if (tokenizer == null) {
+            tokenizer = new PatternTokenizer(template);
+            tokenizers.set(tokenizer);
+        }
+
+        try {
+            tokenizer.parse(source);
+            return new ParseResult(grammar.buildTree(tokenizer, rootRuleName, null));
+        } catch (ParseException exception) {
+            return new ParseResult(exception);
+        } finally {
+            tokenizer.clear();
+        }
+
+    }
+
+    private void parseRange(List<? extends CharSequence> sources, ParseResult[] results, int from, int to) {
+        for (int i = from; i < to; i++)
+            results[i] = parse(sources.get(i));
+    }
+
+    private int getChunkSize(int sourceCount, int parallelism) {
+        return Math.max(1, sourceCount / (parallelism * TASKS_PER_THREAD));
+    }
+
+    private class ParseAction extends RecursiveAction {
+
+        private final List<? extends CharSequence> sources;
+        private final ParseResult[] results;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        ParseAction(List<? extends CharSequence> sources, ParseResult[] results, int from, int to, int chunkSize) {
+            this.sources = sources;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= chunkSize)
+                parseRange(sources, results, from, to);
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ParseAction(sources, results, from, middle, chunkSize),
+                        new ParseAction(sources, results, middle, to, chunkSize)
+                );
+            }
+
+        }
+
+    }
+
+    public List<ParseResult> parseAll(Collection<? extends CharSequence> sources) {
+        return parseAll(sources, getDefaultPool());
+    }
+
+    public List<ParseResult> parseAll(Collection<? extends CharSequence> sources, ForkJoinPool pool) {
+
+        List<? extends CharSequence> sourceList = new ArrayList<>(sources);
+        ParseResult[] results = new ParseResult[sourceList.size()];
+
+        if (results.length > 0)
+            pool.invoke(new ParseAction(
+                    sourceList,
+                    results,
+                    0,
+                    results.length,
+                    getChunkSize(results.length, pool.getParallelism())
+            ));
+
+        return Arrays.asList(results);
+
+    }
+
+    public List<ParseResult> parseAll(Collection<? extends CharSequence> sources, ExecutorService executor, int parallelism) throws InterruptedException {
+
+        final List<? extends CharSequence> sourceList = new ArrayList<>(sources);
+        final ParseResult[] results = new ParseResult[sourceList.size()];
+        int chunkSize = getChunkSize(results.length, Math.max(1, parallelism));
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < results.length; i += chunkSize) {
+
+            final int from = i;
+            final int to = Math.min(i + chunkSize, results.length);
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    parseRange(sourceList, results, from, to);
+                    return null;
+                }
+            });
+
+        }
+
+        for (Future<Void> future : executor.invokeAll(tasks))
+            try {
+                future.get();
+            } catch (ExecutionException exception) {
+                if (exception.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) exception.getCause();
+                else if (exception.getCause() instanceof Error)
+                    throw (Error) exception.getCause();
+                else
+                    throw new IllegalStateException(exception.getCause());
+            }
+
+        return Arrays.asList(results);
+
+    }
+
+    public List<ParseResult> parseAll(Collection<? extends CharSequence> sources, ExecutorService executor) throws InterruptedException {
+        return parseAll(sources, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/*
+    Child node list which counts every change, including replacements, so that the child index of the owning node
+    can tell when it is stale. Sub lists and iterators of AbstractList go through the methods below.
+*/
+final class ChildNodeList extends AbstractList<SyntaxTreeNode> implements RandomAccess {
+
+    private final List<SyntaxTreeNode> nodes = new ArrayList<>();
+
+    int getModificationCount() {
+        return modCount;
+    }
+
+    @Override
+    public SyntaxTreeNode get(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public SyntaxTreeNode set(int index, SyntaxTreeNode node) {
+        SyntaxTreeNode oldNode = nodes.set(index, node);
+        modCount++;
+        return oldNode;
+    }
+
+    @Override
+    public void add(int index, SyntaxTreeNode node) {
+        nodes.add(index, node);
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends SyntaxTreeNode> nodes) {
+        modCount++;
+        return this.nodes.addAll(nodes);
+    }
+
+    @Override
+    public SyntaxTreeNode remove(int index) {
+        SyntaxTreeNode node = nodes.remove(index);
+        modCount++;
+        return node;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        nodes.subList(fromIndex, toIndex).clear();
+        modCount++;
+    }
+
+}
@@ -0,0 +1,247 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+    Syntax tree stored in parallel arrays. Node 0 is the root, missing parents, children and siblings are -1.
+    Node values are kept in a tree-local table so that repeated rule names, token names and values are stored once.
+*/
+public final class CompactSyntaxTree {
+
+    private final String[] values;
+    private final int[] valueIds;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] offsets;
+    private final int nodeCount;
+    private volatile Map<String, Integer> valueIdMap;
+    private volatile AtomicReferenceArray<Node> nodes;
+
+    CompactSyntaxTree(String[] values, int[] valueIds, int[] parents, int[] firstChildren, int[] nextSiblings, int[] offsets, int nodeCount) {
+        this.values = values;
+        this.valueIds = valueIds;
+        this.parents = parents;
+        this.firstChildren = firstChildren;
+        this.nextSiblings = nextSiblings;
+        this.offsets = offsets;
+        this.nodeCount = nodeCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public String getValue(int node) {
+        return values[valueIds[node]];
+    }
+
+    public int getValueId(int node) {
+        return valueIds[node];
+    }
+
+    public String getValueById(int valueId) {
+        return values[valueId];
+    }
+
+    public int findValueId(String value) {
+
+        Map<String, Integer> valueIdMap = this.valueIdMap;
+
+        if (valueIdMap == null) {
+
+            valueIdMap = new HashMap<>();
+
+            for (int i = 0; i < values.length; i++)
+                valueIdMap.put(values[i], i);
+
+            this.valueIdMap = valueIdMap;
+
+        }
+
+        Integer valueId = valueIdMap.get(value);
+
+        return valueId == null ? -1 : valueId;
+
+    }
+
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public int getOffset(int node) {
+        return offsets[node];
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /*
+        Node adapters are created on first access and cached, so the same node index always yields the same
+        SyntaxTreeNode instance and identity based callers keep working.
+    */
+    private Node getNode(int node) {
+
+        AtomicReferenceArray<Node> nodes = this.nodes;
+
+        if (nodes == null)
+            synchronized (this) {
+
+                nodes = this.nodes;
+
+                if (nodes == null)
+                    this.nodes = nodes = new AtomicReferenceArray<>(nodeCount);
+
+            }
+
+        Node adapter = nodes.get(node);
+
+        if (adapter == null) {
+            nodes.compareAndSet(node, null, new Node(node));
+            adapter = nodes.get(node);
+        }
+
+        return adapter;
+
+    }
+
+    public SyntaxTreeNode toSyntaxTreeNode(int node) {
+        return getNode(node);
+    }
+
+    public SyntaxTreeNode toSyntaxTreeNode() {
+        return nodeCount == 0 ? null : getNode(0);
+    }
+
+    public final class Cursor {
+
+        private int node;
+
+        private Cursor() {
+        }
+
+        public int getNode() {
+            return node;
+        }
+
+        public String getValue() {
+            return CompactSyntaxTree.this.getValue(node);
+        }
+
+        public int getOffset() {
+            return offsets[node];
+        }
+
+        private boolean moveTo(int target) {
+
+            if (target < 0)
+                return false;
+
+            node = target;
+            return true;
+
+        }
+
+        public boolean moveToParent() {
+            return moveTo(parents[node]);
+        }
+
+        public boolean moveToFirstChild() {
+            return moveTo(firstChildren[node]);
+        }
+
+        public boolean moveToNextSibling() {
+            return moveTo(nextSiblings[node]);
+        }
+
+        public void moveToRoot() {
+            node = 0;
+        }
+
+    }
+
+    /*
+        Read-only view of the children of a node. The child positions are collected on first access only.
+    */
+    private class ChildList extends AbstractList<SyntaxTreeNode> implements RandomAccess {
+
+        private final int node;
+        private volatile int[] childNodes;
+
+        ChildList(int node) {
+            this.node = node;
+        }
+
+        private int[] getChildNodes() {
+
+            int[] childNodes = this.childNodes;
+
+            if (childNodes != null)
+                return childNodes;
+
+            int count = 0;
+
+            for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child])
+                count++;
+
+            childNodes = new int[count];
+            count = 0;
+
+            for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child])
+                childNodes[count++] = child;
+
+            this.childNodes = childNodes;
+
+            return childNodes;
+
+        }
+
+        @Override
+        public SyntaxTreeNode get(int index) {
+            return getNode(getChildNodes()[index]);
+        }
+
+        @Override
+        public int size() {
+            return getChildNodes().length;
+        }
+
+    }
+
+    private class Node extends SyntaxTreeNode {
+
+        Node(int node) {
+            super(CompactSyntaxTree.this.getValue(node), new ChildList(node));
+        }
+
+    }
+
+}
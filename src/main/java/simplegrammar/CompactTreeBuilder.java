@@ -0,0 +1,141 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompactTreeBuilder implements ParseListener {
+
+    private final List<String> values;
+    private final Map<String, Integer> valueIds;
+
+    private int[] nodeValueIds;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] lastChildren;
+    private int[] nextSiblings;
+    private int[] offsets;
+    private int nodeCount;
+
+    private int currentNode;
+
+    public CompactTreeBuilder() {
+
+        values = new ArrayList<>();
+        valueIds = new HashMap<>();
+
+        nodeValueIds = new int[64];
+        parents = new int[64];
+        firstChildren = new int[64];
+        lastChildren = new int[64];
+        nextSiblings = new int[64];
+        offsets = new int[64];
+
+        currentNode = -1;
+
+    }
+
+    private int getValueId(String value) {
+
+        Integer valueId = valueIds.get(value);
+
+        if (valueId == null) {
+            valueId = values.size();
+            values.add(value);
+            valueIds.put(value, valueId);
+        }
+
+        return valueId;
+
+    }
+
+    private int addNode(String value, int parent, int offset) {
+
+        if (nodeCount == parents.length) {
+            int capacity = nodeCount * 2;
+            nodeValueIds = Arrays.copyOf(nodeValueIds, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            lastChildren = Arrays.copyOf(lastChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+
+        int node = nodeCount++;
+
+        nodeValueIds[node] = getValueId(value);
+        parents[node] = parent;
+        firstChildren[node] = -1;
+        lastChildren[node] = -1;
+        nextSiblings[node] = -1;
+        offsets[node] = offset;
+
+        if (parent >= 0) {
+
+            if (lastChildren[parent] < 0)
+                firstChildren[parent] = node;
+            else
+                nextSiblings[lastChildren[parent]] = node;
+
+            lastChildren[parent] = node;
+
+        }
+
+        return node;
+
+    }
+
+    public CompactSyntaxTree getSyntaxTree() {
+        return new CompactSyntaxTree(
+                values.toArray(new String[values.size()]),
+                Arrays.copyOf(nodeValueIds, nodeCount),
+                Arrays.copyOf(parents, nodeCount),
+                Arrays.copyOf(firstChildren, nodeCount),
+                Arrays.copyOf(nextSiblings, nodeCount),
+                Arrays.copyOf(offsets, nodeCount),
+                nodeCount
+        );
+    }
+
+    @Override
+    public void enterRule(String ruleName) {
+        currentNode = addNode(ruleName, currentNode, -1);
+    }
+
+    @Override
+    public void exitRule(String ruleName) {
+        currentNode = parents[currentNode];
+    }
+
+    @Override
+    public void token(Token token, boolean outputName, boolean outputValue) {
+
+        int parentNode = currentNode;
+        int offset = token instanceof SourceToken ? ((SourceToken) token).getOffset() : -1;
+
+        if (outputName)
+            parentNode = addNode(token.getName(), parentNode, offset);
+
+        if (outputValue)
+            addNode(token.getValue(), parentNode, offset);
+
+    }
+
+}
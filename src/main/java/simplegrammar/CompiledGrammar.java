@@ -0,0 +1,813 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import simplegrammar.OptionToken.Match;
+
+/*
+    Immutable snapshot of a grammar. Rules, analysis results and prediction tables never change after
+    construction and the prediction cache is concurrent, so any number of threads may parse at once.
+*/
+public final class CompiledGrammar {
+
+    private static final int PREDICTION_TABLE_LIMIT = 4096;
+    private static final int PREDICTION_DEPTH_LIMIT = 256;
+
+    private final String rootRuleName;
+    private final SymbolTable symbols;
+    private final Option[][] ruleOptions;
+    private final boolean[] nullableRules;
+    private final TokenSet[] firstSets;
+    private final TokenSet[] followSets;
+    private final PredictionTable[] predictionTables;
+    private final LazyRule[] lazyRules;
+    private final Option[] options;
+    private final Map<Option, Integer> optionIds;
+    private final PredictionCache predictionCache;
+    private volatile GrammarMetrics metrics;
+
+    CompiledGrammar(
+            Grammar grammar,
+            Map<String, List<Option>> rules,
+            Map<String, LazyRule> lazyRules,
+            String rootRuleName
+    ) throws GrammarException {
+
+        validate(rules);
+
+        this.rootRuleName = rootRuleName;
+
+        symbols = createSymbolTable(rules);
+        ruleOptions = new Option[symbols.getRuleCount()][];
+
+        for (Map.Entry<String, List<Option>> rule : rules.entrySet()) {
+
+            Option[] options = new Option[rule.getValue().size()];
+
+            for (int i = 0; i < options.length; i++)
+                options[i] = copyOption(grammar, rule.getValue().get(i));
+
+            ruleOptions[symbols.getRuleId(rule.getKey())] = options;
+
+        }
+
+        options = flatten(ruleOptions);
+        optionIds = index(options);
+
+        nullableRules = new boolean[ruleOptions.length];
+        computeNullableRules();
+
+        firstSets = new TokenSet[ruleOptions.length];
+        computeFirstSets();
+
+        followSets = new TokenSet[ruleOptions.length];
+        computeFollowSets();
+
+        predictionTables = new PredictionTable[ruleOptions.length];
+
+        for (int i = 0; i < predictionTables.length; i++) {
+
+            PredictionTable table = new PredictionTable(followSets[i], symbols.getTokenNameCount());
+            ElementStack elementStack = new ElementStack().push(new OptionRule(symbols.getRuleName(i), null, i));
+
+            if (collectPredictions(elementStack, new OptionStack(), table, new int[] {PREDICTION_TABLE_LIMIT})) {
+                table.freeze();
+                predictionTables[i] = table;
+            }
+
+        }
+
+        predictionCache = new PredictionCache(symbols);
+
+        this.lazyRules = new LazyRule[ruleOptions.length];
+
+        for (LazyRule lazyRule : lazyRules.values()) {
+
+            int ruleId = symbols.getRuleId(lazyRule.getRuleName());
+
+            if (ruleId < 0)
+                throw new GrammarException("Rule \"" + lazyRule.getRuleName() + "\" does not exist!");
+
+            boolean output = true;
+
+            for (Option option : ruleOptions[ruleId])
+                output &= option.isOutput();
+
+            this.lazyRules[ruleId] = new LazyRule(lazyRule, output, symbols);
+
+        }
+
+    }
+
+    CompiledGrammar(
+            String rootRuleName,
+            SymbolTable symbols,
+            Option[][] ruleOptions,
+            boolean[] nullableRules,
+            TokenSet[] firstSets,
+            TokenSet[] followSets,
+            PredictionTable[] predictionTables,
+            LazyRule[] lazyRules
+    ) {
+
+        this.rootRuleName = rootRuleName;
+        this.symbols = symbols;
+        this.ruleOptions = ruleOptions;
+        this.nullableRules = nullableRules;
+        this.firstSets = firstSets;
+        this.followSets = followSets;
+        this.predictionTables = predictionTables;
+        this.lazyRules = lazyRules;
+
+        options = flatten(ruleOptions);
+        optionIds = index(options);
+        predictionCache = new PredictionCache(symbols);
+
+    }
+
+    private static Option[] flatten(Option[][] ruleOptions) {
+
+        List<Option> options = new ArrayList<>();
+
+        for (Option[] rule : ruleOptions)
+            Collections.addAll(options, rule);
+
+        return options.toArray(new Option[options.size()]);
+
+    }
+
+    private static Map<Option, Integer> index(Option[] options) {
+
+        Map<Option, Integer> optionIds = new IdentityHashMap<>();
+
+        for (int i = 0; i < options.length; i++)
+            optionIds.put(options[i], i);
+
+        return optionIds;
+
+    }
+
+    /*
+        Loads a grammar saved with save(). The buffer is only read, its position is not changed.
+    */
+    public static CompiledGrammar load(ByteBuffer buffer) throws GrammarException {
+        return GrammarFile.read(buffer);
+    }
+
+    public static CompiledGrammar load(Path path) throws IOException, GrammarException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /*
+        Writes the grammar together with its prediction tables in a versioned binary format.
+    */
+    public void save(OutputStream output) throws IOException {
+        GrammarFile.write(this, output);
+    }
+
+    public void save(Path path) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(path))) {
+            save(output);
+        }
+    }
+
+    static void validate(Map<String, List<Option>> rules) throws GrammarException {
+
+        for (List<Option> options : rules.values())
+            for (Option option : options)
+                for (AbstractOptionElement element : option.getElements())
+                    if (element instanceof OptionRule)
+                        if (!rules.containsKey(((OptionRule) element).getName()))
+                            throw new GrammarException("Rule \"" + ((OptionRule) element).getName() + "\" does not exist!");
+
+    }
+
+    private static SymbolTable createSymbolTable(Map<String, List<Option>> rules) {
+
+        Set<String> tokenNames = new LinkedHashSet<>();
+        Set<String> values = new LinkedHashSet<>();
+
+        for (List<Option> options : rules.values())
+            for (Option option : options)
+                for (AbstractOptionElement element : option.getElements())
+                    if (element instanceof OptionToken) {
+
+                        OptionToken token = (OptionToken)element;
+
+                        if (token.getName() != null)
+                            tokenNames.add(token.getName());
+
+                        if (token.getValue() != null)
+                            values.add(token.getValue());
+
+                    }
+
+        return new SymbolTable(rules.keySet(), tokenNames, values);
+
+    }
+
+    private Option copyOption(Grammar grammar, Option option) {
+
+        List<AbstractOptionElement> elements = new ArrayList<>(option.getElementCount());
+
+        for (AbstractOptionElement element : option.getElements())
+            if (element instanceof OptionToken) {
+
+                OptionToken token = (OptionToken)element;
+
+                elements.add(new OptionToken(
+                        token.getName(),
+                        token.isOutputName(),
+                        token.getValue(),
+                        token.isOutputValue(),
+                        symbols
+                ));
+
+            } else if (element instanceof OptionRule) {
+
+                OptionRule rule = (OptionRule)element;
+
+                elements.add(new OptionRule(rule.getName(), rule.getOutput(), symbols.getRuleId(rule.getName())));
+
+            } else
+                elements.add(element);
+
+        return new Option(grammar, option.getRuleName(), option.isOutput(), Collections.unmodifiableList(elements));
+
+    }
+
+    public String getRootRuleName() {
+        return rootRuleName;
+    }
+
+    public boolean hasRule(String name) {
+        return symbols.getRuleId(name) >= 0;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    Option[] getRuleOptions(int ruleId) {
+        return ruleOptions[ruleId];
+    }
+
+    /*
+        Options of all rules are numbered in the rule id order. Saved grammars and generated parsers refer
+        to options by these numbers.
+    */
+    Option getOption(int optionId) {
+        return options[optionId];
+    }
+
+    int getOptionId(Option option) {
+        return optionIds.get(option);
+    }
+
+    int getOptionCount() {
+        return options.length;
+    }
+
+    boolean isNullableRule(int ruleId) {
+        return nullableRules[ruleId];
+    }
+
+    TokenSet getFirstSet(int ruleId) {
+        return firstSets[ruleId];
+    }
+
+    TokenSet getFollowSet(int ruleId) {
+        return followSets[ruleId];
+    }
+
+    PredictionTable getPredictionTable(int ruleId) {
+        return predictionTables[ruleId];
+    }
+
+    LazyRule getLazyRule(int ruleId) {
+        return lazyRules[ruleId];
+    }
+
+    /*
+        Registers a JMX MBean with parse metrics of this grammar under the given name, replacing the one
+        registered before, if any.
+    */
+    public synchronized GrammarMetrics registerMetrics(String name) {
+
+        setMetrics(null);
+
+        GrammarMetrics metrics = GrammarMetrics.register(name);
+        setMetrics(metrics);
+
+        return metrics;
+
+    }
+
+    public synchronized void unregisterMetrics() {
+        setMetrics(null);
+    }
+
+    public GrammarMetrics getMetrics() {
+        return metrics;
+    }
+
+    synchronized void setMetrics(GrammarMetrics metrics) {
+
+        if (this.metrics != null && this.metrics != metrics)
+            this.metrics.unregister();
+
+        this.metrics = metrics;
+
+    }
+
+    public GrammarReport analyze() {
+        return new GrammarAnalyzer(this).analyze();
+    }
+
+    private boolean isNullable(List<AbstractOptionElement> elements, int from) {
+
+        for (int i = from; i < elements.size(); i++) {
+
+            AbstractOptionElement element = elements.get(i);
+
+            if (element instanceof OptionToken)
+                return false;
+            else if (element instanceof OptionRule && !nullableRules[((OptionRule) element).getId()])
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    private void computeNullableRules() {
+
+        boolean changed = true;
+
+        while (changed) {
+
+            changed = false;
+
+            for (int i = 0; i < ruleOptions.length; i++)
+                if (!nullableRules[i])
+                    for (Option option : ruleOptions[i])
+                        if (isNullable(option.getElements(), 0)) {
+                            nullableRules[i] = true;
+                            changed = true;
+                            break;
+                        }
+
+        }
+
+    }
+
+    private boolean addFirst(TokenSet target, List<AbstractOptionElement> elements, int from) {
+
+        boolean changed = false;
+
+        for (int i = from; i < elements.size(); i++) {
+
+            AbstractOptionElement element = elements.get(i);
+
+            if (element instanceof OptionToken)
+                return target.add((OptionToken) element) || changed;
+            else if (element instanceof OptionRule) {
+
+                int ruleId = ((OptionRule) element).getId();
+
+                if (target.addAll(firstSets[ruleId]))
+                    changed = true;
+
+                if (!nullableRules[ruleId])
+                    return changed;
+
+            }
+
+        }
+
+        return changed;
+
+    }
+
+    private void computeFirstSets() {
+
+        for (int i = 0; i < firstSets.length; i++)
+            firstSets[i] = new TokenSet(symbols.getTokenNameCount());
+
+        boolean changed = true;
+
+        while (changed) {
+
+            changed = false;
+
+            for (int i = 0; i < ruleOptions.length; i++)
+                for (Option option : ruleOptions[i])
+                    if (addFirst(firstSets[i], option.getElements(), 0))
+                        changed = true;
+
+        }
+
+    }
+
+    private void computeFollowSets() {
+
+        // Any rule can be used as the root one, so the end of the input may follow every rule
+        for (int i = 0; i < followSets.length; i++) {
+            followSets[i] = new TokenSet(symbols.getTokenNameCount());
+            followSets[i].addEnd();
+        }
+
+        boolean changed = true;
+
+        while (changed) {
+
+            changed = false;
+
+            for (int i = 0; i < ruleOptions.length; i++)
+                for (Option option : ruleOptions[i]) {
+
+                    List<AbstractOptionElement> elements = option.getElements();
+
+                    for (int j = 0; j < elements.size(); j++)
+                        if (elements.get(j) instanceof OptionRule) {
+
+                            TokenSet followSet = followSets[((OptionRule) elements.get(j)).getId()];
+
+                            if (addFirst(followSet, elements, j + 1))
+                                changed = true;
+
+                            if (isNullable(elements, j + 1) && followSet.addAll(followSets[i]))
+                                changed = true;
+
+                        }
+
+                }
+
+        }
+
+    }
+
+    private boolean collectPredictions(
+            ElementStack elementStack,
+            OptionStack expansionStack,
+            PredictionTable table,
+            int[] budget
+    ) {
+
+        // Left-recursive rules would nest until the budget runs out, which may overflow the stack first
+        if (--budget[0] < 0 || expansionStack.size() > PREDICTION_DEPTH_LIMIT)
+            return false;
+
+        while (!elementStack.isEmpty()) {
+
+            AbstractOptionElement element = elementStack.peek();
+            elementStack = elementStack.pop();
+
+            if (element instanceof OptionToken) {
+
+                table.add((OptionToken) element, expansionStack.toArray());
+                return true;
+
+            } else if (element instanceof OptionRule) {
+
+                for (Option option : ruleOptions[((OptionRule) element).getId()])
+                    if (!collectPredictions(elementStack.pushOption(option), expansionStack.push(option), table, budget))
+                        return false;
+
+                return true;
+
+            }
+
+        }
+
+        table.setPassThrough();
+        return true;
+
+    }
+
+    /*
+        Returns the smallest number of pending elements to drop, not less than minDepth, after which the stack can
+        match the token, or -1 if there is none. The pending elements are the exact continuation of the parse, so
+        their FIRST sets give tighter synchronization points than the FOLLOW sets of the rules.
+    */
+    int findSyncDepth(ElementStack elementStack, Token token, int minDepth) {
+
+        int depth = 0;
+        int nullableDepth = 0;
+
+        for (AbstractOptionElement element : elementStack) {
+
+            boolean nullable;
+
+            if (element instanceof OptionToken) {
+
+                if (depth >= minDepth && ((OptionToken) element).matches(token))
+                    return Math.max(nullableDepth, minDepth);
+
+                nullable = false;
+
+            } else if (element instanceof OptionRule) {
+
+                int ruleId = ((OptionRule) element).getId();
+
+                if (depth >= minDepth && firstSets[ruleId].match(token) != Match.NONE)
+                    return Math.max(nullableDepth, minDepth);
+
+                nullable = nullableRules[ruleId];
+
+            } else
+                nullable = true;
+
+            depth++;
+
+            if (!nullable)
+                nullableDepth = depth;
+
+        }
+
+        return token instanceof TokenStreamEnd ? Math.max(nullableDepth, minDepth) : -1;
+
+    }
+
+    private void checkRule(String ruleName) throws GrammarException {
+        if (!hasRule(ruleName))
+            throw new GrammarException("Rule \"" + ruleName + "\" does not exist!");
+    }
+
+    private Token peek(Tokenizer tokens, int depth) {
+        return symbols.stamp(tokens.peek(depth));
+    }
+    
+    public SyntaxTreeNode parse(Tokenizer tokens) throws ParseException, GrammarException {
+        return parse(tokens, rootRuleName, (ParseObserver) null);
+    }
+
+    public SyntaxTreeNode parse(Tokenizer tokens, String rootRuleName) throws GrammarException, ParseException {
+        return parse(tokens, rootRuleName, (ParseObserver) null);
+    }
+
+    OptionStack predict(ElementStack elementStack, Tokenizer tokens, ParseObserver observer) throws ParseException {
+
+        int ruleId = ((OptionRule) elementStack.peek()).getId();
+
+        PredictionTable predictionTable = predictionTables[ruleId];
+
+        if (predictionTable != null) {
+
+            Token token = peek(tokens, 1);
+            Option[] prediction = predictionTable.predict(token);
+
+            if (prediction == PredictionTable.NO_MATCH)
+                throw new UnexpectedTokenException(token);
+            else if (prediction != null) {
+
+                if (observer != null)
+                    observer.prediction(symbols.getRuleName(ruleId), 1, 0);
+
+                return new OptionStack().pushAll(prediction);
+
+            }
+
+        }
+
+        Option[] cachedPrediction = predictionCache.get(ruleId, elementStack, tokens);
+        GrammarMetrics metrics = this.metrics;
+
+        if (metrics != null)
+            metrics.predictionCacheLookup(cachedPrediction != null);
+
+        if (cachedPrediction != null) {
+
+            if (observer != null)
+                observer.prediction(symbols.getRuleName(ruleId), 0, 0);
+
+            return new OptionStack().pushAll(cachedPrediction);
+
+        }
+
+        int peekDepth = 1;
+        int minStackSize = elementStack.size();
+
+        List<PredictionStep.Node> configurations = null;
+        int stepSize = 16;
+        int configurationCount = 0;
+
+        while (true) {
+
+            Token token;
+
+            if (tokens.hasNext(peekDepth))
+                token = peek(tokens, peekDepth);
+            else
+                token = new TokenStreamEnd();
+
+            PredictionStep step = new PredictionStep(ruleOptions, token, stepSize);
+
+            if (configurations == null)
+                step.add(elementStack, new OptionStack(), false);
+            else
+                for (PredictionStep.Node configuration : configurations)
+                    step.add(configuration.matchStack, configuration.expansionStack, configuration.ambiguous);
+
+            step.run();
+            stepSize = step.getSize();
+            configurationCount += stepSize;
+
+            minStackSize = Math.min(minStackSize, step.getMinStackSize());
+            configurations = step.getMatches();
+
+            if (configurations.size() == 0)
+
+                throw new UnexpectedTokenException(token);
+
+            else if (configurations.size() == 1 && !configurations.get(0).ambiguous) {
+
+                Option[] prediction = configurations.get(0).expansionStack.toArray();
+
+                predictionCache.put(
+                        ruleId,
+                        elementStack,
+                        elementStack.size() - minStackSize,
+                        tokens,
+                        peekDepth,
+                        prediction
+                );
+
+                if (observer != null)
+                    observer.prediction(symbols.getRuleName(ruleId), peekDepth, configurationCount);
+
+                return new OptionStack().pushAll(prediction);
+
+            } else if (token instanceof TokenStreamEnd)
+
+                throw new UnexpectedTokenException(token);
+
+            else
+                peekDepth++;
+
+        }
+
+    }
+
+    /*
+        Prints the parse events to the standard output. Use an observer instead.
+    */
+    @Deprecated
+    public SyntaxTreeNode parse(Tokenizer tokens, String rootRuleName, boolean outputTrace) throws GrammarException, ParseException {
+        return parse(tokens, rootRuleName, outputTrace ? new TraceObserver() : null);
+    }
+
+    public SyntaxTreeNode parse(Tokenizer tokens, String rootRuleName, ParseObserver observer) throws GrammarException, ParseException {
+        checkRule(rootRuleName);
+        return buildTree(tokens, rootRuleName, observer);
+    }
+
+    public void parse(Tokenizer tokens, ParseListener listener) throws GrammarException, ParseException {
+        parse(tokens, rootRuleName, listener);
+    }
+
+    public void parse(Tokenizer tokens, String rootRuleName, ParseListener listener) throws GrammarException, ParseException {
+        parse(tokens, rootRuleName, listener, null);
+    }
+
+    public void parse(Tokenizer tokens, String rootRuleName, ParseListener listener, ParseObserver observer) throws GrammarException, ParseException {
+        checkRule(rootRuleName);
+        doParse(tokens, rootRuleName, listener, observer);
+    }
+
+    public ParseResult parseRecovering(Tokenizer tokens) throws GrammarException {
+        return parseRecovering(tokens, rootRuleName);
+    }
+
+    public ParseResult parseRecovering(Tokenizer tokens, String rootRuleName) throws GrammarException {
+
+        TreeBuilder treeBuilder = new TreeBuilder();
+        List<ParseException> errors = parseRecovering(tokens, rootRuleName, treeBuilder);
+
+        return new ParseResult(treeBuilder.getSyntaxTree(), errors);
+
+    }
+
+    /*
+        Parses to the end of the input regardless of errors. Unexpected tokens are skipped into "#error" nodes,
+        missing elements are marked with empty ones. A tokenizer error ends the parse.
+    */
+    public List<ParseException> parseRecovering(Tokenizer tokens, String rootRuleName, ParseListener listener) throws GrammarException {
+
+        checkRule(rootRuleName);
+
+        List<ParseException> errors = new ArrayList<>();
+
+        try {
+            run(tokens, rootRuleName, listener, null, null, errors);
+        } catch (ParseException exception) {
+            errors.add(exception);
+        }
+
+        return errors;
+
+    }
+
+    SyntaxTreeNode buildTree(Tokenizer tokens, String rootRuleName, ParseObserver observer) throws ParseException {
+
+        TreeBuilder treeBuilder = new TreeBuilder();
+        run(tokens, rootRuleName, treeBuilder, observer, treeBuilder, null);
+
+        return treeBuilder.getSyntaxTree();
+
+    }
+
+    void doParse(Tokenizer tokens, String rootRuleName, ParseListener listener, ParseObserver observer) throws ParseException {
+        run(tokens, rootRuleName, listener, observer, null, null);
+    }
+
+    /*
+        Runs a parse to the end and records it into the metrics, if they are registered. Lazy rules are skipped
+        only if the tree builder is given.
+    */
+    private void run(
+            Tokenizer tokens,
+            String rootRuleName,
+            ParseListener listener,
+            ParseObserver observer,
+            TreeBuilder lazyTreeBuilder,
+            List<ParseException> errors
+    ) throws ParseException {
+
+        GrammarMetrics metrics = this.metrics;
+        MeteredTokenizer meteredTokens = null;
+
+        if (metrics != null)
+            tokens = meteredTokens = new MeteredTokenizer(tokens);
+
+        ParserState parserState = new ParserState(this, tokens, rootRuleName, listener, observer, errors);
+
+        if (lazyTreeBuilder != null)
+            parserState.skipLazyRules(lazyTreeBuilder);
+
+        if (metrics == null) {
+            while (parserState.step());
+            return;
+        }
+
+        long start = System.nanoTime();
+        ParseException failure = null;
+
+        try {
+            while (parserState.step());
+        } catch (ParseException exception) {
+            failure = exception;
+            throw exception;
+        } finally {
+
+            if (failure == null && errors != null && !errors.isEmpty())
+                failure = errors.get(0);
+
+            metrics.parsed(meteredTokens, System.nanoTime() - start, failure);
+
+        }
+
+    }
+
+    public ParseEventReader createEventReader(Tokenizer tokens) throws GrammarException {
+        return createEventReader(tokens, rootRuleName);
+    }
+
+    public ParseEventReader createEventReader(Tokenizer tokens, String rootRuleName) throws GrammarException {
+        checkRule(rootRuleName);
+        return new ParseEventReader(this, tokens, rootRuleName);
+    }
+
+}
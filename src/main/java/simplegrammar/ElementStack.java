@@ -15,13 +15,130 @@
 */
 package simplegrammar;
 
-import java.util.Stack;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-public class ElementStack extends Stack<AbstractOptionElement> {
+public final class ElementStack implements Iterable<AbstractOptionElement> {
+
+    private final AbstractOptionElement element;
+    private final ElementStack tail;
+    private final int size;
+    private final int hash;
+
+    public ElementStack() {
+        element = null;
+        tail = null;
+        size = 0;
+        hash = 0;
+    }
+
+    private ElementStack(AbstractOptionElement element, ElementStack tail) {
+        this.element = element;
+        this.tail = tail;
+        size = tail.size + 1;
+        hash = 31 * tail.hash + element.hashCode();
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public AbstractOptionElement peek() {
+
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return element;
+
+    }
+
+    public ElementStack pop() {
+
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return tail;
+
+    }
+
+    public ElementStack push(AbstractOptionElement element) {
+        return new ElementStack(element, this);
+    }
+
+    public ElementStack pushOption(Option option) {
+
+        ElementStack elementStack = this;
 
-    public void pushOption(Option option) {
         for (int i = option.getElements().size() - 1; i >= 0; i--)
-            push(option.getElements().get(i));
+            elementStack = elementStack.push(option.getElements().get(i));
+
+        return elementStack;
+
+    }
+
+    boolean sameAs(ElementStack other) {
+
+        if (size != other.size)
+            return false;
+
+        ElementStack elementStack = this;
+
+        while (elementStack != other) {
+
+            if (elementStack.element != other.element)
+                return false;
+
+            elementStack = elementStack.tail;
+            other = other.tail;
+
+        }
+
+        return true;
+
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ElementStack
+                && hash == ((ElementStack) other).hash
+                && sameAs((ElementStack) other);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public Iterator<AbstractOptionElement> iterator() {
+
+        return new Iterator<AbstractOptionElement>() {
+
+            private ElementStack next = ElementStack.this;
+
+            @Override
+            public boolean hasNext() {
+                return next.size > 0;
+            }
+
+            @Override
+            public AbstractOptionElement next() {
+                AbstractOptionElement element = next.peek();
+                next = next.tail;
+                return element;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+
     }
 
 }
@@ -0,0 +1,287 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Base of the parsers written by ParserGenerator. A generated parser has a method per rule and per option,
+    checks tokens inline and predicts LL(1) decisions with switches. Whatever needs more context is handed
+    over to the interpreter with an element stack rebuilt from the frames of the pending rule calls.
+
+    Options are referred to by their numbers in the compiled grammar. A call site is the option number shifted
+    by 16 bits plus the element position, or -1 for the root rule.
+
+    An instance holds the state of a single parse.
+*/
+public abstract class GeneratedParser {
+
+    protected static final int OUTPUT_DEFAULT = 0;
+    protected static final int OUTPUT_FALSE = 1;
+    protected static final int OUTPUT_TRUE = 2;
+
+    private final CompiledGrammar grammar;
+    private final SymbolTable symbols;
+    private final Tokenizer tokens;
+
+    private OptionRule rootRule;
+    private int[] pending;
+    private int pendingIndex;
+    private int[] frameOptions;
+    private int[] framePositions;
+    private ElementStack[] frameStacks;
+    private int frameCount;
+    private int stackCount;
+
+    private int tailRuleId;
+    private SyntaxTreeNode tailParent;
+    private int tailOutput;
+    private int tailSite;
+
+    protected GeneratedParser(CompiledGrammar grammar, Tokenizer tokens) {
+
+        this.grammar = grammar;
+        this.tokens = tokens;
+
+        symbols = grammar.getSymbols();
+        pending = new int[0];
+        frameOptions = new int[16];
+        framePositions = new int[16];
+        frameStacks = new ElementStack[16];
+
+    }
+
+    /*
+        Loads the grammar a parser was generated from. Each character of the chunks is a byte of the saved
+        grammar.
+    */
+    protected static CompiledGrammar loadGrammar(String... chunks) {
+
+        int size = 0;
+
+        for (String chunk : chunks)
+            size += chunk.length();
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        for (String chunk : chunks)
+            for (int i = 0; i < chunk.length(); i++)
+                buffer.put((byte) chunk.charAt(i));
+
+        buffer.flip();
+
+        try {
+            return CompiledGrammar.load(buffer);
+        } catch (GrammarException exception) {
+            throw new IllegalStateException(exception);
+        }
+
+    }
+
+    protected final SyntaxTreeNode run(String rootRuleName) throws GrammarException, ParseException {
+
+        int ruleId = symbols.getRuleId(rootRuleName);
+
+        if (ruleId < 0)
+            throw new GrammarException("Rule \"" + rootRuleName + "\" does not exist!");
+
+        SyntaxTreeNode syntaxTree = new SyntaxTreeNode(rootRuleName);
+        rootRule = new OptionRule(rootRuleName, false, ruleId);
+
+        try {
+
+            if (rule(ruleId, syntaxTree, OUTPUT_FALSE, -1))
+                call();
+
+            if (!(tokens.get() instanceof TokenStreamEnd))
+                throw new UnexpectedTokenException(tokens.peek(1));
+
+        } catch (TokenizerException exception) {
+            if (exception.getCause() instanceof ParseException)
+                throw (ParseException) exception.getCause();
+            else
+                throw exception;
+        }
+
+        return syntaxTree;
+
+    }
+
+    /*
+        Parses one rule into the given node. Returns true if the rule ends with a call to another rule, which
+        has been left to call() so that right recursion does not grow the Java stack.
+    */
+    protected abstract boolean rule(int ruleId, SyntaxTreeNode parent, int output, int site) throws ParseException;
+
+    protected final boolean tailCall(int ruleId, SyntaxTreeNode parent, int output, int site) {
+
+        tailRuleId = ruleId;
+        tailParent = parent;
+        tailOutput = output;
+        tailSite = site;
+
+        return true;
+
+    }
+
+    protected final void call() throws ParseException {
+        while (rule(tailRuleId, tailParent, tailOutput, tailSite));
+    }
+
+    /*
+        Remembers where to continue after the rule being called, for the interpreter to see the same element
+        stack as it would have had itself.
+    */
+    protected final void pushFrame(int optionId, int position) {
+
+        if (frameCount == frameOptions.length) {
+            frameOptions = Arrays.copyOf(frameOptions, frameCount * 2);
+            framePositions = Arrays.copyOf(framePositions, frameCount * 2);
+            frameStacks = Arrays.copyOf(frameStacks, frameCount * 2);
+        }
+
+        frameOptions[frameCount] = optionId;
+        framePositions[frameCount++] = position;
+
+    }
+
+    protected final void popFrame() {
+
+        if (stackCount == frameCount)
+            stackCount--;
+
+        frameCount--;
+
+    }
+
+    protected final Token peek() {
+        return symbols.stamp(tokens.peek(1));
+    }
+
+    protected final Token next() {
+        return tokens.get();
+    }
+
+    protected static boolean isEnd(Token token) {
+        return token instanceof TokenStreamEnd;
+    }
+
+    protected static UnexpectedTokenException unexpected(Token token) {
+        return new UnexpectedTokenException(token);
+    }
+
+    /*
+        Options predicted along with the one for the current rule are taken by the rules called next, in the
+        same order as the interpreter expands them.
+    */
+    protected final boolean hasPending() {
+        return pendingIndex < pending.length;
+    }
+
+    protected final int nextPending() {
+        return pending[pendingIndex++];
+    }
+
+    protected final int expand(int[] chain) {
+
+        pending = chain;
+        pendingIndex = 1;
+
+        return chain[0];
+
+    }
+
+    /*
+        Takes the way the current rule derives nothing for a token which may only follow the rule. The end
+        of the input is the only thing that may follow the rules called without a frame.
+    */
+    protected final int expandEmpty(int[] chain, Token token) throws UnexpectedTokenException {
+
+        if (frameCount == 0 && !(token instanceof TokenStreamEnd))
+            throw new UnexpectedTokenException(token);
+
+        return expand(chain);
+
+    }
+
+    private int expand(Option[] chain) {
+
+        int[] optionIds = new int[chain.length];
+
+        for (int i = 0; i < chain.length; i++)
+            optionIds[i] = grammar.getOptionId(chain[i]);
+
+        return expand(optionIds);
+
+    }
+
+    protected final int predict(int ruleId, int site) throws ParseException {
+
+        PredictionTable predictionTable = grammar.getPredictionTable(ruleId);
+
+        if (predictionTable != null) {
+
+            Token token = peek();
+            Option[] prediction = predictionTable.predict(token);
+
+            if (prediction == PredictionTable.NO_MATCH)
+                throw new UnexpectedTokenException(token);
+            else if (prediction != null)
+                return expand(prediction);
+
+        }
+
+        OptionStack prediction = grammar.predict(getElementStack(site), tokens, null);
+        Option[] chain = new Option[prediction.size()];
+
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = prediction.peek();
+            prediction = prediction.pop();
+        }
+
+        return expand(chain);
+
+    }
+
+    /*
+        Stacks built for the frames are kept until the frames are popped, as the next prediction is usually
+        made from about the same depth.
+    */
+    private ElementStack getElementStack(int site) {
+
+        ElementStack elementStack = stackCount == 0 ? new ElementStack() : frameStacks[stackCount - 1];
+
+        for (; stackCount < frameCount; stackCount++) {
+
+            List<AbstractOptionElement> elements = grammar.getOption(frameOptions[stackCount]).getElements();
+
+            for (int j = elements.size() - 1; j >= framePositions[stackCount]; j--)
+                elementStack = elementStack.push(elements.get(j));
+
+            frameStacks[stackCount] = elementStack;
+
+        }
+
+        if (site < 0)
+            return elementStack.push(rootRule);
+        else
+            return elementStack.push(grammar.getOption(site >>> 16).getElements().get(site & 0xFFFF));
+
+    }
+
+}
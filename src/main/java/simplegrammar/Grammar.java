@@ -18,17 +18,21 @@ package simplegrammar;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class Grammar {
 
     private final Map<String, List<Option>> rules;
+    private final Map<String, LazyRule> lazyRules;
     private String rootRuleName;
+    private volatile CompiledGrammar compiledGrammar;
+    private GrammarMetrics metrics;
 
     public Grammar() {
-        rules = new HashMap<>();
+        rules = new LinkedHashMap<>();
+        lazyRules = new LinkedHashMap<>();
     }
     
     protected final Option createOption(String ruleName, boolean output) {
@@ -43,6 +47,7 @@ public class Grammar {
         }
         
         options.add(option);
+        compiledGrammar = null;
 
         if (rootRuleName == null)
             rootRuleName = ruleName;
@@ -55,6 +60,25 @@ public class Grammar {
         return createOption(ruleName, false);
     }
 
+    /*
+        Marks the rule as lazy: trees built by parse() will hold a placeholder for it, which gets parsed when
+        navigated into. The rule must span exactly a balanced region of the declared opening and closing tokens.
+    */
+    protected final LazyRule createLazyRule(String ruleName) {
+
+        LazyRule lazyRule = new LazyRule(this, ruleName);
+
+        lazyRules.put(ruleName, lazyRule);
+        compiledGrammar = null;
+
+        return lazyRule;
+
+    }
+
+    void changed() {
+        compiledGrammar = null;
+    }
+
     protected final void append(Reader source) throws IOException, GrammarParseException {
         new GrammarParser(this).parse(source);
     }
@@ -64,95 +88,55 @@ public class Grammar {
     }
  
     public final void validate() throws GrammarException {
-        
-        for (List<Option> options : rules.values()) 
-            for (Option option : options)
-                for (AbstractOptionElement element : option.getElements())
-                    if (element instanceof OptionRule)
-                        if (!hasRule(((OptionRule) element).getName()))
-                            throw new GrammarException("Rule \"" + ((OptionRule) element).getName() + "\" does not exist!");
-        
+        CompiledGrammar.validate(rules);
     }
 
-    private void checkRule(String ruleName) throws GrammarException {
-        if (!hasRule(ruleName))
-            throw new GrammarException("Rule \"" + ruleName + "\" does not exist!");
-    }
+    public final CompiledGrammar compile() throws GrammarException {
+
+        CompiledGrammar compiledGrammar = this.compiledGrammar;
+
+        if (compiledGrammar == null) {
+            compiledGrammar = new CompiledGrammar(this, rules, lazyRules, rootRuleName);
+            compiledGrammar.setMetrics(getMetrics());
+            this.compiledGrammar = compiledGrammar;
+        }
+
+        return compiledGrammar;
 
-    private List<Option> getOptions(String ruleName) throws GrammarException {
-        checkRule(ruleName);
-        return rules.get(ruleName);
     }
-    
-    private void findExpansionStacks(
-            Token token, 
-            ElementStack elementStack, 
-            OptionStack expansionStack,
-            MatchingElementStacks matchingElementStacks,
-            List<OptionStack> matchingExpansionStacks
-    ) throws GrammarException {
-        
-        while (!elementStack.empty()) {
-            
-            AbstractOptionElement element = elementStack.pop();
-            
-            if (element instanceof OptionToken) {
-                
-                OptionToken tokenElement = (OptionToken)element;
-                
-                if (tokenElement.matches(token)) {
-                    
-                    if (tokenElement.match(token).compareTo(matchingElementStacks.getBestMatch()) > 0) {
-                            
-                        matchingElementStacks.setBestMatch(tokenElement.match(token));
-
-                        matchingElementStacks.clear();
-                        matchingExpansionStacks.clear();
-
-                    }
-                       
-                    if (tokenElement.match(token).compareTo(matchingElementStacks.getBestMatch()) == 0) {
-                        matchingElementStacks.add((ElementStack)elementStack.clone());
-                        matchingExpansionStacks.add((OptionStack)expansionStack.clone());
-                    }
-                    
-                } 
-                
-                return;
-                
-            } else if (element instanceof OptionRule) {
-              
-                List<Option> options = getOptions(((OptionRule) element).getName());
-                
-                for (Option option : options) {
-                    
-                    ElementStack innerElementStack = (ElementStack)elementStack.clone();
-                    innerElementStack.pushOption(option);
-                    
-                    expansionStack.push(option);
-                    
-                    findExpansionStacks(
-                            token, 
-                            innerElementStack, 
-                            expansionStack, 
-                            matchingElementStacks, 
-                            matchingExpansionStacks); 
-                    
-                    expansionStack.pop();
-                    
-                }
-                
-                return;
-                
-            }
-                
+
+    /*
+        Registers a JMX MBean with parse metrics of this grammar. The metrics are kept when the grammar gets
+        recompiled after a change.
+    */
+    public final GrammarMetrics registerMetrics(String name) throws GrammarException {
+
+        GrammarMetrics metrics = compile().registerMetrics(name);
+
+        synchronized (this) {
+            this.metrics = metrics;
         }
-        
-        if (token instanceof TokenStreamEnd) {
-            matchingElementStacks.add((ElementStack)elementStack.clone());
-            matchingExpansionStacks.add((OptionStack)expansionStack.clone());
+
+        return metrics;
+
+    }
+
+    public final void unregisterMetrics() throws GrammarException {
+
+        synchronized (this) {
+            metrics = null;
         }
-        
+
+        compile().unregisterMetrics();
+
+    }
+
+    public final synchronized GrammarMetrics getMetrics() {
+        return metrics;
+    }
+
+    public final GrammarReport analyze() throws GrammarException {
+        return compile().analyze();
     }
 
     public String getRootRuleName() {
@@ -161,169 +145,56 @@ public class Grammar {
 
     public void setRootRuleName(String rootRuleName) {
         this.rootRuleName = rootRuleName;
+        compiledGrammar = null;
     }
 
     public SyntaxTreeNode parse(Tokenizer tokens) throws ParseException, GrammarException {
-        return parse(tokens, rootRuleName, false);
+        return parse(tokens, rootRuleName, (ParseObserver) null);
     }
 
     public SyntaxTreeNode parse(Tokenizer tokens, String rootRoleName) throws GrammarException, ParseException {
-        return parse(tokens, rootRoleName,false);
+        return parse(tokens, rootRoleName, (ParseObserver) null);
     }
 
-    private void outputTrace(ElementStack elementStack, Tokenizer tokens) {
+    @Deprecated
+    public SyntaxTreeNode parse(Tokenizer tokens, String rootRuleName, boolean outputTrace) throws GrammarException, ParseException {
+        return compile().parse(tokens, rootRuleName, outputTrace);
+    }
 
-        System.out.println(tokens.peek(1).getName() + ":" + tokens.peek(1).getValue() + " - ");
+    public SyntaxTreeNode parse(Tokenizer tokens, String rootRuleName, ParseObserver observer) throws GrammarException, ParseException {
+        return compile().parse(tokens, rootRuleName, observer);
+    }
 
-        for (AbstractOptionElement element : elementStack) {
+    public void parse(Tokenizer tokens, ParseListener listener) throws GrammarException, ParseException {
+        parse(tokens, rootRuleName, listener);
+    }
 
-            if (element instanceof OptionToken) {
-                OptionToken token = (OptionToken)element;
-                System.out.print(token.getName() + ":" + token.getValue());
-            } else if (element instanceof OptionRule) {
-                OptionRule token = (OptionRule)element;
-                System.out.print("{" + token.getName()+"}");
-            } else {
-                System.out.print(element.getClass().getName());
-            }
-            System.out.print("  ");
-        }
+    public void parse(Tokenizer tokens, String rootRuleName, ParseListener listener) throws GrammarException, ParseException {
+        compile().parse(tokens, rootRuleName, listener);
+    }
 
-        System.out.println();
+    public void parse(Tokenizer tokens, String rootRuleName, ParseListener listener, ParseObserver observer) throws GrammarException, ParseException {
+        compile().parse(tokens, rootRuleName, listener, observer);
+    }
 
+    public ParseResult parseRecovering(Tokenizer tokens) throws GrammarException {
+        return parseRecovering(tokens, rootRuleName);
     }
 
-    public SyntaxTreeNode parse(Tokenizer tokens, String rootRuleName, boolean outputTrace) throws GrammarException, ParseException {
+    public ParseResult parseRecovering(Tokenizer tokens, String rootRuleName) throws GrammarException {
+        return compile().parseRecovering(tokens, rootRuleName);
+    }
 
-        checkRule(rootRuleName);
+    public List<ParseException> parseRecovering(Tokenizer tokens, String rootRuleName, ParseListener listener) throws GrammarException {
+        return compile().parseRecovering(tokens, rootRuleName, listener);
+    }
 
-        SyntaxTreeNode syntaxTree = new SyntaxTreeNode(rootRuleName);
-        
-        SyntaxTreeNodeStack treeNodeStack = new SyntaxTreeNodeStack();
-        treeNodeStack.push(syntaxTree);
-
-        ElementStack elementStack = new ElementStack();
-        elementStack.push(new OptionRule(rootRuleName, false));
-
-        OptionStack expansionStack = new OptionStack();
-
-        while (!elementStack.empty()) {
-            
-            if (outputTrace)
-                outputTrace(elementStack, tokens);
-            
-            AbstractOptionElement element = elementStack.peek();
-            
-            if (element instanceof EmptyElement) {
-                
-                elementStack.pop();
-                treeNodeStack.pop();
-                
-            } else if (element instanceof OptionToken) {
-                
-                Token token = tokens.get();
-                OptionToken optionToken = (OptionToken)element;
-                
-                if (optionToken.matches(token)) {
-                    
-                    if (optionToken.isOutputName())
-                        treeNodeStack.push(treeNodeStack.peek().addChildNode(token.getName()));
-                    
-                    if (optionToken.isOutputValue())
-                        treeNodeStack.peek().addChildNode(token.getValue());
-                    
-                    if (optionToken.isOutputName())
-                        treeNodeStack.pop();
-                        
-                } else
-                    throw new UnexpectedTokenException(token);
-
-                treeNodeStack.pop();
-                elementStack.pop();
-                
-            } else if (element instanceof OptionRule) {
-                
-                if (!expansionStack.empty()) {
-                    
-                    OptionRule optionRule = (OptionRule)element;
-                    Option option = expansionStack.pop();
-                    
-                    SyntaxTreeNode parentNode = treeNodeStack.pop();
-                    
-                    if (optionRule.getOutput() == null ? option.isOutput() : optionRule.getOutput())
-                        parentNode = parentNode.addChildNode(optionRule.getName());
-                    
-                    treeNodeStack.push(parentNode, option.getElementCount());
-                    
-                    elementStack.pop();
-                    elementStack.pushOption(option);
-                    
-                } else {
-                    
-                    int peekDepth = 1;
-                    
-                    List<ElementStack> initialElementStacks = new ArrayList<>();
-                    initialElementStacks.add((ElementStack)elementStack.clone());
-                    
-                    List<OptionStack> initialExpansionStacks = new ArrayList<>();
-                    initialExpansionStacks.add(new OptionStack());
-                    
-                    while (expansionStack.empty()) {
-                        
-                        Token token;
-                        
-                        if (tokens.hasNext(peekDepth))
-                            token = tokens.peek(peekDepth);
-                        else
-                            token = new TokenStreamEnd();
-                        
-                        MatchingElementStacks matchingElementStacks = new MatchingElementStacks();
-                        List<OptionStack> matchingExpansionStacks = new ArrayList<>();
-                        
-                        for (int i = 0; i < initialElementStacks.size(); i++) 
-                            findExpansionStacks(
-                                    token, 
-                                    initialElementStacks.get(i), 
-                                    initialExpansionStacks.get(i), 
-                                    matchingElementStacks, 
-                                    matchingExpansionStacks
-                            );
-
-                        if (matchingExpansionStacks.size() == 0)
-
-                            throw new UnexpectedTokenException(token);
-
-                        else if (matchingExpansionStacks.size() == 1)
-
-                            while (!matchingExpansionStacks.get(0).empty())
-                                expansionStack.push(matchingExpansionStacks.get(0).pop());
-
-                        else if (token instanceof TokenStreamEnd)
-
-                            throw new UnexpectedTokenException(token);
-
-                        else {
-                            
-                            peekDepth++;
-                        
-                            initialElementStacks = matchingElementStacks;
-                            initialExpansionStacks = matchingExpansionStacks;
-                            
-                        }
-                        
-                    }
-                    
-                }
-                
-            }
-            
-        }
-        
-        if (!(tokens.get() instanceof TokenStreamEnd))
-            throw new UnexpectedTokenException(tokens.peek(1));
+    public ParseEventReader createEventReader(Tokenizer tokens) throws GrammarException {
+        return createEventReader(tokens, rootRuleName);
+    }
 
-        return syntaxTree;
-        
+    public ParseEventReader createEventReader(Tokenizer tokens, String rootRuleName) throws GrammarException {
+        return compile().createEventReader(tokens, rootRuleName);
     }
-    
+
 }
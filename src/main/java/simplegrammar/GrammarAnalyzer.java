@@ -0,0 +1,349 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Static analysis of a compiled grammar. For every rule the prediction is simulated on token classes: paths are
+    expanded to their next token and paths expecting the same token are followed further until they split up,
+    which gives the lookahead the dynamic prediction will need. Left-recursive rules are reported instead of
+    being expanded, as the parser would recurse on them until the stack overflows.
+*/
+class GrammarAnalyzer {
+
+    private static final int LOOKAHEAD_LIMIT = 32;
+    private static final int CONFIGURATION_LIMIT = 10000;
+
+    private static class Configuration {
+
+        final OptionToken token;
+        final ElementStack elementStack;
+
+        Configuration(OptionToken token, ElementStack elementStack) {
+            this.token = token;
+            this.elementStack = elementStack;
+        }
+
+    }
+
+    private final CompiledGrammar grammar;
+    private final SymbolTable symbols;
+    private final boolean[] leftRecursiveRules;
+
+    private TokenSet followSet;
+    private int maxLookahead;
+    private int maxConfigurations;
+    private int configurationCount;
+    private boolean leftRecursive;
+    private boolean contextDependent;
+    private boolean ambiguous;
+    private boolean unbounded;
+    private boolean explosive;
+
+    GrammarAnalyzer(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        symbols = grammar.getSymbols();
+        leftRecursiveRules = new boolean[symbols.getRuleCount()];
+    }
+
+    GrammarReport analyze() {
+
+        int ruleCount = symbols.getRuleCount();
+        boolean[][] leftCalls = new boolean[ruleCount][ruleCount];
+        boolean[][] unitCalls = new boolean[ruleCount][ruleCount];
+
+        for (int i = 0; i < ruleCount; i++)
+            for (Option option : grammar.getRuleOptions(i))
+                collectCalls(i, option.getElements(), leftCalls, unitCalls);
+
+        List<List<String>> leftRecursiveCycles = findCycles(leftCalls);
+        List<List<String>> nullableLoops = findCycles(unitCalls);
+
+        for (List<String> cycle : leftRecursiveCycles)
+            for (String ruleName : cycle)
+                leftRecursiveRules[symbols.getRuleId(ruleName)] = true;
+
+        List<GrammarReport.RuleReport> rules = new ArrayList<>();
+
+        for (int i = 0; i < ruleCount; i++)
+            rules.add(analyzeRule(i));
+
+        return new GrammarReport(rules, leftRecursiveCycles, nullableLoops);
+
+    }
+
+    private boolean isNullable(AbstractOptionElement element) {
+        if (element instanceof OptionToken)
+            return false;
+        else if (element instanceof OptionRule)
+            return grammar.isNullableRule(((OptionRule) element).getId());
+        else
+            return true;
+    }
+
+    /*
+        A rule is called on the left edge if everything before it in the option is nullable, and is a unit call
+        if everything around it is nullable, so that the calling rule can derive the called one alone.
+    */
+    private void collectCalls(int ruleId, List<AbstractOptionElement> elements, boolean[][] leftCalls, boolean[][] unitCalls) {
+
+        int nonNullableCount = 0;
+        int firstNonNullable = elements.size();
+
+        for (int i = 0; i < elements.size(); i++)
+            if (!isNullable(elements.get(i))) {
+                nonNullableCount++;
+                firstNonNullable = Math.min(firstNonNullable, i);
+            }
+
+        for (int i = 0; i < elements.size(); i++)
+            if (elements.get(i) instanceof OptionRule) {
+
+                int calledRuleId = ((OptionRule) elements.get(i)).getId();
+
+                if (i <= firstNonNullable)
+                    leftCalls[ruleId][calledRuleId] = true;
+
+                if (nonNullableCount == 0 || nonNullableCount == 1 && !isNullable(elements.get(i)))
+                    unitCalls[ruleId][calledRuleId] = true;
+
+            }
+
+    }
+
+    /*
+        Strongly connected components of the call graph (Tarjan), only those which contain a cycle.
+    */
+    private List<List<String>> findCycles(boolean[][] calls) {
+
+        int ruleCount = calls.length;
+        int[] indexes = new int[ruleCount];
+        int[] lowLinks = new int[ruleCount];
+        boolean[] onStack = new boolean[ruleCount];
+        int[] stack = new int[ruleCount];
+        int[] counters = new int[2];
+        List<List<String>> cycles = new ArrayList<>();
+
+        for (int i = 0; i < ruleCount; i++)
+            indexes[i] = -1;
+
+        for (int i = 0; i < ruleCount; i++)
+            if (indexes[i] < 0)
+                connect(i, calls, indexes, lowLinks, onStack, stack, counters, cycles);
+
+        return cycles;
+
+    }
+
+    private void connect(
+            int ruleId,
+            boolean[][] calls,
+            int[] indexes,
+            int[] lowLinks,
+            boolean[] onStack,
+            int[] stack,
+            int[] counters,
+            List<List<String>> cycles
+    ) {
+
+        indexes[ruleId] = lowLinks[ruleId] = counters[0]++;
+        stack[counters[1]++] = ruleId;
+        onStack[ruleId] = true;
+
+        for (int i = 0; i < calls.length; i++)
+            if (calls[ruleId][i]) {
+
+                if (indexes[i] < 0) {
+                    connect(i, calls, indexes, lowLinks, onStack, stack, counters, cycles);
+                    lowLinks[ruleId] = Math.min(lowLinks[ruleId], lowLinks[i]);
+                } else if (onStack[i])
+                    lowLinks[ruleId] = Math.min(lowLinks[ruleId], indexes[i]);
+
+            }
+
+        if (lowLinks[ruleId] == indexes[ruleId]) {
+
+            List<String> component = new ArrayList<>();
+            int member;
+
+            do {
+                member = stack[--counters[1]];
+                onStack[member] = false;
+                component.add(0, symbols.getRuleName(member));
+            } while (member != ruleId);
+
+            if (component.size() > 1 || calls[ruleId][ruleId])
+                cycles.add(component);
+
+        }
+
+    }
+
+    private GrammarReport.RuleReport analyzeRule(int ruleId) {
+
+        String ruleName = symbols.getRuleName(ruleId);
+
+        followSet = grammar.getFollowSet(ruleId);
+        maxLookahead = 0;
+        maxConfigurations = 0;
+        configurationCount = 0;
+        leftRecursive = leftRecursiveRules[ruleId];
+        contextDependent = false;
+        ambiguous = false;
+        unbounded = false;
+        explosive = false;
+
+        if (!leftRecursive) {
+            List<Configuration> configurations = new ArrayList<>();
+            int endCount = expand(new ElementStack().push(new OptionRule(ruleName, null, ruleId)), configurations);
+            resolve(configurations, endCount, 1);
+        }
+
+        return new GrammarReport.RuleReport(
+                ruleName,
+                leftRecursive || ambiguous || unbounded || explosive ? -1 : maxLookahead,
+                maxConfigurations,
+                leftRecursive,
+                contextDependent,
+                ambiguous,
+                unbounded,
+                explosive
+        );
+
+    }
+
+    /*
+        Expands the stack to all possible next tokens. Returns the number of paths which reach the end of the
+        analyzed rule instead, as what follows there depends on the context.
+    */
+    private int expand(ElementStack elementStack, List<Configuration> configurations) {
+
+        while (!elementStack.isEmpty()) {
+
+            AbstractOptionElement element = elementStack.peek();
+            elementStack = elementStack.pop();
+
+            if (element instanceof OptionToken) {
+
+                if (++configurationCount > CONFIGURATION_LIMIT)
+                    explosive = true;
+                else
+                    configurations.add(new Configuration((OptionToken) element, elementStack));
+
+                return 0;
+
+            } else if (element instanceof OptionRule) {
+
+                int ruleId = ((OptionRule) element).getId();
+
+                if (leftRecursiveRules[ruleId]) {
+                    leftRecursive = true;
+                    return 0;
+                }
+
+                int endCount = 0;
+
+                for (Option option : grammar.getRuleOptions(ruleId))
+                    if (!explosive)
+                        endCount += expand(elementStack.pushOption(option), configurations);
+
+                return endCount;
+
+            }
+
+        }
+
+        return 1;
+
+    }
+
+    private static long getTokenKey(OptionToken token) {
+        return ((long)token.getNameId() << 32) | (token.getValueId() & 0xffffffffL);
+    }
+
+    private static boolean hasSamePaths(List<Configuration> configurations) {
+
+        for (int i = 0; i < configurations.size(); i++)
+            for (int j = i + 1; j < configurations.size(); j++)
+                if (configurations.get(i).elementStack.sameAs(configurations.get(j).elementStack))
+                    return true;
+
+        return false;
+
+    }
+
+    /*
+        The dynamic prediction keeps only the paths with the best match for a token, so paths conflict only when
+        they expect exactly the same token name and value.
+    */
+    private void resolve(List<Configuration> configurations, int endCount, int depth) {
+
+        if (explosive || leftRecursive)
+            return;
+
+        maxLookahead = Math.max(maxLookahead, depth);
+        maxConfigurations = Math.max(maxConfigurations, configurations.size() + endCount);
+
+        if (endCount > 1) {
+            ambiguous = true;
+            return;
+        }
+
+        Map<Long, List<Configuration>> groups = new LinkedHashMap<>();
+
+        for (Configuration configuration : configurations) {
+
+            List<Configuration> group = groups.get(getTokenKey(configuration.token));
+
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(getTokenKey(configuration.token), group);
+            }
+
+            group.add(configuration);
+
+        }
+
+        for (List<Configuration> group : groups.values())
+            if (endCount > 0 && followSet.overlaps(group.get(0).token))
+                contextDependent = true;
+            else if (group.size() > 1) {
+
+                if (depth == LOOKAHEAD_LIMIT)
+                    unbounded = true;
+                else if (hasSamePaths(group))
+                    ambiguous = true;
+                else {
+
+                    List<Configuration> nextConfigurations = new ArrayList<>();
+                    int nextEndCount = 0;
+
+                    for (Configuration configuration : group)
+                        nextEndCount += expand(configuration.elementStack, nextConfigurations);
+
+                    resolve(nextConfigurations, nextEndCount, depth + 1);
+
+                }
+
+            }
+
+    }
+
+}
@@ -24,4 +24,8 @@ public class GrammarException extends Exception {
         super(msg);
     }
 
+    public GrammarException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+
 }
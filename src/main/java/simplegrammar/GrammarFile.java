@@ -0,0 +1,370 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Binary form of a compiled grammar: the symbol table, the rules and everything computed from them, so that
+    loading does no analysis at all. All numbers are big-endian, strings are UTF-8 prefixed with the byte length
+    (-1 for null). A file is only read by a library with the same format version.
+*/
+final class GrammarFile {
+
+    static final int MAGIC = 0x53475246;
+    static final int VERSION = 1;
+
+    private static final int TOKEN_ELEMENT = 0;
+    private static final int RULE_ELEMENT = 1;
+    private static final int EMPTY_ELEMENT = 2;
+
+    private GrammarFile() {
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+
+        if (string == null)
+            output.writeInt(-1);
+        else {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+
+    }
+
+    /*
+        Reads the number of the following items, each taking at least the given number of bytes. A count the
+        remaining input can not hold means a corrupt file and is rejected before anything gets allocated.
+    */
+    static int readCount(ByteBuffer input, int itemSize) {
+
+        int count = input.getInt();
+
+        if (count < 0 || count > input.remaining() / itemSize)
+            throw new BufferUnderflowException();
+
+        return count;
+
+    }
+
+    private static String readString(ByteBuffer input) {
+
+        int length = input.getInt();
+
+        if (length == -1)
+            return null;
+        else if (length < 0 || length > input.remaining())
+            throw new BufferUnderflowException();
+
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+
+    }
+
+    private static void writeStrings(DataOutputStream output, String[] strings) throws IOException {
+
+        output.writeInt(strings.length);
+
+        for (String string : strings)
+            writeString(output, string);
+
+    }
+
+    private static List<String> readStrings(ByteBuffer input) {
+
+        String[] strings = new String[readCount(input, 4)];
+
+        for (int i = 0; i < strings.length; i++)
+            strings[i] = readString(input);
+
+        return Arrays.asList(strings);
+
+    }
+
+    static void write(CompiledGrammar grammar, OutputStream stream) throws IOException {
+
+        DataOutputStream output = new DataOutputStream(stream);
+        SymbolTable symbols = grammar.getSymbols();
+
+        int ruleCount = symbols.getRuleCount();
+        String[] ruleNames = new String[ruleCount];
+        String[] tokenNames = new String[symbols.getTokenNameCount()];
+        String[] values = new String[symbols.getValueCount()];
+
+        for (int i = 0; i < ruleNames.length; i++)
+            ruleNames[i] = symbols.getRuleName(i);
+
+        for (int i = 0; i < tokenNames.length; i++)
+            tokenNames[i] = symbols.getTokenName(i);
+
+        for (int i = 0; i < values.length; i++)
+            values[i] = symbols.getValue(i);
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        writeString(output, grammar.getRootRuleName());
+        writeStrings(output, ruleNames);
+        writeStrings(output, tokenNames);
+        writeStrings(output, values);
+
+        Map<Option, Integer> optionIds = new IdentityHashMap<>();
+
+        for (int i = 0; i < ruleCount; i++) {
+
+            Option[] options = grammar.getRuleOptions(i);
+            output.writeInt(options.length);
+
+            for (Option option : options) {
+
+                optionIds.put(option, optionIds.size());
+
+                output.writeBoolean(option.isOutput());
+                output.writeInt(option.getElementCount());
+
+                for (AbstractOptionElement element : option.getElements())
+                    if (element instanceof OptionToken) {
+
+                        OptionToken token = (OptionToken) element;
+
+                        output.writeByte(TOKEN_ELEMENT);
+                        output.writeInt(token.getNameId());
+                        output.writeInt(token.getValueId());
+                        output.writeByte((token.isOutputName() ? 1 : 0) | (token.isOutputValue() ? 2 : 0));
+
+                    } else if (element instanceof OptionRule) {
+
+                        OptionRule rule = (OptionRule) element;
+
+                        output.writeByte(RULE_ELEMENT);
+                        output.writeInt(rule.getId());
+                        output.writeByte(rule.getOutput() == null ? 0 : rule.getOutput() ? 2 : 1);
+
+                    } else
+                        output.writeByte(EMPTY_ELEMENT);
+
+            }
+
+        }
+
+        for (int i = 0; i < ruleCount; i++)
+            output.writeBoolean(grammar.isNullableRule(i));
+
+        for (int i = 0; i < ruleCount; i++)
+            grammar.getFirstSet(i).write(output);
+
+        for (int i = 0; i < ruleCount; i++)
+            grammar.getFollowSet(i).write(output);
+
+        for (int i = 0; i < ruleCount; i++) {
+
+            PredictionTable table = grammar.getPredictionTable(i);
+            output.writeBoolean(table != null);
+
+            if (table != null)
+                table.write(output, optionIds);
+
+        }
+
+        List<LazyRule> lazyRules = new ArrayList<>();
+
+        for (int i = 0; i < ruleCount; i++)
+            if (grammar.getLazyRule(i) != null)
+                lazyRules.add(grammar.getLazyRule(i));
+
+        output.writeInt(lazyRules.size());
+
+        for (LazyRule lazyRule : lazyRules) {
+            writeString(output, lazyRule.getRuleName());
+            output.writeBoolean(lazyRule.isOutput());
+            writeTokens(output, lazyRule.getOpeningTokens());
+            writeTokens(output, lazyRule.getClosingTokens());
+        }
+
+        output.flush();
+
+    }
+
+    private static void writeTokens(DataOutputStream output, List<OptionToken> tokens) throws IOException {
+
+        output.writeInt(tokens.size());
+
+        for (OptionToken token : tokens) {
+            writeString(output, token.getName());
+            writeString(output, token.getValue());
+        }
+
+    }
+
+    private static List<OptionToken> readTokens(ByteBuffer input, SymbolTable symbols) {
+
+        List<OptionToken> tokens = new ArrayList<>();
+
+        for (int i = readCount(input, 8); i > 0; i--)
+            tokens.add(new OptionToken(readString(input), false, readString(input), false, symbols));
+
+        return tokens;
+
+    }
+
+    static CompiledGrammar read(ByteBuffer buffer) throws GrammarException {
+
+        ByteBuffer input = buffer.duplicate();
+
+        try {
+
+            if (input.getInt() != MAGIC)
+                throw new GrammarException("Not a compiled grammar file!");
+
+            int version = input.getInt();
+
+            if (version != VERSION)
+                throw new GrammarException("Unsupported compiled grammar version " + version + "!");
+
+            String rootRuleName = readString(input);
+            SymbolTable symbols = new SymbolTable(readStrings(input), readStrings(input), readStrings(input));
+
+            int ruleCount = symbols.getRuleCount();
+            Option[][] ruleOptions = new Option[ruleCount][];
+            List<Option> allOptions = new ArrayList<>();
+
+            for (int i = 0; i < ruleCount; i++) {
+
+                ruleOptions[i] = new Option[readCount(input, 5)];
+
+                for (int j = 0; j < ruleOptions[i].length; j++) {
+
+                    boolean output = input.get() != 0;
+                    AbstractOptionElement[] elements = new AbstractOptionElement[readCount(input, 1)];
+
+                    for (int k = 0; k < elements.length; k++) {
+
+                        byte kind = input.get();
+
+                        if (kind == TOKEN_ELEMENT) {
+
+                            int nameId = input.getInt();
+                            int valueId = input.getInt();
+                            byte flags = input.get();
+
+                            elements[k] = new OptionToken(
+                                    nameId < 0 ? null : symbols.getTokenName(nameId),
+                                    (flags & 1) != 0,
+                                    valueId < 0 ? null : symbols.getValue(valueId),
+                                    (flags & 2) != 0,
+                                    symbols
+                            );
+
+                        } else if (kind == RULE_ELEMENT) {
+
+                            int ruleId = input.getInt();
+                            byte ruleOutput = input.get();
+
+                            elements[k] = new OptionRule(
+                                    symbols.getRuleName(ruleId),
+                                    ruleOutput == 0 ? null : ruleOutput == 2,
+                                    ruleId
+                            );
+
+                        } else if (kind == EMPTY_ELEMENT)
+                            elements[k] = new EmptyElement();
+                        else
+                            throw new GrammarException("Compiled grammar file is corrupt!");
+
+                    }
+
+                    ruleOptions[i][j] = new Option(
+                            null,
+                            symbols.getRuleName(i),
+                            output,
+                            Collections.unmodifiableList(Arrays.asList(elements))
+                    );
+                    allOptions.add(ruleOptions[i][j]);
+
+                }
+
+            }
+
+            Option[] options = allOptions.toArray(new Option[allOptions.size()]);
+
+            boolean[] nullableRules = new boolean[ruleCount];
+
+            for (int i = 0; i < ruleCount; i++)
+                nullableRules[i] = input.get() != 0;
+
+            TokenSet[] firstSets = new TokenSet[ruleCount];
+
+            for (int i = 0; i < ruleCount; i++)
+                firstSets[i] = TokenSet.read(input, symbols.getTokenNameCount());
+
+            TokenSet[] followSets = new TokenSet[ruleCount];
+
+            for (int i = 0; i < ruleCount; i++)
+                followSets[i] = TokenSet.read(input, symbols.getTokenNameCount());
+
+            PredictionTable[] predictionTables = new PredictionTable[ruleCount];
+
+            for (int i = 0; i < ruleCount; i++)
+                if (input.get() != 0)
+                    predictionTables[i] = PredictionTable.read(input, followSets[i], symbols.getTokenNameCount(), options);
+
+            LazyRule[] lazyRules = new LazyRule[ruleCount];
+
+            for (int i = readCount(input, 13); i > 0; i--) {
+
+                String ruleName = readString(input);
+                boolean output = input.get() != 0;
+
+                lazyRules[symbols.getRuleId(ruleName)] = new LazyRule(
+                        ruleName,
+                        readTokens(input, symbols),
+                        readTokens(input, symbols),
+                        output
+                );
+
+            }
+
+            return new CompiledGrammar(
+                    rootRuleName,
+                    symbols,
+                    ruleOptions,
+                    nullableRules,
+                    firstSets,
+                    followSets,
+                    predictionTables,
+                    lazyRules
+            );
+
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException exception) {
+            throw new GrammarException("Compiled grammar file is corrupt!", exception);
+        }
+
+    }
+
+}
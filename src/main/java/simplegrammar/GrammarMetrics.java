@@ -0,0 +1,191 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/*
+    Aggregated parse metrics of a grammar, exposed as a JMX MBean. All the counters are striped, so recording
+    from many parsing threads does not contend. Event readers and incremental parses are not recorded.
+*/
+public class GrammarMetrics implements GrammarMetricsMBean {
+
+    private final ObjectName objectName;
+
+    private final StripedCounter parseCount;
+    private final StripedCounter failureCount;
+    private final StripedCounter unexpectedTokenCount;
+    private final StripedCounter tokenCount;
+    private final StripedCounter totalTime;
+    private final StripedCounter lexingTime;
+    private final StripedCounter cacheHitCount;
+    private final StripedCounter cacheMissCount;
+    private final LatencyHistogram latencies;
+
+    private GrammarMetrics(ObjectName objectName) {
+
+        this.objectName = objectName;
+
+        parseCount = new StripedCounter();
+        failureCount = new StripedCounter();
+        unexpectedTokenCount = new StripedCounter();
+        tokenCount = new StripedCounter();
+        totalTime = new StripedCounter();
+        lexingTime = new StripedCounter();
+        cacheHitCount = new StripedCounter();
+        cacheMissCount = new StripedCounter();
+        latencies = new LatencyHistogram();
+
+    }
+
+    static GrammarMetrics register(String name) {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+
+            GrammarMetrics metrics = new GrammarMetrics(new ObjectName("simplegrammar:type=Grammar,name=" + ObjectName.quote(name)));
+            server.registerMBean(metrics, metrics.objectName);
+
+            return metrics;
+
+        } catch (JMException exception) {
+            throw new IllegalStateException("Metrics \"" + name + "\" could not be registered!", exception);
+        }
+
+    }
+
+    void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException exception) {
+            throw new IllegalStateException("Metrics \"" + objectName + "\" could not be unregistered!", exception);
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    void parsed(MeteredTokenizer tokens, long time, ParseException exception) {
+
+        parseCount.increment();
+        tokenCount.add(tokens.getTokenCount());
+        totalTime.add(time);
+        lexingTime.add(tokens.getLexingTime());
+        latencies.record(time);
+
+        if (exception != null) {
+
+            failureCount.increment();
+
+            if (exception instanceof UnexpectedTokenException)
+                unexpectedTokenCount.increment();
+
+        }
+
+    }
+
+    void predictionCacheLookup(boolean hit) {
+        if (hit)
+            cacheHitCount.increment();
+        else
+            cacheMissCount.increment();
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseCount.sum();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    @Override
+    public long getUnexpectedTokenCount() {
+        return unexpectedTokenCount.sum();
+    }
+
+    @Override
+    public long getTokenCount() {
+        return tokenCount.sum();
+    }
+
+    @Override
+    public double getTokensPerSecond() {
+        long time = totalTime.sum();
+        return time == 0 ? 0 : tokenCount.sum() * 1e9 / time;
+    }
+
+    @Override
+    public double getLexingTimeMillis() {
+        return lexingTime.sum() / 1e6;
+    }
+
+    @Override
+    public double getParsingTimeMillis() {
+        return (totalTime.sum() - lexingTime.sum()) / 1e6;
+    }
+
+    @Override
+    public double getLatencyP50Micros() {
+        return latencies.getQuantile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getLatencyP99Micros() {
+        return latencies.getQuantile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getLatencyP999Micros() {
+        return latencies.getQuantile(0.999) / 1e3;
+    }
+
+    /*
+        Share of the dynamic predictions answered by the prediction cache. Predictions made from the static
+        tables do not look into the cache and are not counted. NaN until the cache has been looked into.
+    */
+    @Override
+    public double getPredictionCacheHitRate() {
+
+        long hits = cacheHitCount.sum();
+        long lookups = hits + cacheMissCount.sum();
+
+        return lookups == 0 ? Double.NaN : (double) hits / lookups;
+
+    }
+
+    @Override
+    public void reset() {
+        parseCount.reset();
+        failureCount.reset();
+        unexpectedTokenCount.reset();
+        tokenCount.reset();
+        totalTime.reset();
+        lexingTime.reset();
+        cacheHitCount.reset();
+        cacheMissCount.reset();
+        latencies.reset();
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Collections;
+import java.util.List;
+
+public final class GrammarReport {
+
+    public static final class RuleReport {
+
+        private final String ruleName;
+        private final int maxLookahead;
+        private final int maxConfigurations;
+        private final boolean leftRecursive;
+        private final boolean contextDependent;
+        private final boolean ambiguous;
+        private final boolean unbounded;
+        private final boolean explosive;
+
+        RuleReport(
+                String ruleName,
+                int maxLookahead,
+                int maxConfigurations,
+                boolean leftRecursive,
+                boolean contextDependent,
+                boolean ambiguous,
+                boolean unbounded,
+                boolean explosive
+        ) {
+            this.ruleName = ruleName;
+            this.maxLookahead = maxLookahead;
+            this.maxConfigurations = maxConfigurations;
+            this.leftRecursive = leftRecursive;
+            this.contextDependent = contextDependent;
+            this.ambiguous = ambiguous;
+            this.unbounded = unbounded;
+            this.explosive = explosive;
+        }
+
+        public String getRuleName() {
+            return ruleName;
+        }
+
+        /*
+            Number of tokens the rule needs to choose an expansion, -1 if the rule could not be analyzed or no
+            number of tokens is enough.
+        */
+        public int getMaxLookahead() {
+            return maxLookahead;
+        }
+
+        public int getMaxConfigurations() {
+            return maxConfigurations;
+        }
+
+        public boolean isLeftRecursive() {
+            return leftRecursive;
+        }
+
+        public boolean isContextDependent() {
+            return contextDependent;
+        }
+
+        public boolean isAmbiguous() {
+            return ambiguous;
+        }
+
+        public boolean isUnbounded() {
+            return unbounded;
+        }
+
+        public boolean isExplosive() {
+            return explosive;
+        }
+
+    }
+
+    private final List<RuleReport> rules;
+    private final List<List<String>> leftRecursiveCycles;
+    private final List<List<String>> nullableLoops;
+
+    GrammarReport(List<RuleReport> rules, List<List<String>> leftRecursiveCycles, List<List<String>> nullableLoops) {
+        this.rules = Collections.unmodifiableList(rules);
+        this.leftRecursiveCycles = Collections.unmodifiableList(leftRecursiveCycles);
+        this.nullableLoops = Collections.unmodifiableList(nullableLoops);
+    }
+
+    public List<RuleReport> getRules() {
+        return rules;
+    }
+
+    public RuleReport getRule(String ruleName) {
+
+        for (RuleReport rule : rules)
+            if (rule.getRuleName().equals(ruleName))
+                return rule;
+
+        return null;
+
+    }
+
+    public List<List<String>> getLeftRecursiveCycles() {
+        return leftRecursiveCycles;
+    }
+
+    public List<List<String>> getNullableLoops() {
+        return nullableLoops;
+    }
+
+    public boolean hasProblems() {
+
+        if (!leftRecursiveCycles.isEmpty() || !nullableLoops.isEmpty())
+            return true;
+
+        for (RuleReport rule : rules)
+            if (rule.isAmbiguous() || rule.isUnbounded() || rule.isExplosive())
+                return true;
+
+        return false;
+
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+
+        json.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if (c < ' ')
+                json.append(String.format("\\u%04x", (int)c));
+            else
+                json.append(c);
+
+        }
+
+        json.append('"');
+
+    }
+
+    private static void appendCycles(StringBuilder json, List<List<String>> cycles) {
+
+        json.append('[');
+
+        for (int i = 0; i < cycles.size(); i++) {
+
+            json.append(i == 0 ? "\n    [" : ",\n    [");
+
+            for (int j = 0; j < cycles.get(i).size(); j++) {
+
+                if (j > 0)
+                    json.append(", ");
+
+                appendString(json, cycles.get(i).get(j));
+
+            }
+
+            json.append(']');
+
+        }
+
+        json.append(cycles.isEmpty() ? "]" : "\n  ]");
+
+    }
+
+    public String toJson() {
+
+        StringBuilder json = new StringBuilder("{\n  \"rules\": [");
+
+        for (int i = 0; i < rules.size(); i++) {
+
+            RuleReport rule = rules.get(i);
+
+            json.append(i == 0 ? "\n    {\"name\": " : ",\n    {\"name\": ");
+            appendString(json, rule.getRuleName());
+
+            json
+                    .append(", \"maxLookahead\": ").append(rule.getMaxLookahead())
+                    .append(", \"maxConfigurations\": ").append(rule.getMaxConfigurations())
+                    .append(", \"leftRecursive\": ").append(rule.isLeftRecursive())
+                    .append(", \"contextDependent\": ").append(rule.isContextDependent())
+                    .append(", \"ambiguous\": ").append(rule.isAmbiguous())
+                    .append(", \"unbounded\": ").append(rule.isUnbounded())
+                    .append(", \"explosive\": ").append(rule.isExplosive())
+                    .append('}');
+
+        }
+
+        json.append(rules.isEmpty() ? "],\n  \"leftRecursion\": " : "\n  ],\n  \"leftRecursion\": ");
+        appendCycles(json, leftRecursiveCycles);
+
+        json.append(",\n  \"nullableLoops\": ");
+        appendCycles(json, nullableLoops);
+
+        return json.append(",\n  \"problems\": ").append(hasProblems()).append("\n}\n").toString();
+
+    }
+
+}
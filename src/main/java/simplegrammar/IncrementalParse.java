@@ -0,0 +1,107 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Collections;
+import java.util.List;
+
+public final class IncrementalParse {
+
+    static class Checkpoint {
+
+        final int position;
+        final int maxIndex;
+        final ElementStack elementStack;
+        final OptionStack expansionStack;
+        final RuleFrameStack ruleFrameStack;
+        final SyntaxTreeNode[] openNodes;
+        final int[] childCounts;
+
+        Checkpoint(
+                int position,
+                int maxIndex,
+                ElementStack elementStack,
+                OptionStack expansionStack,
+                RuleFrameStack ruleFrameStack,
+                SyntaxTreeNode[] openNodes,
+                int[] childCounts
+        ) {
+            this.position = position;
+            this.maxIndex = maxIndex;
+            this.elementStack = elementStack;
+            this.expansionStack = expansionStack;
+            this.ruleFrameStack = ruleFrameStack;
+            this.openNodes = openNodes;
+            this.childCounts = childCounts;
+        }
+
+    }
+
+    private final String text;
+    private final PatternTokenizer tokenizer;
+    private final SyntaxTreeNode syntaxTree;
+    private final ParseException exception;
+    private final List<Checkpoint> checkpoints;
+    private boolean superseded;
+
+    IncrementalParse(String text, PatternTokenizer tokenizer, SyntaxTreeNode syntaxTree, ParseException exception, List<Checkpoint> checkpoints) {
+        this.text = text;
+        this.tokenizer = tokenizer;
+        this.syntaxTree = syntaxTree;
+        this.exception = exception;
+        this.checkpoints = checkpoints;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<Token> getTokens() {
+        return tokenizer == null ? Collections.<Token>emptyList() : Collections.unmodifiableList(tokenizer.getTokens());
+    }
+
+    public boolean isSuccessful() {
+        return exception == null;
+    }
+
+    public SyntaxTreeNode getSyntaxTree() {
+        return syntaxTree;
+    }
+
+    public ParseException getException() {
+        return exception;
+    }
+
+    PatternTokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    /*
+        The tokens of the parse are moved to the next one by an incremental reparse.
+    */
+    boolean isSuperseded() {
+        return superseded;
+    }
+
+    void setSuperseded() {
+        superseded = true;
+    }
+
+    List<Checkpoint> getCheckpoints() {
+        return checkpoints;
+    }
+
+}
@@ -0,0 +1,280 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import simplegrammar.IncrementalParse.Checkpoint;
+
+/*
+    Reparses edited text reusing the previous parse. Parser state snapshots (checkpoints) are taken every few tokens.
+    A reparse resumes from the last checkpoint which hasn't looked at any changed token and stops as soon as the
+    parser state equals the state of the previous parse at the same position of the unchanged token suffix. The rest
+    of the previous tree is then spliced into the new one.
+
+    The tokens of the previous parse are edited in place and move to the new parse, reparsing a superseded parse
+    falls back to a full parse.
+*/
+public class IncrementalParser {
+
+    private static final int CHECKPOINT_INTERVAL = 32;
+
+    private final CompiledGrammar grammar;
+    private final PatternTokenizer template;
+    private final String rootRuleName;
+
+    public IncrementalParser(CompiledGrammar grammar, PatternTokenizer template, String rootRuleName) throws GrammarException {
+
+        if (!grammar.hasRule(rootRuleName))
+            throw new GrammarException("Rule \"" + rootRuleName + "\" does not exist!");
+
+        this.grammar = grammar;
+        this.template = new PatternTokenizer(template);
+        this.rootRuleName = rootRuleName;
+
+        if (this.template.getSymbols() == null)
+            this.template.setSymbols(grammar.getSymbols());
+
+    }
+
+    public IncrementalParser(CompiledGrammar grammar, PatternTokenizer template) throws GrammarException {
+        this(grammar, template, grammar.getRootRuleName());
+    }
+
+    public IncrementalParse parse(String text) {
+
+        PatternTokenizer tokenizer = new PatternTokenizer(template);
+
+        try {
+            tokenizer.parse(text);
+        } catch (ParseException exception) {
+            return new IncrementalParse(text, null, null, exception, Collections.<Checkpoint>emptyList());
+        }
+
+        return parse(text, tokenizer, null, null, 0, 0);
+
+    }
+
+    public IncrementalParse reparse(IncrementalParse previous, int offset, int removedLength, String insertedText) {
+
+        String oldText = previous.getText();
+        String text = oldText.substring(0, offset) + insertedText + oldText.substring(offset + removedLength);
+        PatternTokenizer tokenizer = previous.getTokenizer();
+
+        if (tokenizer == null || previous.isSuperseded())
+            return parse(text);
+
+        try {
+            tokenizer.edit(text, offset, removedLength, insertedText.length());
+        } catch (ParseException exception) {
+            return new IncrementalParse(text, null, null, exception, Collections.<Checkpoint>emptyList());
+        }
+
+        previous.setSuperseded();
+
+        int prefixSize = tokenizer.getEditTokenIndex();
+        List<Checkpoint> checkpoints = previous.getCheckpoints();
+        Checkpoint start = null;
+
+        for (int i = checkpoints.size() - 1; i >= 0 && start == null; i--)
+            if (checkpoints.get(i).maxIndex < prefixSize)
+                start = checkpoints.get(i);
+
+        return parse(
+                text,
+                tokenizer,
+                start,
+                previous,
+                prefixSize + tokenizer.getEditRemovedCount(),
+                tokenizer.getEditInsertedCount() - tokenizer.getEditRemovedCount()
+        );
+
+    }
+
+    private static int[] getChildCounts(SyntaxTreeNode[] openNodes) {
+
+        int[] childCounts = new int[openNodes.length];
+
+        for (int i = 0; i < openNodes.length; i++)
+            childCounts[i] = openNodes[i].getChildNodes().size();
+
+        return childCounts;
+
+    }
+
+    /*
+        Copies the open nodes of the checkpoint, sharing all their completed child nodes.
+    */
+    private static SyntaxTreeNode[] copyOpenNodes(Checkpoint checkpoint) {
+
+        SyntaxTreeNode[] copies = new SyntaxTreeNode[checkpoint.openNodes.length];
+
+        for (int i = copies.length - 1; i >= 0; i--) {
+
+            SyntaxTreeNode node = checkpoint.openNodes[i];
+            copies[i] = new SyntaxTreeNode(node.getValue());
+
+            List<SyntaxTreeNode> childNodes = node.getChildNodes().subList(0, checkpoint.childCounts[i]);
+
+            if (i < copies.length - 1) {
+                copies[i].getChildNodes().addAll(childNodes.subList(0, childNodes.size() - 1));
+                copies[i].getChildNodes().add(copies[i + 1]);
+            } else
+                copies[i].getChildNodes().addAll(childNodes);
+
+        }
+
+        return copies;
+
+    }
+
+    /*
+        Rebases a checkpoint of the previous parse onto the new tree. Open nodes shared with the reference node path
+        are replaced with their counterparts, deeper ones are complete and shared by both trees.
+    */
+    private static Checkpoint rebase(Checkpoint checkpoint, SyntaxTreeNode[] oldNodes, int[] oldChildCounts, SyntaxTreeNode[] newNodes, int[] newChildCounts, int shift) {
+
+        SyntaxTreeNode[] openNodes = checkpoint.openNodes.clone();
+        int[] childCounts = checkpoint.childCounts.clone();
+
+        for (int i = 0; i < openNodes.length && i < oldNodes.length && openNodes[i] == oldNodes[i]; i++) {
+            openNodes[i] = newNodes[i];
+            childCounts[i] += newChildCounts[i] - oldChildCounts[i];
+        }
+
+        return new Checkpoint(
+                checkpoint.position + shift,
+                checkpoint.maxIndex + shift,
+                checkpoint.elementStack,
+                checkpoint.expansionStack,
+                checkpoint.ruleFrameStack,
+                openNodes,
+                childCounts
+        );
+
+    }
+
+    private static boolean sameState(ParserState parserState, Checkpoint checkpoint) {
+        return parserState.getElementStack().sameAs(checkpoint.elementStack)
+                && parserState.getExpansionStack().sameAs(checkpoint.expansionStack)
+                && parserState.getRuleFrameStack().sameAs(checkpoint.ruleFrameStack);
+    }
+
+    private IncrementalParse parse(String text, PatternTokenizer tokenizer, Checkpoint start, IncrementalParse previous, int oldSuffixStart, int shift) {
+
+        List<Token> tokens = tokenizer.getTokens();
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        IndexedTokenizer indexedTokenizer;
+        TreeBuilder treeBuilder;
+        ParserState parserState;
+
+        if (start == null) {
+
+            indexedTokenizer = new IndexedTokenizer(tokens, 0, -1);
+            treeBuilder = new TreeBuilder();
+            parserState = new ParserState(grammar, indexedTokenizer, rootRuleName, treeBuilder, null);
+
+        } else {
+
+            SyntaxTreeNode[] openNodes = copyOpenNodes(start);
+
+            for (Checkpoint checkpoint : previous.getCheckpoints())
+                if (checkpoint.position <= start.position)
+                    checkpoints.add(rebase(checkpoint, start.openNodes, start.childCounts, openNodes, start.childCounts, 0));
+
+            indexedTokenizer = new IndexedTokenizer(tokens, start.position, start.maxIndex);
+            treeBuilder = new TreeBuilder(openNodes);
+            parserState = new ParserState(
+                    grammar,
+                    indexedTokenizer,
+                    treeBuilder,
+                    start.elementStack,
+                    start.expansionStack,
+                    new RuleFrameStack(start.ruleFrameStack)
+            );
+
+        }
+
+        List<Checkpoint> oldCheckpoints = previous == null || !previous.isSuccessful()
+                ? Collections.<Checkpoint>emptyList()
+                : previous.getCheckpoints();
+
+        int oldCheckpointIndex = 0;
+        int nextCheckpoint = checkpoints.isEmpty() ? 0 : checkpoints.get(checkpoints.size() - 1).position + CHECKPOINT_INTERVAL;
+
+        try {
+
+            while (true) {
+
+                int position = indexedTokenizer.getPosition();
+
+                while (oldCheckpointIndex < oldCheckpoints.size()
+                        && (oldCheckpoints.get(oldCheckpointIndex).position < oldSuffixStart
+                                || oldCheckpoints.get(oldCheckpointIndex).position + shift < position))
+                    oldCheckpointIndex++;
+
+                if (oldCheckpointIndex < oldCheckpoints.size()
+                        && oldCheckpoints.get(oldCheckpointIndex).position + shift == position
+                        && sameState(parserState, oldCheckpoints.get(oldCheckpointIndex))) {
+
+                    Checkpoint convergence = oldCheckpoints.get(oldCheckpointIndex);
+                    SyntaxTreeNode[] openNodes = treeBuilder.getOpenNodes();
+                    int[] childCounts = getChildCounts(openNodes);
+
+                    for (int i = 0; i < openNodes.length; i++) {
+                        List<SyntaxTreeNode> oldChildNodes = convergence.openNodes[i].getChildNodes();
+                        openNodes[i].getChildNodes().addAll(oldChildNodes.subList(convergence.childCounts[i], oldChildNodes.size()));
+                    }
+
+                    for (Checkpoint checkpoint : oldCheckpoints.subList(oldCheckpointIndex, oldCheckpoints.size()))
+                        checkpoints.add(rebase(checkpoint, convergence.openNodes, convergence.childCounts, openNodes, childCounts, shift));
+
+                    return new IncrementalParse(text, tokenizer, treeBuilder.getSyntaxTree(), null, checkpoints);
+
+                }
+
+                if (position >= nextCheckpoint) {
+
+                    SyntaxTreeNode[] openNodes = treeBuilder.getOpenNodes();
+
+                    checkpoints.add(new Checkpoint(
+                            position,
+                            indexedTokenizer.getMaxIndex(),
+                            parserState.getElementStack(),
+                            parserState.getExpansionStack(),
+                            new RuleFrameStack(parserState.getRuleFrameStack()),
+                            openNodes,
+                            getChildCounts(openNodes)
+                    ));
+
+                    nextCheckpoint = position + CHECKPOINT_INTERVAL;
+
+                }
+
+                if (!parserState.step())
+                    return new IncrementalParse(text, tokenizer, treeBuilder.getSyntaxTree(), null, checkpoints);
+
+            }
+
+        } catch (ParseException exception) {
+            return new IncrementalParse(text, tokenizer, null, exception, checkpoints);
+        }
+
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.List;
+
+/*
+    Tokenizer over a fixed token list, which remembers the furthest token index looked at.
+*/
+class IndexedTokenizer extends Tokenizer {
+
+    private final List<Token> tokens;
+    private int position;
+    private int maxIndex;
+
+    IndexedTokenizer(List<Token> tokens, int position, int maxIndex) {
+        this.tokens = tokens;
+        this.position = position;
+        this.maxIndex = maxIndex;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    int getMaxIndex() {
+        return maxIndex;
+    }
+
+    @Override
+    public boolean hasNext(int depth) {
+
+        if (position + depth - 1 > maxIndex)
+            maxIndex = position + depth - 1;
+
+        return position + depth <= tokens.size();
+
+    }
+
+    @Override
+    protected Token doPeek(int depth) {
+        return tokens.get(position + depth - 1);
+    }
+
+    @Override
+    protected Token doGet() {
+        return tokens.get(position++);
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Log-linear histogram of durations in nanoseconds. Values below 16 have a bucket each, larger ones share
+    eight buckets per power of two, which keeps the relative error of the percentiles within 1/16. Buckets are
+    striped by thread in the same way as StripedCounter.
+*/
+final class LatencyHistogram {
+
+    private static final int LINEAR_LIMIT = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - 4) * (1 << SUB_BUCKET_BITS);
+
+    private final AtomicLongArray buckets;
+
+    LatencyHistogram() {
+        buckets = new AtomicLongArray(StripedCounter.STRIPE_COUNT * BUCKET_COUNT);
+    }
+
+    private static int getBucket(long value) {
+
+        if (value < LINEAR_LIMIT)
+            return (int) Math.max(value, 0);
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+
+        return LINEAR_LIMIT + ((exponent - 4) << SUB_BUCKET_BITS) + subBucket;
+
+    }
+
+    /*
+        Middle of the value range of the bucket.
+    */
+    private static double getBucketValue(int bucket) {
+
+        if (bucket < LINEAR_LIMIT)
+            return bucket;
+
+        int exponent = ((bucket - LINEAR_LIMIT) >> SUB_BUCKET_BITS) + 4;
+        int subBucket = (bucket - LINEAR_LIMIT) & ((1 << SUB_BUCKET_BITS) - 1);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+        return ((1 << SUB_BUCKET_BITS) + subBucket) * width + width / 2.0;
+
+    }
+
+    void record(long value) {
+        buckets.incrementAndGet(StripedCounter.getStripe() * BUCKET_COUNT + getBucket(value));
+    }
+
+    /*
+        Returns the value at the given quantile, or NaN if nothing has been recorded.
+    */
+    double getQuantile(double quantile) {
+
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+
+        for (int i = 0; i < buckets.length(); i++) {
+            long count = buckets.get(i);
+            counts[i % BUCKET_COUNT] += count;
+            total += count;
+        }
+
+        if (total == 0)
+            return Double.NaN;
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+
+            seen += counts[i];
+
+            if (seen >= rank)
+                return getBucketValue(i);
+
+        }
+
+        return getBucketValue(BUCKET_COUNT - 1);
+
+    }
+
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++)
+            buckets.set(i, 0);
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Rule which the tree-building parse skips without looking inside. The extent of the rule is found by counting
+    opening and closing tokens: it ends where the nesting depth returns to zero after the first opening token.
+    The skipped tokens are kept in a placeholder node and parsed when the node is first navigated into.
+*/
+public class LazyRule {
+
+    private final Grammar grammar;
+    private final String ruleName;
+    private final List<OptionToken> openingTokens;
+    private final List<OptionToken> closingTokens;
+    private final boolean output;
+
+    protected LazyRule(Grammar grammar, String ruleName) {
+        this.grammar = grammar;
+        this.ruleName = ruleName;
+        openingTokens = new ArrayList<>();
+        closingTokens = new ArrayList<>();
+        output = false;
+    }
+
+    LazyRule(LazyRule lazyRule, boolean output, SymbolTable symbols) {
+
+        grammar = null;
+        ruleName = lazyRule.ruleName;
+        openingTokens = copyTokens(lazyRule.openingTokens, symbols);
+        closingTokens = copyTokens(lazyRule.closingTokens, symbols);
+
+        this.output = output;
+
+    }
+
+    LazyRule(String ruleName, List<OptionToken> openingTokens, List<OptionToken> closingTokens, boolean output) {
+        grammar = null;
+        this.ruleName = ruleName;
+        this.openingTokens = Collections.unmodifiableList(openingTokens);
+        this.closingTokens = Collections.unmodifiableList(closingTokens);
+        this.output = output;
+    }
+
+    private static List<OptionToken> copyTokens(List<OptionToken> tokens, SymbolTable symbols) {
+
+        List<OptionToken> copies = new ArrayList<>(tokens.size());
+
+        for (OptionToken token : tokens)
+            copies.add(new OptionToken(token.getName(), false, token.getValue(), false, symbols));
+
+        return Collections.unmodifiableList(copies);
+
+    }
+
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    /*
+        Lazy rules of a compiled grammar can not be changed. A change of a source lazy rule makes its grammar
+        compile again.
+    */
+    private LazyRule add(List<OptionToken> tokens, OptionToken token) {
+
+        if (grammar == null)
+            throw new UnsupportedOperationException("Lazy rules of a compiled grammar can not be changed!");
+
+        tokens.add(token);
+        grammar.changed();
+
+        return this;
+
+    }
+
+    public LazyRule addOpening(String name, String value) {
+        return add(openingTokens, new OptionToken(name, false, value, false));
+    }
+
+    public LazyRule addOpening(String name) {
+        return addOpening(name, null);
+    }
+
+    public LazyRule addClosing(String name, String value) {
+        return add(closingTokens, new OptionToken(name, false, value, false));
+    }
+
+    public LazyRule addClosing(String name) {
+        return addClosing(name, null);
+    }
+
+    List<OptionToken> getOpeningTokens() {
+        return openingTokens;
+    }
+
+    List<OptionToken> getClosingTokens() {
+        return closingTokens;
+    }
+
+    /*
+        Whether all options of the rule are output ones. Only such rules are skipped, otherwise the rule node
+        would not exist in the tree and there would be nothing to keep the skipped tokens in.
+    */
+    boolean isOutput() {
+        return output;
+    }
+
+    private static boolean matchesAny(List<OptionToken> tokens, Token token) {
+
+        for (OptionToken optionToken : tokens)
+            if (optionToken.matches(token))
+                return true;
+
+        return false;
+
+    }
+
+    boolean isOpening(Token token) {
+        return matchesAny(openingTokens, token);
+    }
+
+    boolean isClosing(Token token) {
+        return matchesAny(closingTokens, token);
+    }
+
+}
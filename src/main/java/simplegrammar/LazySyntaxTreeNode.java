@@ -0,0 +1,73 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Placeholder for a skipped lazy rule. Holds the tokens of the rule and parses them on the first access to the
+    child nodes. Errors inside the region surface only then, wrapped into an unchecked exception.
+*/
+class LazySyntaxTreeNode extends SyntaxTreeNode {
+
+    private final CompiledGrammar grammar;
+    private final List<Token> tokens;
+    private volatile boolean parsed;
+
+    LazySyntaxTreeNode(CompiledGrammar grammar, String ruleName, List<Token> tokens) {
+        super(ruleName);
+        this.grammar = grammar;
+        this.tokens = Collections.unmodifiableList(tokens);
+    }
+
+    List<Token> getTokens() {
+        return tokens;
+    }
+
+    boolean isParsed() {
+        return parsed;
+    }
+
+    @Override
+    public List<SyntaxTreeNode> getChildNodes() {
+
+        if (!parsed)
+            parse();
+
+        return super.getChildNodes();
+
+    }
+
+    private synchronized void parse() {
+
+        if (parsed)
+            return;
+
+        SyntaxTreeNode syntaxTree;
+
+        try {
+            syntaxTree = grammar.buildTree(new IndexedTokenizer(tokens, 0, -1), getValue(), null);
+        } catch (ParseException exception) {
+            throw new IllegalStateException("Lazy rule \"" + getValue() + "\" could not be parsed!", exception);
+        }
+
+        super.getChildNodes().addAll(syntaxTree.getChildNodes());
+        parsed = true;
+
+    }
+
+}
@@ -0,0 +1,803 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Lazily built DFA over all token patterns which can be expressed as plain regular expressions. Patterns using
+    anything else (anchors, lookaround, backreferences, flags, top-level alternation, ...) are reported
+    as fallback patterns and must be matched with java.util.regex.
+*/
+class LexerAutomaton {
+
+    static final int NO_MATCH = -1;
+    static final int ABORTED = -2;
+
+    private static final int MAX_CHAR = 0xFFFF;
+    private static final int MAX_NFA_STATES = 100000;
+    private static final int MAX_DFA_STATES = 10000;
+
+    private static final int EPSILON = 0;
+    private static final int CHARS = 1;
+    private static final int ACCEPT = 2;
+
+    private static class UnsupportedPatternException extends Exception {
+    }
+
+    private static abstract class Node {
+    }
+
+    private static class CharsNode extends Node {
+
+        final int[] ranges;
+
+        CharsNode(int[] ranges) {
+            this.ranges = ranges;
+        }
+
+    }
+
+    private static class ListNode extends Node {
+
+        final boolean alternation;
+        final List<Node> nodes;
+
+        ListNode(boolean alternation) {
+            this.alternation = alternation;
+            nodes = new ArrayList<>();
+        }
+
+    }
+
+    private static class RepeatNode extends Node {
+
+        final Node node;
+        final int min;
+        final int max;
+
+        RepeatNode(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+
+    }
+
+    private static class RegexParser {
+
+        private final String pattern;
+        private int position;
+
+        RegexParser(String pattern) {
+            this.pattern = pattern;
+        }
+
+        Node parse() throws UnsupportedPatternException {
+
+            ListNode node = parseAlternation();
+
+            if (position < pattern.length() || node.nodes.size() > 1)
+                throw new UnsupportedPatternException();
+
+            return node;
+
+        }
+
+        private boolean hasNext() {
+            return position < pattern.length();
+        }
+
+        private char peek() {
+            return pattern.charAt(position);
+        }
+
+        private char next() throws UnsupportedPatternException {
+
+            if (!hasNext())
+                throw new UnsupportedPatternException();
+
+            return pattern.charAt(position++);
+
+        }
+
+        private ListNode parseAlternation() throws UnsupportedPatternException {
+
+            ListNode alternation = new ListNode(true);
+            alternation.nodes.add(parseConcatenation());
+
+            while (hasNext() && peek() == '|') {
+                position++;
+                alternation.nodes.add(parseConcatenation());
+            }
+
+            return alternation;
+
+        }
+
+        private ListNode parseConcatenation() throws UnsupportedPatternException {
+
+            ListNode concatenation = new ListNode(false);
+
+            while (hasNext() && peek() != '|' && peek() != ')')
+                concatenation.nodes.add(parseRepeat());
+
+            return concatenation;
+
+        }
+
+        private Node parseRepeat() throws UnsupportedPatternException {
+
+            Node node = parseAtom();
+
+            while (hasNext()) {
+
+                int min;
+                int max;
+
+                switch (peek()) {
+                    case '*':
+                        min = 0;
+                        max = -1;
+                        position++;
+                        break;
+                    case '+':
+                        min = 1;
+                        max = -1;
+                        position++;
+                        break;
+                    case '?':
+                        min = 0;
+                        max = 1;
+                        position++;
+                        break;
+                    case '{':
+                        position++;
+                        min = parseNumber();
+                        if (peek() == ',') {
+                            position++;
+                            max = peek() == '}' ? -1 : parseNumber();
+                        } else
+                            max = min;
+                        if (next() != '}')
+                            throw new UnsupportedPatternException();
+                        break;
+                    default:
+                        return node;
+                }
+
+                if (hasNext() && peek() == '?')
+                    position++;
+                else if (hasNext() && peek() == '+')
+                    throw new UnsupportedPatternException();
+
+                node = new RepeatNode(node, min, max);
+
+            }
+
+            return node;
+
+        }
+
+        private int parseNumber() throws UnsupportedPatternException {
+
+            int start = position;
+
+            while (hasNext() && peek() >= '0' && peek() <= '9')
+                position++;
+
+            if (position == start || position - start > 4)
+                throw new UnsupportedPatternException();
+
+            return Integer.parseInt(pattern.substring(start, position));
+
+        }
+
+        private Node parseAtom() throws UnsupportedPatternException {
+
+            char c = next();
+
+            switch (c) {
+                case '(':
+                    if (hasNext() && peek() == '?') {
+                        position++;
+                        if (next() != ':')
+                            throw new UnsupportedPatternException();
+                    }
+                    Node group = parseAlternation();
+                    if (next() != ')')
+                        throw new UnsupportedPatternException();
+                    return group;
+                case '[':
+                    return new CharsNode(parseClass());
+                case '.':
+                    return new CharsNode(new int[] {0, MAX_CHAR});
+                case '\\':
+                    return new CharsNode(parseEscape());
+                case '^':
+                case '$':
+                case ')':
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw new UnsupportedPatternException();
+                default:
+                    return new CharsNode(new int[] {c, c});
+            }
+
+        }
+
+        private int[] parseEscape() throws UnsupportedPatternException {
+
+            char c = next();
+
+            switch (c) {
+                case 'd':
+                    return new int[] {'0', '9'};
+                case 'D':
+                    return complement(new int[] {'0', '9'});
+                case 's':
+                    return whitespace();
+                case 'S':
+                    return complement(whitespace());
+                case 'w':
+                    return word();
+                case 'W':
+                    return complement(word());
+                case 't':
+                    return new int[] {'\t', '\t'};
+                case 'n':
+                    return new int[] {'\n', '\n'};
+                case 'r':
+                    return new int[] {'\r', '\r'};
+                case 'f':
+                    return new int[] {'\f', '\f'};
+                case 'a':
+                    return new int[] {7, 7};
+                case 'e':
+                    return new int[] {27, 27};
+                case 'x':
+                    return single(parseHex(2));
+                case 'u':
+                    return single(parseHex(4));
+                default:
+                    if (Character.isLetterOrDigit(c))
+                        throw new UnsupportedPatternException();
+                    return new int[] {c, c};
+            }
+
+        }
+
+        private int parseHex(int length) throws UnsupportedPatternException {
+
+            if (position + length > pattern.length())
+                throw new UnsupportedPatternException();
+
+            try {
+                return Integer.parseInt(pattern.substring(position, position += length), 16);
+            } catch (NumberFormatException exception) {
+                throw new UnsupportedPatternException();
+            }
+
+        }
+
+        private int[] parseClass() throws UnsupportedPatternException {
+
+            boolean negated = false;
+
+            if (hasNext() && peek() == '^') {
+                negated = true;
+                position++;
+            }
+
+            List<int[]> items = new ArrayList<>();
+            boolean first = true;
+
+            while (first || !hasNext() || peek() != ']') {
+
+                first = false;
+
+                char c = next();
+                int[] item;
+
+                if (c == '[' || (c == '&' && hasNext() && peek() == '&'))
+                    throw new UnsupportedPatternException();
+                else if (c == '\\')
+                    item = parseEscape();
+                else
+                    item = single(c);
+
+                if (item.length == 2 && item[0] == item[1] && hasNext() && peek() == '-'
+                        && position + 1 < pattern.length() && pattern.charAt(position + 1) != ']') {
+
+                    position++;
+
+                    char to = next();
+                    int[] toItem;
+
+                    if (to == '[')
+                        throw new UnsupportedPatternException();
+                    else if (to == '\\')
+                        toItem = parseEscape();
+                    else
+                        toItem = single(to);
+
+                    if (toItem.length != 2 || toItem[0] != toItem[1] || toItem[0] < item[0])
+                        throw new UnsupportedPatternException();
+
+                    item = new int[] {item[0], toItem[0]};
+
+                }
+
+                items.add(item);
+
+            }
+
+            position++;
+
+            int[] ranges = union(items);
+
+            return negated ? complement(ranges) : ranges;
+
+        }
+
+    }
+
+    private static int[] single(int c) {
+        return new int[] {c, c};
+    }
+
+    private static int[] whitespace() {
+        return union(Arrays.asList(new int[] {'\t', '\r'}, new int[] {' ', ' '}));
+    }
+
+    private static int[] word() {
+        return union(Arrays.asList(new int[] {'0', '9'}, new int[] {'A', 'Z'}, new int[] {'_', '_'}, new int[] {'a', 'z'}));
+    }
+
+    private static int[] union(List<int[]> items) {
+
+        List<int[]> ranges = new ArrayList<>();
+
+        for (int[] item : items)
+            for (int i = 0; i < item.length; i += 2)
+                ranges.add(new int[] {item[i], item[i + 1]});
+
+        int[][] sorted = ranges.toArray(new int[ranges.size()][]);
+        Arrays.sort(sorted, new java.util.Comparator<int[]>() {
+            @Override
+            public int compare(int[] range1, int[] range2) {
+                return Integer.compare(range1[0], range2[0]);
+            }
+        });
+
+        int[] result = new int[sorted.length * 2];
+        int length = 0;
+
+        for (int[] range : sorted)
+            if (length > 0 && range[0] <= result[length - 1] + 1)
+                result[length - 1] = Math.max(result[length - 1], range[1]);
+            else {
+                result[length++] = range[0];
+                result[length++] = range[1];
+            }
+
+        return Arrays.copyOf(result, length);
+
+    }
+
+    private static int[] complement(int[] ranges) {
+
+        int[] result = new int[ranges.length + 2];
+        int length = 0;
+        int from = 0;
+
+        for (int i = 0; i < ranges.length; i += 2) {
+
+            if (ranges[i] > from) {
+                result[length++] = from;
+                result[length++] = ranges[i] - 1;
+            }
+
+            from = ranges[i + 1] + 1;
+
+        }
+
+        if (from <= MAX_CHAR) {
+            result[length++] = from;
+            result[length++] = MAX_CHAR;
+        }
+
+        return Arrays.copyOf(result, length);
+
+    }
+
+    private static boolean contains(int[] ranges, char c) {
+
+        for (int i = 0; i < ranges.length; i += 2)
+            if (c < ranges[i])
+                return false;
+            else if (c <= ranges[i + 1])
+                return true;
+
+        return false;
+
+    }
+
+    private static class StateSet {
+
+        final int[] states;
+        final int hashCode;
+
+        StateSet(int[] states) {
+            this.states = states;
+            hashCode = Arrays.hashCode(states);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof StateSet && Arrays.equals(states, ((StateSet) object).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+    private static class DfaState {
+
+        final int[] states;
+        final int accept;
+        final boolean cached;
+        final DfaState[] asciiTransitions;
+        Map<Character, DfaState> transitions;
+
+        DfaState(int[] states, int accept, boolean cached) {
+            this.states = states;
+            this.accept = accept;
+            this.cached = cached;
+            asciiTransitions = new DfaState[128];
+        }
+
+    }
+
+    private int[] kinds;
+    private int[] outs1;
+    private int[] outs2;
+    private int[][] charSets;
+    private int stateCount;
+
+    private final int[] fallbackPatterns;
+    private final Map<StateSet, DfaState> dfaStates;
+    private final DfaState deadState;
+    private final DfaState initialState;
+
+    private int[] closureStack;
+    private boolean[] closureVisited;
+    private int matchLength;
+
+    LexerAutomaton(List<String> patterns, List<Integer> groupCounts) {
+
+        kinds = new int[64];
+        outs1 = new int[64];
+        outs2 = new int[64];
+        charSets = new int[64][];
+
+        List<Integer> starts = new ArrayList<>();
+        List<Integer> fallbackPatterns = new ArrayList<>();
+
+        for (int i = 0; i < patterns.size(); i++) {
+
+            int savedStateCount = stateCount;
+
+            try {
+
+                if (groupCounts.get(i) > 1)
+                    throw new UnsupportedPatternException();
+
+                Node node = new RegexParser(patterns.get(i)).parse();
+                int[] fragment = build(node);
+
+                int accept = addState(ACCEPT, i, -1, null);
+                outs1[fragment[1]] = accept;
+
+                starts.add(fragment[0]);
+
+            } catch (UnsupportedPatternException exception) {
+                stateCount = savedStateCount;
+                fallbackPatterns.add(i);
+            }
+
+        }
+
+        this.fallbackPatterns = new int[fallbackPatterns.size()];
+
+        for (int i = 0; i < this.fallbackPatterns.length; i++)
+            this.fallbackPatterns[i] = fallbackPatterns.get(i);
+
+        closureStack = new int[stateCount * 3 + patterns.size()];
+        closureVisited = new boolean[stateCount];
+
+        dfaStates = new HashMap<>();
+        deadState = new DfaState(new int[0], -1, true);
+
+        int[] initialStates = new int[starts.size()];
+
+        for (int i = 0; i < initialStates.length; i++)
+            initialStates[i] = starts.get(i);
+
+        initialState = getState(closure(initialStates, initialStates.length));
+
+    }
+
+    int[] getFallbackPatterns() {
+        return fallbackPatterns;
+    }
+
+    int getMatchLength() {
+        return matchLength;
+    }
+
+    private int addState(int kind, int out1, int out2, int[] charSet) throws UnsupportedPatternException {
+
+        if (stateCount == MAX_NFA_STATES)
+            throw new UnsupportedPatternException();
+
+        if (stateCount == kinds.length) {
+            kinds = Arrays.copyOf(kinds, stateCount * 2);
+            outs1 = Arrays.copyOf(outs1, stateCount * 2);
+            outs2 = Arrays.copyOf(outs2, stateCount * 2);
+            charSets = Arrays.copyOf(charSets, stateCount * 2);
+        }
+
+        kinds[stateCount] = kind;
+        outs1[stateCount] = out1;
+        outs2[stateCount] = out2;
+        charSets[stateCount] = charSet;
+
+        return stateCount++;
+
+    }
+
+    // Returns {start, end}; the end state is an epsilon state with an unset first output
+    private int[] build(Node node) throws UnsupportedPatternException {
+
+        if (node instanceof CharsNode) {
+
+            int end = addState(EPSILON, -1, -1, null);
+            int start = addState(CHARS, end, -1, ((CharsNode) node).ranges);
+
+            return new int[] {start, end};
+
+        } else if (node instanceof ListNode) {
+
+            ListNode listNode = (ListNode)node;
+
+            if (listNode.alternation && listNode.nodes.size() > 1) {
+
+                int end = addState(EPSILON, -1, -1, null);
+                int start = -1;
+
+                for (Node alternative : listNode.nodes) {
+
+                    int[] fragment = build(alternative);
+                    outs1[fragment[1]] = end;
+
+                    start = start < 0 ? fragment[0] : addState(EPSILON, start, fragment[0], null);
+
+                }
+
+                return new int[] {start, end};
+
+            } else {
+
+                int start = addState(EPSILON, -1, -1, null);
+                int end = start;
+
+                for (Node element : listNode.nodes) {
+                    int[] fragment = build(element);
+                    outs1[end] = fragment[0];
+                    end = fragment[1];
+                }
+
+                return new int[] {start, end};
+
+            }
+
+        } else {
+
+            RepeatNode repeatNode = (RepeatNode)node;
+
+            int start = addState(EPSILON, -1, -1, null);
+            int end = start;
+
+            for (int i = 0; i < repeatNode.min; i++) {
+                int[] fragment = build(repeatNode.node);
+                outs1[end] = fragment[0];
+                end = fragment[1];
+            }
+
+            if (repeatNode.max < 0) {
+
+                int[] fragment = build(repeatNode.node);
+                int loop = addState(EPSILON, fragment[0], -1, null);
+
+                outs1[end] = loop;
+                outs1[fragment[1]] = loop;
+
+                end = addState(EPSILON, -1, -1, null);
+                outs2[loop] = end;
+
+            } else if (repeatNode.max > repeatNode.min) {
+
+                int last = addState(EPSILON, -1, -1, null);
+
+                for (int i = repeatNode.min; i < repeatNode.max; i++) {
+                    int[] fragment = build(repeatNode.node);
+                    int option = addState(EPSILON, fragment[0], last, null);
+                    outs1[end] = option;
+                    end = fragment[1];
+                }
+
+                outs1[end] = last;
+                end = last;
+
+            }
+
+            return new int[] {start, end};
+
+        }
+
+    }
+
+    private int[] closure(int[] states, int count) {
+
+        int stackSize = 0;
+        int resultSize = 0;
+        int[] result = new int[stateCount];
+
+        for (int i = 0; i < count; i++)
+            closureStack[stackSize++] = states[i];
+
+        while (stackSize > 0) {
+
+            int state = closureStack[--stackSize];
+
+            if (state < 0 || closureVisited[state])
+                continue;
+
+            closureVisited[state] = true;
+
+            if (kinds[state] == EPSILON) {
+                closureStack[stackSize++] = outs2[state];
+                closureStack[stackSize++] = outs1[state];
+            } else
+                result[resultSize++] = state;
+
+        }
+
+        Arrays.fill(closureVisited, false);
+
+        result = Arrays.copyOf(result, resultSize);
+        Arrays.sort(result);
+
+        return result;
+
+    }
+
+    private DfaState getState(int[] states) {
+
+        if (states.length == 0)
+            return deadState;
+
+        StateSet key = new StateSet(states);
+        DfaState state = dfaStates.get(key);
+
+        if (state == null) {
+
+            int accept = -1;
+
+            for (int nfaState : states)
+                if (kinds[nfaState] == ACCEPT && (accept < 0 || outs1[nfaState] < accept))
+                    accept = outs1[nfaState];
+
+            state = new DfaState(states, accept, dfaStates.size() < MAX_DFA_STATES);
+
+            if (state.cached)
+                dfaStates.put(key, state);
+
+        }
+
+        return state;
+
+    }
+
+    private DfaState transition(DfaState state, char c) {
+
+        DfaState target = c < 128
+                ? state.asciiTransitions[c]
+                : state.transitions == null ? null : state.transitions.get(c);
+
+        if (target != null)
+            return target;
+
+        int[] targets = new int[state.states.length];
+        int count = 0;
+
+        for (int nfaState : state.states)
+            if (kinds[nfaState] == CHARS && contains(charSets[nfaState], c))
+                targets[count++] = outs1[nfaState];
+
+        target = getState(closure(targets, count));
+
+        if (!state.cached || !target.cached)
+            return target;
+
+        if (c < 128)
+            state.asciiTransitions[c] = target;
+        else {
+
+            if (state.transitions == null)
+                state.transitions = new HashMap<>();
+
+            state.transitions.put(c, target);
+
+        }
+
+        return target;
+
+    }
+
+    /*
+        Finds the longest prefix of the source, starting at the given position, accepted by any pattern and returns
+        the lowest index of the patterns accepting it. Surrogate characters are left to java.util.regex, which
+        matches code points rather than chars.
+    */
+    int match(CharSequence source, int position) {
+
+        DfaState state = initialState;
+        int accept = state.accept;
+
+        matchLength = 0;
+
+        for (int i = position; i < source.length() && state != deadState; i++) {
+
+            char c = source.charAt(i);
+
+            if (Character.isSurrogate(c))
+                return ABORTED;
+
+            state = transition(state, c);
+
+            if (state.accept >= 0) {
+                accept = state.accept;
+                matchLength = i - position + 1;
+            }
+
+        }
+
+        return accept < 0 ? NO_MATCH : accept;
+
+    }
+
+}
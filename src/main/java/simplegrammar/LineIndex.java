@@ -0,0 +1,86 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Arrays;
+
+public final class LineIndex {
+
+    private final CharSequence text;
+    private final int startLine;
+    private final int startPosition;
+    private volatile int[] lineStarts;
+
+    public LineIndex(CharSequence text, int startLine, int startPosition) {
+        this.text = text;
+        this.startLine = startLine;
+        this.startPosition = startPosition;
+    }
+
+    public LineIndex(CharSequence text) {
+        this(text, 1, 1);
+    }
+
+    private int[] getLineStarts() {
+
+        int[] lineStarts = this.lineStarts;
+
+        if (lineStarts == null) {
+
+            lineStarts = new int[16];
+            int lineCount = 1;
+
+            for (int i = 0; i < text.length(); i++)
+                if (text.charAt(i) == '\n') {
+
+                    if (lineCount == lineStarts.length)
+                        lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+
+                    lineStarts[lineCount++] = i + 1;
+
+                }
+
+            lineStarts = Arrays.copyOf(lineStarts, lineCount);
+            this.lineStarts = lineStarts;
+
+        }
+
+        return lineStarts;
+
+    }
+
+    private int getLineIndex(int offset) {
+
+        int index = Arrays.binarySearch(getLineStarts(), offset);
+
+        return index >= 0 ? index : -index - 2;
+
+    }
+
+    public int getLine(int offset) {
+        return startLine + getLineIndex(offset);
+    }
+
+    public int getPosition(int offset) {
+
+        int lineIndex = getLineIndex(offset);
+        int position = offset - getLineStarts()[lineIndex];
+
+        return lineIndex == 0 ? startPosition + position : position + 1;
+
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+/*
+    Tokenizer wrapper which estimates the time spent in the wrapped tokenizer and counts the tokens taken from it.
+    Lexing is lazy, so this is the only way to tell it apart from parsing. Reading the clock costs about as much
+    as a call to a buffered tokenizer, so only every SAMPLE_INTERVAL-th call is timed and the sum is scaled up.
+    The estimate is rough for a single short parse, but unbiased over many of them.
+*/
+class MeteredTokenizer extends Tokenizer {
+
+    private static final int SAMPLE_INTERVAL = 16;
+
+    private final Tokenizer tokens;
+    private long sampledTime;
+    private int callCount;
+    private long tokenCount;
+
+    MeteredTokenizer(Tokenizer tokens) {
+        this.tokens = tokens;
+    }
+
+    long getLexingTime() {
+        return sampledTime * SAMPLE_INTERVAL;
+    }
+
+    long getTokenCount() {
+        return tokenCount;
+    }
+
+    private boolean sample() {
+        return callCount++ % SAMPLE_INTERVAL == 0;
+    }
+
+    @Override
+    public boolean hasNext(int depth) {
+
+        if (!sample())
+            return tokens.hasNext(depth);
+
+        long start = System.nanoTime();
+
+        try {
+            return tokens.hasNext(depth);
+        } finally {
+            sampledTime += System.nanoTime() - start;
+        }
+
+    }
+
+    @Override
+    protected Token doPeek(int depth) {
+
+        if (!sample())
+            return tokens.peek(depth);
+
+        long start = System.nanoTime();
+
+        try {
+            return tokens.peek(depth);
+        } finally {
+            sampledTime += System.nanoTime() - start;
+        }
+
+    }
+
+    @Override
+    protected Token doGet() {
+
+        tokenCount++;
+
+        if (!sample())
+            return tokens.get();
+
+        long start = System.nanoTime();
+
+        try {
+            return tokens.get();
+        } finally {
+            sampledTime += System.nanoTime() - start;
+        }
+
+    }
+
+}
@@ -16,6 +16,7 @@
 package simplegrammar;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Option {
@@ -24,12 +25,22 @@ public class Option {
     private final String ruleName;
     private final boolean output;
     private final List<AbstractOptionElement> elements;
+    private final List<AbstractOptionElement> addedElements;
     
     protected Option(Grammar grammar, String ruleName, boolean output) {
         this.grammar = grammar;
         this.ruleName = ruleName;
         this.output = output;
-        this.elements = new ArrayList<>();
+        addedElements = new ArrayList<>();
+        elements = Collections.unmodifiableList(addedElements);
+    }
+
+    Option(Grammar grammar, String ruleName, boolean output, List<AbstractOptionElement> elements) {
+        this.grammar = grammar;
+        this.ruleName = ruleName;
+        this.output = output;
+        this.elements = elements;
+        addedElements = null;
     }
 
     public String getRuleName() {
@@ -40,49 +51,58 @@ public class Option {
         return output;
     }
     
-    public Option addToken(String name, boolean outputName, String value, boolean outputValue) {
-        elements.add(new OptionToken(name, outputName, value, outputValue));
+    /*
+        Options of a compiled grammar can not be changed. A change of a source option makes its grammar
+        compile again.
+    */
+    private Option add(AbstractOptionElement element) {
+
+        if (addedElements == null)
+            throw new UnsupportedOperationException("Options of a compiled grammar can not be changed!");
+
+        addedElements.add(element);
+
+        if (grammar != null)
+            grammar.changed();
+
         return this;
+
+    }
+
+    public Option addToken(String name, boolean outputName, String value, boolean outputValue) {
+        return add(new OptionToken(name, outputName, value, outputValue));
     }
     
     public Option addToken(String name, boolean outputName, boolean outputValue) {
-        elements.add(new OptionToken(name, outputName, null, outputValue));
-        return this;
+        return add(new OptionToken(name, outputName, null, outputValue));
     }
     
     public Option addToken(String name, String value) {
-        elements.add(new OptionToken(name, false, value, false));
-        return this;
+        return add(new OptionToken(name, false, value, false));
     }
     
     public Option addToken(String name) {
-        elements.add(new OptionToken(name, false, null, false));
-        return this;
+        return add(new OptionToken(name, false, null, false));
     }
     
     public Option addToken() {
-        elements.add(new OptionToken(null, false, null, false));
-        return this;
+        return add(new OptionToken(null, false, null, false));
     }
     
     public Option addToken(boolean outputName, boolean outputValue) {
-        elements.add(new OptionToken(null, outputName, null, outputValue));
-        return this;
+        return add(new OptionToken(null, outputName, null, outputValue));
     }
     
     public Option addRule(String name, boolean output) {
-        elements.add(new OptionRule(name, output));
-        return this;
+        return add(new OptionRule(name, output));
     }
     
     public Option addRule(String name) {
-        elements.add(new OptionRule(name, null));
-        return this;
+        return add(new OptionRule(name, null));
     }
  
     public Option addEmpty() {
-        elements.add(new EmptyElement());
-        return this;
+        return add(new EmptyElement());
     }
 
     public List<AbstractOptionElement> getElements() {
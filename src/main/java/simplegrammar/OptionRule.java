@@ -19,10 +19,16 @@ public class OptionRule extends AbstractOptionElement {
     
     private final String name;
     private final Boolean output;
+    private final int id;
     
     protected OptionRule(String name, Boolean output) {
+        this(name, output, -1);
+    }
+
+    OptionRule(String name, Boolean output, int id) {
         this.name = name;
         this.output = output;
+        this.id = id;
     }
 
     public String getName() {
@@ -33,4 +39,8 @@ public class OptionRule extends AbstractOptionElement {
         return output;
     }
 
+    public int getId() {
+        return id;
+    }
+
 }
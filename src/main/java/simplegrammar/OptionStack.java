@@ -15,8 +15,100 @@
 */
 package simplegrammar;
 
-import java.util.Stack;
+import java.util.NoSuchElementException;
+
+public final class OptionStack {
+
+    private final Option option;
+    private final OptionStack tail;
+    private final int size;
+
+    public OptionStack() {
+        option = null;
+        tail = null;
+        size = 0;
+    }
+
+    private OptionStack(Option option, OptionStack tail) {
+        this.option = option;
+        this.tail = tail;
+        size = tail.size + 1;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Option peek() {
+
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return option;
+
+    }
+
+    public OptionStack pop() {
+
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return tail;
+
+    }
+
+    public OptionStack push(Option option) {
+        return new OptionStack(option, this);
+    }
+
+    public OptionStack pushAll(Option[] options) {
+
+        OptionStack optionStack = this;
+
+        for (int i = options.length - 1; i >= 0; i--)
+            optionStack = optionStack.push(options[i]);
+
+        return optionStack;
+
+    }
+
+    boolean sameAs(OptionStack other) {
+
+        if (size != other.size)
+            return false;
+
+        OptionStack optionStack = this;
+
+        while (optionStack != other) {
+
+            if (optionStack.option != other.option)
+                return false;
+
+            optionStack = optionStack.tail;
+            other = other.tail;
+
+        }
+
+        return true;
+
+    }
+
+    public Option[] toArray() {
+
+        Option[] options = new Option[size];
+        OptionStack optionStack = this;
+
+        for (int i = size - 1; i >= 0; i--) {
+            options[i] = optionStack.option;
+            optionStack = optionStack.tail;
+        }
+
+        return options;
+
+    }
 
-public class OptionStack extends Stack<Option> {
-    
 }
@@ -23,12 +23,29 @@ public class OptionToken extends AbstractOptionElement {
     private final String value;
     private final boolean outputName;
     private final boolean outputValue;
+
+    private final SymbolTable symbols;
+    private final int nameId;
+    private final int valueId;
     
     protected OptionToken(String name, boolean outputName, String value, boolean outputValue) {
         this.name = name;
         this.value = value;
         this.outputName = outputName;
         this.outputValue = outputValue;
+        symbols = null;
+        nameId = -1;
+        valueId = -1;
+    }
+
+    OptionToken(String name, boolean outputName, String value, boolean outputValue, SymbolTable symbols) {
+        this.name = name;
+        this.value = value;
+        this.outputName = outputName;
+        this.outputValue = outputValue;
+        this.symbols = symbols;
+        nameId = symbols.getTokenNameId(name);
+        valueId = symbols.getValueId(value);
     }
 
     public String getName() {
@@ -47,6 +64,14 @@ public class OptionToken extends AbstractOptionElement {
         return outputValue;
     }
     
+    public int getNameId() {
+        return nameId;
+    }
+
+    public int getValueId() {
+        return valueId;
+    }
+
     public boolean matches(Token token) {
         return match(token) != Match.NONE;
     }
@@ -57,10 +82,19 @@ public class OptionToken extends AbstractOptionElement {
             return Match.NONE;
         else if (name == null)
             return Match.ANY;
-        else if (name.equals(token.getName())) {
+        else if (symbols != null && token.getSymbols() == symbols) {
+            if (nameId != token.getNameId())
+                return Match.NONE;
+            else if (value == null)
+                return Match.NAME;
+            else if (valueId == token.getValueId())
+                return Match.VALUE;
+            else
+                return Match.NONE;
+        } else if (name.equals(token.getName())) {
             if (value == null)
                 return Match.NAME;
-            else if (value.equals(token.getValue()))
+            else if (token.valueEquals(value))
                 return Match.VALUE;
             else
                 return Match.NONE;
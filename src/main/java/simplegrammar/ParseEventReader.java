@@ -0,0 +1,170 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class ParseEventReader {
+
+    public static enum EventType {START_RULE, TOKEN, END_RULE};
+
+    private class EventQueue implements ParseListener {
+
+        private EventType[] types = new EventType[8];
+        private String[] ruleNames = new String[8];
+        private Token[] tokens = new Token[8];
+        private boolean[] outputNames = new boolean[8];
+        private boolean[] outputValues = new boolean[8];
+        private int head;
+        private int size;
+
+        private int add(EventType type) {
+
+            if (size == types.length) {
+
+                int length = types.length;
+
+                types = grow(types, length);
+                ruleNames = grow(ruleNames, length);
+                tokens = grow(tokens, length);
+
+                boolean[] newOutputNames = new boolean[length * 2];
+                boolean[] newOutputValues = new boolean[length * 2];
+
+                for (int i = 0; i < size; i++) {
+                    newOutputNames[i] = outputNames[(head + i) % length];
+                    newOutputValues[i] = outputValues[(head + i) % length];
+                }
+
+                outputNames = newOutputNames;
+                outputValues = newOutputValues;
+                head = 0;
+
+            }
+
+            int index = (head + size++) % types.length;
+            types[index] = type;
+
+            return index;
+
+        }
+
+        private <T> T[] grow(T[] array, int length) {
+
+            T[] newArray = Arrays.copyOf(array, length * 2);
+
+            for (int i = 0; i < size; i++)
+                newArray[i] = array[(head + i) % length];
+
+            return newArray;
+
+        }
+
+        @Override
+        public void enterRule(String ruleName) {
+            int index = add(EventType.START_RULE);
+            ruleNames[index] = ruleName;
+        }
+
+        @Override
+        public void exitRule(String ruleName) {
+            int index = add(EventType.END_RULE);
+            ruleNames[index] = ruleName;
+        }
+
+        @Override
+        public void token(Token token, boolean outputName, boolean outputValue) {
+            int index = add(EventType.TOKEN);
+            tokens[index] = token;
+            outputNames[index] = outputName;
+            outputValues[index] = outputValue;
+        }
+
+        private void poll() {
+
+            eventType = types[head];
+            ruleName = ruleNames[head];
+            token = tokens[head];
+            outputName = outputNames[head];
+            outputValue = outputValues[head];
+
+            ruleNames[head] = null;
+            tokens[head] = null;
+
+            head = (head + 1) % types.length;
+            size--;
+
+        }
+
+    }
+
+    private final EventQueue eventQueue;
+    private final ParserState parserState;
+
+    private EventType eventType;
+    private String ruleName;
+    private Token token;
+    private boolean outputName;
+    private boolean outputValue;
+
+    ParseEventReader(CompiledGrammar grammar, Tokenizer tokens, String rootRuleName) {
+        eventQueue = new EventQueue();
+        parserState = new ParserState(grammar, tokens, rootRuleName, eventQueue, null);
+    }
+
+    public boolean hasNext() throws ParseException {
+
+        while (eventQueue.size == 0)
+            if (!parserState.step())
+                return false;
+
+        return true;
+
+    }
+
+    public EventType next() throws ParseException {
+
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        eventQueue.poll();
+
+        return eventType;
+
+    }
+
+    public EventType getEventType() {
+        return eventType;
+    }
+
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    public Token getToken() {
+        return token;
+    }
+
+    public boolean isOutputName() {
+        return outputName;
+    }
+
+    public boolean isOutputValue() {
+        return outputValue;
+    }
+
+}
@@ -0,0 +1,29 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+/*
+    Receives cost events of a parse. Tokens are attributed to the innermost output rule, expansions and predictions
+    to the rule being expanded or predicted. Peek depth is 0 for predictions answered by the prediction cache and the number
+    of configurations is 0 for every prediction answered without a lookahead search.
+*/
+public interface ParseObserver {
+
+    void prediction(String ruleName, int peekDepth, int configurationCount);
+    void expansion(String ruleName, int elementCount, boolean output);
+    void token(String ruleName, Token token, int nodeCount);
+
+}
@@ -0,0 +1,57 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Collections;
+import java.util.List;
+
+public final class ParseResult {
+
+    private final SyntaxTreeNode syntaxTree;
+    private final List<ParseException> errors;
+
+    ParseResult(SyntaxTreeNode syntaxTree) {
+        this.syntaxTree = syntaxTree;
+        errors = Collections.emptyList();
+    }
+
+    ParseResult(ParseException exception) {
+        syntaxTree = null;
+        errors = Collections.singletonList(exception);
+    }
+
+    ParseResult(SyntaxTreeNode syntaxTree, List<ParseException> errors) {
+        this.syntaxTree = syntaxTree;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    public SyntaxTreeNode getSyntaxTree() {
+        return syntaxTree;
+    }
+
+    public ParseException getException() {
+        return errors.isEmpty() ? null : errors.get(0);
+    }
+
+    public List<ParseException> getErrors() {
+        return errors;
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Observer which sums up the cost of one or more parses, in total and per rule. Not thread safe, use one
+    instance per parsing thread and merge afterwards if needed.
+*/
+public class ParseStatistics implements ParseObserver {
+
+    public static class RuleStatistics {
+
+        private final String ruleName;
+        private long tokenCount;
+        private long predictionCount;
+        private long cachedPredictionCount;
+        private long peekDepthSum;
+        private int maxPeekDepth;
+        private long configurationCount;
+        private long expansionCount;
+        private long elementCount;
+        private long nodeCount;
+
+        RuleStatistics(String ruleName) {
+            this.ruleName = ruleName;
+        }
+
+        public String getRuleName() {
+            return ruleName;
+        }
+
+        public long getTokenCount() {
+            return tokenCount;
+        }
+
+        public long getPredictionCount() {
+            return predictionCount;
+        }
+
+        public long getCachedPredictionCount() {
+            return cachedPredictionCount;
+        }
+
+        public int getMaxPeekDepth() {
+            return maxPeekDepth;
+        }
+
+        /*
+            Mean peek depth of the predictions which were not answered by the cache.
+        */
+        public double getMeanPeekDepth() {
+            long count = predictionCount - cachedPredictionCount;
+            return count == 0 ? 0 : (double) peekDepthSum / count;
+        }
+
+        public long getConfigurationCount() {
+            return configurationCount;
+        }
+
+        public long getExpansionCount() {
+            return expansionCount;
+        }
+
+        /*
+            Elements pushed onto the element stack. The stacks are persistent, so this is what copying
+            them costs.
+        */
+        public long getElementCount() {
+            return elementCount;
+        }
+
+        public long getNodeCount() {
+            return nodeCount;
+        }
+
+        void add(RuleStatistics other) {
+            tokenCount += other.tokenCount;
+            predictionCount += other.predictionCount;
+            cachedPredictionCount += other.cachedPredictionCount;
+            peekDepthSum += other.peekDepthSum;
+            maxPeekDepth = Math.max(maxPeekDepth, other.maxPeekDepth);
+            configurationCount += other.configurationCount;
+            expansionCount += other.expansionCount;
+            elementCount += other.elementCount;
+            nodeCount += other.nodeCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: tokens %d, predictions %d (cached %d), peek depth max %d mean %.2f, configurations %d, expansions %d, elements %d, nodes %d",
+                    ruleName == null ? "total" : ruleName,
+                    tokenCount,
+                    predictionCount,
+                    cachedPredictionCount,
+                    maxPeekDepth,
+                    getMeanPeekDepth(),
+                    configurationCount,
+                    expansionCount,
+                    elementCount,
+                    nodeCount
+            );
+        }
+
+    }
+
+    private final Map<String, RuleStatistics> ruleStatistics;
+
+    public ParseStatistics() {
+        ruleStatistics = new LinkedHashMap<>();
+    }
+
+    private RuleStatistics get(String ruleName) {
+
+        RuleStatistics statistics = ruleStatistics.get(ruleName);
+
+        if (statistics == null) {
+            statistics = new RuleStatistics(ruleName);
+            ruleStatistics.put(ruleName, statistics);
+        }
+
+        return statistics;
+
+    }
+
+    @Override
+    public void prediction(String ruleName, int peekDepth, int configurationCount) {
+
+        RuleStatistics statistics = get(ruleName);
+
+        statistics.predictionCount++;
+
+        if (peekDepth == 0)
+            statistics.cachedPredictionCount++;
+
+        statistics.peekDepthSum += peekDepth;
+        statistics.maxPeekDepth = Math.max(statistics.maxPeekDepth, peekDepth);
+        statistics.configurationCount += configurationCount;
+
+    }
+
+    @Override
+    public void expansion(String ruleName, int elementCount, boolean output) {
+
+        RuleStatistics statistics = get(ruleName);
+
+        statistics.expansionCount++;
+        statistics.elementCount += elementCount;
+
+        if (output)
+            statistics.nodeCount++;
+
+    }
+
+    @Override
+    public void token(String ruleName, Token token, int nodeCount) {
+
+        RuleStatistics statistics = get(ruleName);
+
+        statistics.tokenCount++;
+        statistics.nodeCount += nodeCount;
+
+    }
+
+    public RuleStatistics getRuleStatistics(String ruleName) {
+        return ruleStatistics.get(ruleName);
+    }
+
+    public Collection<RuleStatistics> getRuleStatistics() {
+        return Collections.unmodifiableCollection(ruleStatistics.values());
+    }
+
+    public RuleStatistics getTotal() {
+
+        RuleStatistics total = new RuleStatistics(null);
+
+        for (RuleStatistics statistics : ruleStatistics.values())
+            total.add(statistics);
+
+        return total;
+
+    }
+
+    /*
+        Rules ordered by the number of configurations explored, then by the number of expansions.
+    */
+    @Override
+    public String toString() {
+
+        List<RuleStatistics> rules = new ArrayList<>(ruleStatistics.values());
+
+        Collections.sort(rules, new Comparator<RuleStatistics>() {
+            @Override
+            public int compare(RuleStatistics statistics1, RuleStatistics statistics2) {
+                if (statistics1.configurationCount != statistics2.configurationCount)
+                    return Long.compare(statistics2.configurationCount, statistics1.configurationCount);
+                else
+                    return Long.compare(statistics2.expansionCount, statistics1.expansionCount);
+            }
+        });
+
+        StringBuilder result = new StringBuilder(getTotal().toString());
+
+        for (RuleStatistics statistics : rules)
+            result.append('\n').append(statistics);
+
+        return result.toString();
+
+    }
+
+}
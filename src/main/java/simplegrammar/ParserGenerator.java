@@ -0,0 +1,560 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Writes the source of a parser specialized to a compiled grammar. The parser extends GeneratedParser, has a
+    method per rule and per option, checks tokens inline and turns the LL(1) prediction tables into switches.
+    Decisions the tables leave open are made by the interpreter at run time, so the parser builds the same
+    trees and fails on the same tokens as CompiledGrammar.parse. Lazy rules are parsed right away.
+*/
+public final class ParserGenerator {
+
+    /*
+        Version of the generated code, to be increased with every change of the output for the same grammar, so
+        that build tools know when to generate parsers again.
+    */
+    public static final int VERSION = 1;
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int LINE_SIZE = 32;
+    private static final int MAX_POSITION = 0xFFFF;
+    private static final int MAX_OPTION_ID = 0x7FFF;
+
+    private final CompiledGrammar grammar;
+    private final SymbolTable symbols;
+    private final Map<String, String> chains;
+    private final Map<Integer, List<Option>> emptyChains;
+
+    private StringBuilder source;
+
+    public ParserGenerator(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        symbols = grammar.getSymbols();
+        chains = new LinkedHashMap<>();
+        emptyChains = new HashMap<>();
+    }
+
+    public String generate(String packageName, String className) throws GrammarException {
+
+        if (grammar.getOptionCount() > MAX_OPTION_ID + 1)
+            throw new GrammarException("The grammar has too many options!");
+
+        chains.clear();
+
+        StringBuilder methods = source = new StringBuilder();
+
+        line(1, "@Override");
+        line(1, "protected boolean rule(int ruleId, SyntaxTreeNode parent, int output, int site) throws ParseException {");
+        line(2, "switch (ruleId) {");
+
+        for (int i = 0; i < symbols.getRuleCount(); i++) {
+            line(3, "case " + i + ":");
+            line(4, "return rule" + i + "(parent, output, site);");
+        }
+
+        line(3, "default:");
+        line(4, "throw new IllegalArgumentException();");
+        line(2, "}");
+        line(1, "}");
+
+        for (int i = 0; i < symbols.getRuleCount(); i++)
+            writeRule(i);
+
+        source = new StringBuilder();
+
+        if (packageName != null && !packageName.isEmpty()) {
+            line(0, "package " + packageName + ";");
+            line(0, "");
+        }
+
+        line(0, "import simplegrammar.CompiledGrammar;");
+        line(0, "import simplegrammar.GeneratedParser;");
+        line(0, "import simplegrammar.GrammarException;");
+        line(0, "import simplegrammar.ParseException;");
+        line(0, "import simplegrammar.SyntaxTreeNode;");
+        line(0, "import simplegrammar.Token;");
+        line(0, "import simplegrammar.Tokenizer;");
+        line(0, "");
+        line(0, "/*");
+        line(1, "Generated by simplegrammar.ParserGenerator, do not edit.");
+        line(0, "*/");
+        line(0, "public final class " + className + " extends GeneratedParser {");
+        line(0, "");
+        writeGrammar();
+
+        for (Map.Entry<String, String> chain : chains.entrySet())
+            line(1, "private static final int[] " + chain.getValue() + " = {" + chain.getKey() + "};");
+
+        if (!chains.isEmpty())
+            line(0, "");
+
+        line(1, "private " + className + "(Tokenizer tokens) {");
+        line(2, "super(GRAMMAR, tokens);");
+        line(1, "}");
+        line(0, "");
+        line(1, "public static SyntaxTreeNode parse(Tokenizer tokens) throws GrammarException, ParseException {");
+        line(2, "return parse(tokens, " + literal(grammar.getRootRuleName()) + ");");
+        line(1, "}");
+        line(0, "");
+        line(1, "public static SyntaxTreeNode parse(Tokenizer tokens, String rootRuleName) throws GrammarException, ParseException {");
+        line(2, "return new " + className + "(tokens).run(rootRuleName);");
+        line(1, "}");
+        line(0, "");
+
+        source.append(methods);
+        line(0, "}");
+
+        return source.toString();
+
+    }
+
+    private void line(int indent, String text) {
+
+        if (!text.isEmpty())
+            for (int i = 0; i < indent; i++)
+                source.append("    ");
+
+        source.append(text).append('\n');
+
+    }
+
+    private static String literal(String value) {
+
+        StringBuilder literal = new StringBuilder("\"");
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\')
+                literal.append('\\').append(c);
+            else if (c >= ' ' && c < 0x7F)
+                literal.append(c);
+            else
+                literal.append(String.format("\\u%04x", (int) c));
+
+        }
+
+        return literal.append('"').toString();
+
+    }
+
+    /*
+        The saved grammar goes into string constants, a character per byte. Chunks are passed separately,
+        as a single constant may not take more than 64KB in a class file.
+    */
+    private void writeGrammar() {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try {
+            grammar.save(output);
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+
+        byte[] bytes = output.toByteArray();
+
+        line(1, "public static final CompiledGrammar GRAMMAR = loadGrammar(");
+
+        for (int i = 0; i < bytes.length; i += LINE_SIZE) {
+
+            StringBuilder literal = new StringBuilder("\"");
+
+            for (int j = i; j < Math.min(i + LINE_SIZE, bytes.length); j++) {
+
+                int b = bytes[j] & 0xFF;
+
+                if (b == '"' || b == '\\')
+                    literal.append('\\').append((char) b);
+                else if (b >= ' ' && b < 0x7F)
+                    literal.append((char) b);
+                else
+                    literal.append(String.format("\\%03o", b));
+
+            }
+
+            literal.append('"');
+
+            if (i + LINE_SIZE < bytes.length)
+                literal.append((i + LINE_SIZE) % CHUNK_SIZE == 0 ? "," : " +");
+
+            line(3, literal.toString());
+
+        }
+
+        line(1, ");");
+        line(0, "");
+
+    }
+
+    private void writeRule(int ruleId) throws GrammarException {
+
+        Option[] options = grammar.getRuleOptions(ruleId);
+        String ruleName = literal(symbols.getRuleName(ruleId));
+        PredictionTable predictionTable = grammar.getPredictionTable(ruleId);
+
+        line(0, "");
+        line(1, "/* " + symbols.getRuleName(ruleId).replace("*/", "* /") + " */");
+        line(1, "private boolean rule" + ruleId + "(SyntaxTreeNode parent, int output, int site) throws ParseException {");
+        line(0, "");
+
+        if (predictionTable == null)
+            line(2, "switch (hasPending() ? nextPending() : predict(" + ruleId + ", site)) {");
+        else
+            line(2, "switch (hasPending() ? nextPending() : predict" + ruleId + "(site)) {");
+
+        for (Option option : options) {
+
+            int optionId = grammar.getOptionId(option);
+
+            line(3, "case " + optionId + ":");
+            line(4, "return option" + optionId + "(output " + (option.isOutput() ? "!= OUTPUT_FALSE" : "== OUTPUT_TRUE") + " ? parent.addChildNode(" + ruleName + ") : parent);");
+
+        }
+
+        line(3, "default:");
+        line(4, "throw new IllegalStateException();");
+        line(2, "}");
+        line(0, "");
+        line(1, "}");
+
+        if (predictionTable != null)
+            writePrediction(ruleId, predictionTable);
+
+        for (Option option : options)
+            writeOption(option);
+
+    }
+
+    private Token createToken(int nameId, int valueId) {
+
+        Token token = new Token(nameId < 0 ? null : symbols.getTokenName(nameId));
+        token.setSymbols(symbols, nameId, valueId);
+
+        return token;
+
+    }
+
+    /*
+        Options the rule expands to when it derives nothing, in the order the interpreter would expand them.
+        Null if the rule can not derive nothing, or can do that in more than one way.
+    */
+    private List<Option> getEmptyChain(int ruleId, Set<Integer> visitedRules) {
+
+        if (emptyChains.containsKey(ruleId))
+            return emptyChains.get(ruleId);
+        else if (!visitedRules.add(ruleId))
+            return null;
+
+        List<Option> emptyChain = null;
+        int nullableCount = 0;
+
+        for (Option option : grammar.getRuleOptions(ruleId)) {
+
+            List<Option> chain = new ArrayList<>();
+            chain.add(option);
+
+            boolean nullable = true;
+
+            for (AbstractOptionElement element : option.getElements())
+                if (element instanceof OptionToken) {
+                    nullable = false;
+                    break;
+                } else if (element instanceof OptionRule) {
+
+                    int elementRuleId = ((OptionRule) element).getId();
+
+                    if (!grammar.isNullableRule(elementRuleId)) {
+                        nullable = false;
+                        break;
+                    }
+
+                    List<Option> elementChain = getEmptyChain(elementRuleId, visitedRules);
+
+                    if (elementChain == null) {
+                        nullableCount = -1;
+                        break;
+                    }
+
+                    chain.addAll(elementChain);
+
+                }
+
+            if (nullableCount < 0)
+                break;
+            else if (nullable) {
+                emptyChain = chain;
+                nullableCount++;
+            }
+
+        }
+
+        if (nullableCount != 1)
+            emptyChain = null;
+
+        visitedRules.remove(ruleId);
+        emptyChains.put(ruleId, emptyChain);
+
+        return emptyChain;
+
+    }
+
+    /*
+        Returns the statement that completes the prediction for the token. When the table leaves the token
+        to the dynamic search only because the rule may derive nothing, the search can not find anything but
+        the single way of the rule to derive nothing, if there is one, and only if the token may follow.
+    */
+    private String getPrediction(int ruleId, PredictionTable predictionTable, Token token) {
+
+        Option[] prediction = predictionTable.predict(token);
+
+        if (prediction == null && predictionTable.passesThrough(token)) {
+
+            List<Option> emptyChain = getEmptyChain(ruleId, new HashSet<Integer>());
+
+            if (!predictionTable.mayFollow(token))
+                return "throw unexpected(token);";
+            else if (emptyChain != null)
+                return "return expandEmpty(" + getChain(emptyChain.toArray(new Option[emptyChain.size()])) + ", token);";
+
+        }
+
+        if (prediction == null)
+            return "return predict(" + ruleId + ", site);";
+        else if (prediction == PredictionTable.NO_MATCH)
+            return "throw unexpected(token);";
+        else if (prediction.length == 1)
+            return "return " + grammar.getOptionId(prediction[0]) + ";";
+        else
+            return "return expand(" + getChain(prediction) + ");";
+
+    }
+
+    private String getChain(Option[] prediction) {
+
+        int[] optionIds = new int[prediction.length];
+
+        for (int i = 0; i < prediction.length; i++)
+            optionIds[i] = grammar.getOptionId(prediction[i]);
+
+        String key = Arrays.toString(optionIds);
+        key = key.substring(1, key.length() - 1);
+
+        String chain = chains.get(key);
+
+        if (chain == null) {
+            chain = "CHAIN" + chains.size();
+            chains.put(key, chain);
+        }
+
+        return chain;
+
+    }
+
+    /*
+        Switches over the token name and value, with a case for every name and value the table or the follow
+        set of the rule tells apart. Cases which end up the same as the default are left out.
+    */
+    private void writePrediction(int ruleId, PredictionTable predictionTable) {
+
+        String endPrediction = getPrediction(ruleId, predictionTable, new TokenStreamEnd());
+        String anyPrediction = getPrediction(ruleId, predictionTable, createToken(-1, -1));
+
+        line(0, "");
+        line(1, "private int predict" + ruleId + "(int site) throws ParseException {");
+        line(0, "");
+        line(2, "Token token = peek();");
+        line(0, "");
+
+        if (!endPrediction.equals(anyPrediction)) {
+            line(2, "if (isEnd(token))");
+            line(3, endPrediction);
+            line(0, "");
+        }
+
+        Map<String, StringBuilder> nameCases = new LinkedHashMap<>();
+
+        for (int nameId = 0; nameId < symbols.getTokenNameCount(); nameId++) {
+
+            String namePrediction = getPrediction(ruleId, predictionTable, createToken(nameId, -1));
+            BitSet valueIds = predictionTable.getValueIds(nameId);
+            Map<String, StringBuilder> valueCases = new LinkedHashMap<>();
+
+            for (int valueId = valueIds.nextSetBit(0); valueId >= 0; valueId = valueIds.nextSetBit(valueId + 1)) {
+
+                String valuePrediction = getPrediction(ruleId, predictionTable, createToken(nameId, valueId));
+
+                if (!valuePrediction.equals(namePrediction))
+                    addCase(valueCases, valuePrediction, valueId, 5);
+
+            }
+
+            if (valueCases.isEmpty()) {
+
+                if (!namePrediction.equals(anyPrediction))
+                    addCase(nameCases, namePrediction, nameId, 3);
+
+            } else {
+
+                StringBuilder nameCase = new StringBuilder();
+                String indent = "                ";
+
+                nameCase.append(indent).append("switch (token.getValueId()) {\n");
+
+                for (Map.Entry<String, StringBuilder> valueCase : valueCases.entrySet())
+                    nameCase.append(valueCase.getValue())
+                            .append(indent).append("        ").append(valueCase.getKey()).append('\n');
+
+                nameCase.append(indent).append("}\n")
+                        .append(indent).append(namePrediction);
+
+                addCase(nameCases, nameCase.toString(), nameId, 3);
+
+            }
+
+        }
+
+        if (!nameCases.isEmpty()) {
+
+            line(2, "switch (token.getNameId()) {");
+
+            for (Map.Entry<String, StringBuilder> nameCase : nameCases.entrySet()) {
+                source.append(nameCase.getValue());
+                line(4, nameCase.getKey().trim());
+            }
+
+            line(2, "}");
+            line(0, "");
+
+        }
+
+        line(2, anyPrediction);
+        line(0, "");
+        line(1, "}");
+
+    }
+
+    /*
+        Cases with the same code share it under several labels.
+    */
+    private static void addCase(Map<String, StringBuilder> cases, String code, int label, int indent) {
+
+        StringBuilder labels = cases.get(code);
+
+        if (labels == null) {
+            labels = new StringBuilder();
+            cases.put(code, labels);
+        }
+
+        for (int i = 0; i < indent; i++)
+            labels.append("    ");
+
+        labels.append("case ").append(label).append(":\n");
+
+    }
+
+    private void writeOption(Option option) throws GrammarException {
+
+        int optionId = grammar.getOptionId(option);
+        List<AbstractOptionElement> elements = option.getElements();
+
+        if (elements.size() > MAX_POSITION)
+            throw new GrammarException("Option of rule \"" + option.getRuleName() + "\" has too many elements!");
+
+        line(0, "");
+        line(1, "private boolean option" + optionId + "(SyntaxTreeNode node) throws ParseException {");
+        line(0, "");
+
+        boolean declared = false;
+
+        for (int position = 0; position < elements.size(); position++) {
+
+            AbstractOptionElement element = elements.get(position);
+
+            if (element instanceof OptionToken) {
+
+                OptionToken token = (OptionToken) element;
+
+                line(2, (declared ? "" : "Token ") + "token = peek();");
+                line(0, "");
+                declared = true;
+
+                if (token.getName() == null)
+                    line(2, "if (isEnd(token))");
+                else if (token.getValue() == null)
+                    line(2, "if (token.getNameId() != " + token.getNameId() + ")");
+                else
+                    line(2, "if (token.getNameId() != " + token.getNameId() + " || token.getValueId() != " + token.getValueId() + ")");
+
+                line(3, "throw unexpected(token);");
+                line(0, "");
+                line(2, "next();");
+
+                if (token.isOutputName() && token.isOutputValue())
+                    line(2, "node.addChildNode(token.getName()).addChildNode(token.getValue());");
+                else if (token.isOutputName())
+                    line(2, "node.addChildNode(token.getName());");
+                else if (token.isOutputValue())
+                    line(2, "node.addChildNode(token.getValue());");
+
+                line(0, "");
+
+            } else if (element instanceof OptionRule) {
+
+                OptionRule rule = (OptionRule) element;
+                String output = rule.getOutput() == null ? "OUTPUT_DEFAULT" : rule.getOutput() ? "OUTPUT_TRUE" : "OUTPUT_FALSE";
+                String site = optionId + " << 16 | " + position;
+
+                if (position == elements.size() - 1) {
+                    line(2, "return tailCall(" + rule.getId() + ", node, " + output + ", " + site + ");");
+                    line(0, "");
+                    line(1, "}");
+                    return;
+                }
+
+                line(2, "pushFrame(" + optionId + ", " + (position + 1) + ");");
+                line(0, "");
+                line(2, "if (rule" + rule.getId() + "(node, " + output + ", " + site + "))");
+                line(3, "call();");
+                line(0, "");
+                line(2, "popFrame();");
+                line(0, "");
+
+            }
+
+        }
+
+        line(2, "return false;");
+        line(0, "");
+        line(1, "}");
+
+    }
+
+}
@@ -0,0 +1,321 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import simplegrammar.OptionToken.Match;
+
+/*
+    State of a single parse, advanced one element at a time so that the parse can be suspended between steps.
+*/
+class ParserState {
+
+    static final String ERROR_RULE_NAME = "#error";
+
+    private final CompiledGrammar grammar;
+    private final SymbolTable symbols;
+    private final Tokenizer tokens;
+    private final ParseListener listener;
+    private final ParseObserver observer;
+    private final RuleFrameStack ruleFrameStack;
+    private final List<ParseException> errors;
+
+    private ElementStack elementStack;
+    private OptionStack expansionStack;
+    private boolean finished;
+    private TreeBuilder lazyTreeBuilder;
+
+    ParserState(CompiledGrammar grammar, Tokenizer tokens, String rootRuleName, ParseListener listener, ParseObserver observer) {
+        this(grammar, tokens, rootRuleName, listener, observer, null);
+    }
+
+    /*
+        With an error list given, unexpected tokens are recorded there and the parser resynchronizes instead
+        of failing.
+    */
+    ParserState(
+            CompiledGrammar grammar,
+            Tokenizer tokens,
+            String rootRuleName,
+            ParseListener listener,
+            ParseObserver observer,
+            List<ParseException> errors
+    ) {
+
+        this.grammar = grammar;
+        this.tokens = tokens;
+        this.listener = listener;
+        this.observer = observer;
+        this.errors = errors;
+
+        symbols = grammar.getSymbols();
+
+        ruleFrameStack = new RuleFrameStack();
+        ruleFrameStack.enter(rootRuleName, 1, listener);
+
+        elementStack = new ElementStack().push(new OptionRule(rootRuleName, false, symbols.getRuleId(rootRuleName)));
+        expansionStack = new OptionStack();
+
+    }
+
+    ParserState(
+            CompiledGrammar grammar,
+            Tokenizer tokens,
+            ParseListener listener,
+            ElementStack elementStack,
+            OptionStack expansionStack,
+            RuleFrameStack ruleFrameStack
+    ) {
+
+        this.grammar = grammar;
+        this.tokens = tokens;
+        this.listener = listener;
+        this.elementStack = elementStack;
+        this.expansionStack = expansionStack;
+        this.ruleFrameStack = ruleFrameStack;
+
+        observer = null;
+        errors = null;
+        symbols = grammar.getSymbols();
+
+    }
+
+    ElementStack getElementStack() {
+        return elementStack;
+    }
+
+    OptionStack getExpansionStack() {
+        return expansionStack;
+    }
+
+    RuleFrameStack getRuleFrameStack() {
+        return ruleFrameStack;
+    }
+
+    /*
+        Makes the parser skip lazy rules, leaving placeholders in the tree being built by the given builder.
+        The builder must be the listener of this parse.
+    */
+    void skipLazyRules(TreeBuilder treeBuilder) {
+        lazyTreeBuilder = treeBuilder;
+    }
+
+    boolean step() throws ParseException {
+        try {
+            return doStep();
+        } catch (TokenizerException exception) {
+            if (exception.getCause() instanceof ParseException)
+                throw (ParseException) exception.getCause();
+            else
+                throw exception;
+        }
+    }
+
+    private boolean doStep() throws ParseException {
+
+        if (finished)
+            return false;
+
+        if (elementStack.isEmpty()) {
+
+            finished = true;
+
+            if (!(tokens.get() instanceof TokenStreamEnd)) {
+
+                UnexpectedTokenException exception = new UnexpectedTokenException(tokens.peek(1));
+
+                if (errors == null)
+                    throw exception;
+
+                errors.add(exception);
+
+                while (tokens.hasNext())
+                    tokens.get();
+
+            }
+
+            return false;
+
+        }
+
+        try {
+            expand();
+        } catch (UnexpectedTokenException exception) {
+
+            if (errors == null)
+                throw exception;
+
+            errors.add(exception);
+            recover();
+
+        }
+
+        return true;
+
+    }
+
+    private void expand() throws ParseException {
+
+        AbstractOptionElement element = elementStack.peek();
+
+        if (element instanceof EmptyElement) {
+
+            elementStack = elementStack.pop();
+            ruleFrameStack.complete(listener);
+
+        } else if (element instanceof OptionToken) {
+
+            Token token = symbols.stamp(tokens.peek(1));
+
+            OptionToken optionToken = (OptionToken)element;
+
+            if (!optionToken.matches(token))
+                throw new UnexpectedTokenException(token);
+
+            if (observer != null)
+                observer.token(
+                        ruleFrameStack.getRuleName(),
+                        token,
+                        (optionToken.isOutputName() ? 1 : 0) + (optionToken.isOutputValue() ? 1 : 0)
+                );
+
+            listener.token(tokens.get(), optionToken.isOutputName(), optionToken.isOutputValue());
+
+            elementStack = elementStack.pop();
+            ruleFrameStack.complete(listener);
+
+        } else if (element instanceof OptionRule) {
+
+            OptionRule optionRule = (OptionRule)element;
+
+            if (lazyTreeBuilder != null && skipLazyRule(optionRule))
+                return;
+
+            if (!expansionStack.isEmpty()) {
+
+                Option option = expansionStack.peek();
+                expansionStack = expansionStack.pop();
+
+                boolean output = optionRule.getOutput() == null ? option.isOutput() : optionRule.getOutput();
+
+                if (observer != null)
+                    observer.expansion(optionRule.getName(), option.getElementCount(), output);
+
+                elementStack = elementStack.pop().pushOption(option);
+                ruleFrameStack.enter(output ? optionRule.getName() : null, option.getElementCount(), listener);
+
+            } else
+                expansionStack = grammar.predict(elementStack, tokens, observer);
+
+        }
+
+    }
+
+    /*
+        Skips the extent of a lazy rule by counting its opening and closing tokens. Any expansions predicted
+        beyond this point are dropped as well, they will be predicted again from the same state.
+    */
+    private boolean skipLazyRule(OptionRule optionRule) throws ParseException {
+
+        LazyRule lazyRule = grammar.getLazyRule(optionRule.getId());
+
+        if (lazyRule == null || !(optionRule.getOutput() == null ? lazyRule.isOutput() : optionRule.getOutput()))
+            return false;
+
+        Token token = symbols.stamp(tokens.peek(1));
+
+        if (grammar.getFirstSet(optionRule.getId()).match(token) == Match.NONE)
+            return false;
+
+        List<Token> region = new ArrayList<>();
+        boolean opened = false;
+        int depth = 0;
+
+        do {
+
+            token = symbols.stamp(tokens.peek(1));
+
+            if (token instanceof TokenStreamEnd)
+                throw new UnexpectedTokenException(token);
+            else if (lazyRule.isOpening(token)) {
+                opened = true;
+                depth++;
+            } else if (lazyRule.isClosing(token) && depth-- == 0)
+                throw new UnexpectedTokenException(token);
+
+            if (observer != null)
+                observer.token(optionRule.getName(), token, 0);
+
+            region.add(tokens.get());
+
+        } while (!opened || depth > 0);
+
+        if (observer != null)
+            observer.expansion(optionRule.getName(), 0, true);
+
+        lazyTreeBuilder.lazyRule(grammar, optionRule.getName(), region);
+
+        elementStack = elementStack.pop();
+        expansionStack = new OptionStack();
+        ruleFrameStack.complete(listener);
+
+        return true;
+
+    }
+
+    /*
+        Skips as few tokens as possible, then drops as few pending elements as possible so that the next token
+        can be matched again. Skipped tokens go to an error node. Either at least one token is skipped or at
+        least one element is dropped, so the parse always moves on.
+    */
+    private void recover() {
+
+        expansionStack = new OptionStack();
+
+        int skipCount = 0;
+        int dropCount;
+
+        while ((dropCount = grammar.findSyncDepth(elementStack, symbols.stamp(tokens.peek(skipCount + 1)), skipCount == 0 ? 1 : 0)) < 0)
+            skipCount++;
+
+        if (observer != null)
+            observer.expansion(ERROR_RULE_NAME, 0, true);
+
+        listener.enterRule(ERROR_RULE_NAME);
+
+        for (int i = 0; i < skipCount; i++) {
+
+            Token token = tokens.get();
+
+            if (observer != null)
+                observer.token(ERROR_RULE_NAME, token, token.getValue() != null ? 2 : 1);
+
+            listener.token(token, true, token.getValue() != null);
+
+        }
+
+        listener.exitRule(ERROR_RULE_NAME);
+
+        for (int i = 0; i < dropCount; i++) {
+            elementStack = elementStack.pop();
+            ruleFrameStack.complete(listener);
+        }
+
+    }
+
+}
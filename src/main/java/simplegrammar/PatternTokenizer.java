@@ -2,7 +2,6 @@ package simplegrammar;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static java.util.regex.Pattern.DOTALL;
@@ -12,102 +11,499 @@ public class PatternTokenizer extends SimpleTokenizer {
     private static class TokenPattern {
 
         String name;
+        String source;
         Pattern pattern;
 
-        public TokenPattern(String name, Pattern pattern) {
+        public TokenPattern(String name, String source, Pattern pattern) {
             this.name = name;
+            this.source = source;
             this.pattern = pattern;
         }
 
     }
 
+    /*
+        Source text wrapper remembering the furthest character the patterns have looked at since the last reset.
+        Tells edit() which tokens could change when the text after them is edited.
+    */
+    private static class ScannedText implements CharSequence {
+
+        private final CharSequence text;
+        private final int length;
+        private int scanEnd;
+
+        ScannedText(CharSequence text) {
+            this.text = text;
+            length = text.length();
+        }
+
+        void reset(int position) {
+            scanEnd = position;
+        }
+
+        int getScanEnd() {
+            return scanEnd;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+
+            if (index >= scanEnd)
+                scanEnd = index + 1;
+
+            return text.charAt(index);
+
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+
+            if (end > scanEnd)
+                scanEnd = end;
+
+            return text.subSequence(start, end);
+
+        }
+
+        @Override
+        public String toString() {
+            scanEnd = length;
+            return text.toString();
+        }
+
+    }
+
     private final List<TokenPattern> tokenPatterns;
+    private SymbolTable symbols;
+    private TokenMatcher matcher;
+    private ScannedText scannedText;
+    private boolean compiled;
+    private LexerAutomaton automaton;
+
+    private boolean[] ignored;
+    private int[] nameIds;
+
+    private CharSequence source;
+    private int startLine;
+    private int startPosition;
+    private int tokenStart;
+    private int editTokenIndex;
+    private int editRemovedCount;
+    private int editInsertedCount;
 
     public PatternTokenizer() {
         tokenPatterns = new ArrayList<>();
     }
 
+    public PatternTokenizer(PatternTokenizer template) {
+        super(template);
+        tokenPatterns = new ArrayList<>(template.tokenPatterns);
+        symbols = template.symbols;
+        compiled = template.compiled;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public void setSymbols(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    public void setCompiled(boolean compiled) {
+        this.compiled = compiled;
+        automaton = null;
+    }
+
     public void addTokenPattern(String name, String pattern) {
 
         tokenPatterns.add(
                 new TokenPattern(
                         name,
+                        pattern,
                         Pattern.compile("^" + pattern, DOTALL)
                 )
         );
 
+        matcher = null;
+        automaton = null;
+
     }
 
-    public void parse(CharSequence source) throws ParseException {
-        parse(source, 1, 1);
+    int getPatternCount() {
+        return tokenPatterns.size();
     }
 
-    public void parse(CharSequence source, int startLine, int startPosition) throws ParseException {
+    String getPatternName(int index) {
+        return tokenPatterns.get(index).name;
+    }
+
+    TokenMatcher createMatcher(CharSequence text) {
 
-        List<Matcher> matchers = new ArrayList<>();
+        List<Pattern> patterns = new ArrayList<>();
 
         for (TokenPattern tokenPattern : tokenPatterns)
-            matchers.add(tokenPattern.pattern.matcher(source));
+            patterns.add(tokenPattern.pattern);
+
+        return new TokenMatcher(patterns, text);
+
+    }
+
+    /*
+        The automaton gives the longest possible match, while java.util.regex may stop earlier (lazy quantifiers,
+        alternation order). The candidate is accepted only if the regex agrees on its length, otherwise the caller
+        falls back to running all patterns.
+    */
+    private boolean matchAutomaton(int position) {
+
+        int candidate = automaton.match(scannedText, position);
+
+        if (candidate == LexerAutomaton.ABORTED)
+            return false;
+
+        if (candidate >= 0) {
+
+            matcher.match(candidate, position);
+
+            if (matcher.getPattern() < 0 || matcher.getLength() != automaton.getMatchLength()) {
+                matcher.reject();
+                return false;
+            }
+
+        }
+
+        for (int fallbackPattern : automaton.getFallbackPatterns())
+            matcher.match(fallbackPattern, position);
+
+        return true;
+
+    }
+
+    private void prepare(CharSequence source) {
+
+        scannedText = new ScannedText(source);
+
+        if (matcher == null)
+            matcher = createMatcher(scannedText);
+        else
+            matcher.reset(scannedText);
+
+        ignored = new boolean[tokenPatterns.size()];
+        nameIds = new int[tokenPatterns.size()];
+
+        for (int i = 0; i < tokenPatterns.size(); i++) {
+
+            TokenPattern tokenPattern = tokenPatterns.get(i);
+
+            ignored[i] = isIgnored(tokenPattern.name);
+
+            if (symbols != null)
+                nameIds[i] = symbols.getTokenNameId(tokenPattern.name);
+
+        }
+
+        if (compiled && automaton == null) {
+
+            List<String> patterns = new ArrayList<>();
+            List<Integer> groupCounts = new ArrayList<>();
+
+            for (int i = 0; i < tokenPatterns.size(); i++) {
+                patterns.add(tokenPatterns.get(i).source);
+                groupCounts.add(matcher.getGroupCount(i));
+            }
+
+            automaton = new LexerAutomaton(patterns, groupCounts);
+
+        }
+
+    }
+
+    /*
+        Matches the next token at the given position. Returns null for ignored tokens, the match length is left in
+        the matcher.
+    */
+    private Token matchToken(CharSequence source, LineIndex lineIndex, int position) throws ParseException {
+
+        matcher.clear();
+        scannedText.reset(position);
+
+        if (automaton == null || !matchAutomaton(position))
+            matcher.matchAll(position);
+
+        int tokenPattern = matcher.getPattern();
+
+        if (tokenPattern < 0)
+            throw new ParseException(String.format(
+                    "Unexpected input at line %d, position %d!",
+                    lineIndex.getLine(position),
+                    lineIndex.getPosition(position)
+            ));
+
+        if (ignored[tokenPattern])
+            return null;
+
+        Token token = new SourceToken(
+                tokenPatterns.get(tokenPattern).name,
+                source,
+                lineIndex,
+                position,
+                matcher.getSourceStart(),
+                matcher.getSourceEnd(),
+                matcher.getValueStart(),
+                matcher.getValueEnd()
+        );
+
+        if (symbols != null)
+            token.setSymbols(
+                    symbols,
+                    nameIds[tokenPattern],
+                    matcher.getValueStart() < 0 ? -1 : symbols.getValueId(source, matcher.getValueStart(), matcher.getValueEnd())
+            );
+
+        return token;
 
+    }
+
+    /*
+        End of the text the last matchToken call has looked at, Integer.MAX_VALUE if it has reached the end of the
+        text, so that appending could change the token.
+    */
+    private int getScanEnd(int position) {
+
+        int scanEnd = Math.max(scannedText.getScanEnd(), position + matcher.getLength());
+
+        return matcher.isHitEnd() || scanEnd >= scannedText.length() ? Integer.MAX_VALUE : scanEnd;
+
+    }
+
+    public void parse(CharSequence source) throws ParseException {
+        parse(source, 1, 1);
+    }
+
+    public void parse(CharSequence source, int startLine, int startPosition) throws ParseException {
+
+        LineIndex lineIndex = new LineIndex(source, startLine, startPosition);
+        int tokenStart = getTokens().size();
         int position = 0;
-        int tokenLine = startLine;
-        int tokenPosition = startPosition;
+        SourceToken previousToken = null;
+        int leadingScanEnd = 0;
+
+        prepare(source);
 
         do {
 
-            String tokenSource = null;
-            String tokenName = null;
-            String tokenValue = null;
+            Token token = matchToken(source, lineIndex, position);
+            int scanEnd = getScanEnd(position);
 
-            for (int i = 0; i < matchers.size(); i++) {
+            /* Scans of ignored tokens are accounted to the token before them, leading ones to the first token. */
+            if (token != null) {
 
-                Matcher matcher = matchers.get(i);
-                matcher.region(position, source.length());
+                SourceToken sourceToken = (SourceToken)token;
 
-                if (matcher.find()) {
+                if (previousToken == null)
+                    sourceToken.setScanEnd(Math.max(scanEnd, leadingScanEnd), 0);
+                else
+                    sourceToken.setScanEnd(scanEnd, previousToken.getMaxScanEnd());
 
-                    String matchedSource;
-                    String matchedValue = null;
+                appendToken(token);
+                previousToken = sourceToken;
 
-                    if (matcher.groupCount() == 0)
-                        matchedSource = matcher.group();
-                    else if (matcher.groupCount() == 1) {
-                        matchedSource = matcher.group();
-                        matchedValue = matcher.group(1);
-                    } else {
-                        matchedSource = matcher.group(1);
-                        matchedValue = matcher.group(2);
-                    }
+            } else if (previousToken == null)
+                leadingScanEnd = Math.max(leadingScanEnd, scanEnd);
+            else
+                previousToken.extendScanEnd(scanEnd);
+
+            position += matcher.getLength();
+
+        } while (position < source.length());
+
+        this.source = source;
+        this.startLine = startLine;
+        this.startPosition = startPosition;
+        this.tokenStart = tokenStart;
+
+    }
+
+    /*
+        Also lets go of the last source, so that a tokenizer kept for reuse does not hold on to the text.
+    */
+    @Override
+    public void clear() {
+
+        super.clear();
+
+        source = null;
+        scannedText = null;
+
+        if (matcher != null)
+            matcher.reset("");
+
+    }
+
+    /*
+        Applies a text edit to the source of the last parse call. Lexing restarts at the first token whose scan, or the
+        scan of an ignored token after it, has looked at the edited text, and stops as soon as a new token starts where
+        an old one did, the remaining tokens are moved to the new source in place.
+    */
+    public void edit(int offset, int removedLength, CharSequence insertedText) throws ParseException {
+
+        if (source == null)
+            throw new IllegalStateException("Nothing has been parsed yet!");
+
+        StringBuilder newSource = new StringBuilder(source.length() - removedLength + insertedText.length());
+
+        newSource
+                .append(source, 0, offset)
+                .append(insertedText)
+                .append(source, offset + removedLength, source.length());
+
+        edit(newSource.toString(), offset, removedLength, insertedText.length());
+
+    }
+
+    void edit(CharSequence newSource, int offset, int removedLength, int insertedLength) throws ParseException {
+
+        List<Token> tokens = getTokens();
+        LineIndex newLineIndex = new LineIndex(newSource, startLine, startPosition);
+        int shift = insertedLength - removedLength;
+
+        /* Maximal scan ends grow with the token index, so the first token to re-lex can be found by bisection. */
+        int first = tokens.size();
+        int low = tokenStart;
+        int high = tokens.size() - 1;
+
+        while (low <= high) {
+
+            int middle = (low + high) >>> 1;
 
-                    if (tokenName == null || matchedSource.length() > tokenSource.length()) {
-                        tokenName = tokenPatterns.get(i).name;
-                        tokenSource = matchedSource;
-                        tokenValue = matchedValue;
+            if (((SourceToken)tokens.get(middle)).getMaxScanEnd() > offset) {
+                first = middle;
+                high = middle - 1;
+            } else
+                low = middle + 1;
+
+        }
+
+        /* No scan has reached the edit, possible after an earlier edit has removed the end of the text. */
+        if (first == tokens.size() && first > tokenStart)
+            first--;
+
+        SourceToken previousToken = first == tokenStart ? null : (SourceToken)tokens.get(first - 1);
+        int position = previousToken == null ? 0 : ((SourceToken)tokens.get(first)).getOffset();
+        int maxScanEnd = previousToken == null ? 0 : previousToken.getMaxScanEnd();
+        int leadingScanEnd = 0;
+
+        List<Token> newTokens = new ArrayList<>();
+        SourceToken lastNewToken = null;
+        int last = first;
+        boolean aligned = false;
+
+        prepare(newSource);
+
+        /* The restart point is at the end of the text if only the end has been removed. */
+        if (position < newSource.length() || newSource.length() == 0)
+            do {
+
+                if (position >= offset + insertedLength) {
+
+                    while (last < tokens.size() && ((SourceToken)tokens.get(last)).getOffset() + shift < position)
+                        last++;
+
+                    if (last < tokens.size() && ((SourceToken)tokens.get(last)).getOffset() + shift == position) {
+                        aligned = true;
+                        break;
                     }
+
                 }
 
-            }
+                Token token = matchToken(newSource, newLineIndex, position);
+                int scanEnd = getScanEnd(position);
 
-            if (tokenName == null)
-                throw new ParseException(String.format("Unexpected input at line %d, position %d!", tokenLine, tokenPosition));
+                if (token != null) {
 
-            Token token = new Token(tokenName);
-            token.setValue(tokenValue);
-            token.setSource(tokenSource);
-            token.setLine(tokenLine);
-            token.setPosition(tokenPosition);
+                    SourceToken sourceToken = (SourceToken)token;
 
-            addToken(token);
+                    if (lastNewToken == null && previousToken == null)
+                        sourceToken.setScanEnd(Math.max(scanEnd, leadingScanEnd), maxScanEnd);
+                    else
+                        sourceToken.setScanEnd(scanEnd, maxScanEnd);
 
-            for (int i = 1; i <= tokenSource.length(); i++)
-                if (source.charAt(position++) == '\n') {
-                    tokenLine++;
-                    tokenPosition = 1;
-                } else
-                    tokenPosition++;
+                    maxScanEnd = sourceToken.getMaxScanEnd();
+                    newTokens.add(token);
+                    lastNewToken = sourceToken;
 
-        } while (position < source.length());
+                } else {
+
+                    if (lastNewToken == null)
+                        leadingScanEnd = Math.max(leadingScanEnd, scanEnd);
+                    else
+                        lastNewToken.extendScanEnd(scanEnd);
+
+                    maxScanEnd = Math.max(maxScanEnd, scanEnd);
+
+                }
+
+                position += matcher.getLength();
+
+            } while (position < newSource.length());
+
+        if (!aligned)
+            last = tokens.size();
+
+        if (previousToken != null)
+            previousToken.extendScanEnd(leadingScanEnd);
+
+        for (int i = tokenStart; i < first; i++)
+            ((SourceToken)tokens.get(i)).relocate(newSource, newLineIndex, 0);
+
+        for (int i = last; i < tokens.size(); i++) {
+
+            SourceToken token = (SourceToken)tokens.get(i);
+
+            token.relocate(newSource, newLineIndex, shift);
+
+            if (i == last && lastNewToken == null && previousToken == null)
+                token.setScanEnd(Math.max(token.getScanEnd(), leadingScanEnd), maxScanEnd);
+            else
+                token.setScanEnd(token.getScanEnd(), maxScanEnd);
+
+            maxScanEnd = token.getMaxScanEnd();
+
+        }
+
+        tokens.subList(first, last).clear();
+        tokens.addAll(first, newTokens);
+
+        source = newSource;
+        editTokenIndex = first;
+        editRemovedCount = last - first;
+        editInsertedCount = newTokens.size();
+
+    }
+
+    int getEditTokenIndex() {
+        return editTokenIndex;
+    }
+
+    int getEditRemovedCount() {
+        return editRemovedCount;
+    }
+
+    int getEditInsertedCount() {
+        return editInsertedCount;
+    }
 
+    CharSequence getSource() {
+        return source;
     }
 
 }
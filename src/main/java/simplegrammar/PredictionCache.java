@@ -0,0 +1,212 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Arrays;
+
+final class PredictionCache {
+
+    private static final long END = -1;
+
+    private static final class Entry {
+
+        final AbstractOptionElement[] context;
+        final boolean bottom;
+        final Option[] prediction;
+
+        Entry(AbstractOptionElement[] context, boolean bottom, Option[] prediction) {
+            this.context = context;
+            this.bottom = bottom;
+            this.prediction = prediction;
+        }
+
+        boolean matches(ElementStack elementStack) {
+
+            int size = elementStack.size();
+
+            if (bottom ? size != context.length + 1 : size <= context.length)
+                return false;
+
+            for (AbstractOptionElement element : context) {
+
+                elementStack = elementStack.pop();
+
+                if (elementStack.peek() != element)
+                    return false;
+
+            }
+
+            return true;
+
+        }
+
+        boolean sameContext(Entry entry) {
+
+            if (bottom != entry.bottom || context.length != entry.context.length)
+                return false;
+
+            for (int i = 0; i < context.length; i++)
+                if (context[i] != entry.context[i])
+                    return false;
+
+            return true;
+
+        }
+
+    }
+
+    private static final class Children {
+
+        static final Children EMPTY = new Children(new long[0], new Node[0]);
+
+        final long[] kinds;
+        final Node[] nodes;
+
+        Children(long[] kinds, Node[] nodes) {
+            this.kinds = kinds;
+            this.nodes = nodes;
+        }
+
+    }
+
+    private static final class Node {
+
+        volatile Children children = Children.EMPTY;
+        volatile Entry[] entries = new Entry[0];
+
+        Node get(long kind) {
+
+            Children children = this.children;
+            int i = Arrays.binarySearch(children.kinds, kind);
+
+            return i >= 0 ? children.nodes[i] : null;
+
+        }
+
+        synchronized Node getOrCreate(long kind) {
+
+            Children children = this.children;
+            int i = Arrays.binarySearch(children.kinds, kind);
+
+            if (i >= 0)
+                return children.nodes[i];
+
+            i = -i - 1;
+
+            long[] kinds = new long[children.kinds.length + 1];
+            Node[] nodes = new Node[children.nodes.length + 1];
+
+            System.arraycopy(children.kinds, 0, kinds, 0, i);
+            System.arraycopy(children.nodes, 0, nodes, 0, i);
+            System.arraycopy(children.kinds, i, kinds, i + 1, children.kinds.length - i);
+            System.arraycopy(children.nodes, i, nodes, i + 1, children.nodes.length - i);
+
+            kinds[i] = kind;
+            nodes[i] = new Node();
+
+            this.children = new Children(kinds, nodes);
+
+            return nodes[i];
+
+        }
+
+        /*
+            Threads which missed the cache at the same time may all try to store the same prediction, only the first
+            one is kept.
+        */
+        synchronized void add(Entry entry) {
+
+            for (Entry existing : this.entries)
+                if (existing.sameContext(entry))
+                    return;
+
+            Entry[] entries = Arrays.copyOf(this.entries, this.entries.length + 1);
+            entries[entries.length - 1] = entry;
+            this.entries = entries;
+
+        }
+
+    }
+
+    private final SymbolTable symbols;
+    private final Node[] roots;
+
+    public PredictionCache(SymbolTable symbols) {
+
+        this.symbols = symbols;
+        roots = new Node[symbols.getRuleCount()];
+
+        for (int i = 0; i < roots.length; i++)
+            roots[i] = new Node();
+
+    }
+
+    private static long getKind(Token token) {
+
+        // Only symbol ids take part in matching, so e.g. all identifiers share one kind
+        if (token instanceof TokenStreamEnd)
+            return END;
+        else if (token.getNameId() < 0)
+            return 0;
+        else
+            return ((long)(token.getNameId() + 1) << 32) | (token.getValueId() + 1);
+
+    }
+
+    public Option[] get(int ruleId, ElementStack elementStack, Tokenizer tokens) {
+
+        Node node = roots[ruleId];
+        int depth = 1;
+
+        while (node != null) {
+
+            Token token = symbols.stamp(tokens.peek(depth++));
+            node = node.get(getKind(token));
+
+            if (node != null)
+                for (Entry entry : node.entries)
+                    if (entry.matches(elementStack))
+                        return entry.prediction;
+
+            if (token instanceof TokenStreamEnd)
+                return null;
+
+        }
+
+        return null;
+
+    }
+
+    public void put(int ruleId, ElementStack elementStack, int contextSize, Tokenizer tokens, int peekDepth, Option[] prediction) {
+
+        Node node = roots[ruleId];
+
+        for (int depth = 1; depth <= peekDepth; depth++)
+            node = node.getOrCreate(getKind(symbols.stamp(tokens.peek(depth))));
+
+        AbstractOptionElement[] context = new AbstractOptionElement[Math.max(contextSize - 1, 0)];
+        ElementStack contextStack = elementStack;
+
+        for (int i = 0; i < context.length; i++) {
+            contextStack = contextStack.pop();
+            context[i] = contextStack.peek();
+        }
+
+        node.add(new Entry(context, contextSize == elementStack.size(), prediction));
+
+    }
+
+}
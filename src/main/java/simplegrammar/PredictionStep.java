@@ -0,0 +1,220 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import simplegrammar.OptionToken.Match;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/*
+    One lookahead step of the dynamic prediction. Configurations are expanded up to their next token with a
+    worklist. Configurations which reach an equal element stack share one node, as everything that follows is the
+    same for them. A node reached along more than one expansion path is ambiguous and so are all its descendants:
+    they can never be the single remaining prediction, but they are only explored once.
+*/
+final class PredictionStep {
+
+    private static final int NODE_LIMIT = 1000000;
+
+    static final class Node {
+
+        final ElementStack elementStack;
+        final OptionStack expansionStack;
+        final Node parent;
+        boolean ambiguous;
+        ElementStack matchStack;
+        Match match;
+
+        Node(ElementStack elementStack, OptionStack expansionStack, Node parent, boolean ambiguous) {
+            this.elementStack = elementStack;
+            this.expansionStack = expansionStack;
+            this.parent = parent;
+            this.ambiguous = ambiguous;
+        }
+
+        /*
+            A node is ambiguous if it or any of its ancestors has been reached more than once.
+        */
+        boolean isAmbiguous() {
+
+            for (Node node = this; node != null; node = node.parent)
+                if (node.ambiguous)
+                    return true;
+
+            return false;
+
+        }
+
+    }
+
+    private final Option[][] ruleOptions;
+    private final Token token;
+    private Node[] nodes;
+    private int size;
+    private final Deque<Node> work;
+    private final List<Node> leaves;
+    private Match bestMatch;
+    private int minStackSize;
+
+    PredictionStep(Option[][] ruleOptions, Token token, int expectedSize) {
+        this.ruleOptions = ruleOptions;
+        this.token = token;
+        nodes = new Node[Integer.highestOneBit(Math.max(expectedSize, 8)) * 4];
+        work = new ArrayDeque<>();
+        leaves = new ArrayList<>();
+        bestMatch = Match.NONE;
+        minStackSize = Integer.MAX_VALUE;
+    }
+
+    private void visit(ElementStack elementStack, OptionStack expansionStack, Node parent, boolean ambiguous) {
+
+        int hash = elementStack.hashCode();
+        int slot = (hash ^ hash >>> 16) & (nodes.length - 1);
+
+        while (nodes[slot] != null) {
+
+            if (nodes[slot].elementStack.equals(elementStack)) {
+                nodes[slot].ambiguous = true;
+                return;
+            }
+
+            slot = (slot + 1) & (nodes.length - 1);
+
+        }
+
+        if (size == NODE_LIMIT)
+            throw new IllegalStateException("Prediction does not terminate, the grammar may be left-recursive!");
+
+        Node node = new Node(elementStack, expansionStack, parent, ambiguous);
+        nodes[slot] = node;
+        work.push(node);
+
+        if (++size * 2 > nodes.length)
+            rehash();
+
+    }
+
+    private void rehash() {
+
+        Node[] oldNodes = nodes;
+        nodes = new Node[oldNodes.length * 2];
+
+        for (Node node : oldNodes)
+            if (node != null) {
+
+                int hash = node.elementStack.hashCode();
+                int slot = (hash ^ hash >>> 16) & (nodes.length - 1);
+
+                while (nodes[slot] != null)
+                    slot = (slot + 1) & (nodes.length - 1);
+
+                nodes[slot] = node;
+
+            }
+
+    }
+
+    void add(ElementStack elementStack, OptionStack expansionStack, boolean ambiguous) {
+        visit(elementStack, expansionStack, null, ambiguous);
+    }
+
+    void run() {
+
+        while (!work.isEmpty()) {
+
+            Node node = work.pop();
+            ElementStack elementStack = node.elementStack;
+
+            while (true) {
+
+                if (elementStack.isEmpty()) {
+
+                    if (token instanceof TokenStreamEnd) {
+                        node.matchStack = elementStack;
+                        node.match = Match.NONE;
+                        leaves.add(node);
+                    }
+
+                    break;
+
+                }
+
+                AbstractOptionElement element = elementStack.peek();
+                elementStack = elementStack.pop();
+                minStackSize = Math.min(minStackSize, elementStack.size());
+
+                if (element instanceof OptionToken) {
+
+                    Match match = ((OptionToken) element).match(token);
+
+                    if (match != Match.NONE) {
+
+                        node.matchStack = elementStack;
+                        node.match = match;
+                        leaves.add(node);
+
+                        if (match.compareTo(bestMatch) > 0)
+                            bestMatch = match;
+
+                    }
+
+                    break;
+
+                } else if (element instanceof OptionRule) {
+
+                    for (Option option : ruleOptions[((OptionRule) element).getId()])
+                        visit(elementStack.pushOption(option), node.expansionStack.push(option), node, false);
+
+                    break;
+
+                }
+
+            }
+
+        }
+
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getMinStackSize() {
+        return minStackSize;
+    }
+
+    /*
+        Only the configurations with the best match for the token survive, at the end of the input those which
+        have nothing left to match.
+    */
+    List<Node> getMatches() {
+
+        List<Node> matches = new ArrayList<>();
+
+        for (Node leaf : leaves)
+            if (leaf.match == bestMatch) {
+                leaf.ambiguous = leaf.isAmbiguous();
+                matches.add(leaf);
+            }
+
+        return matches;
+
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import simplegrammar.OptionToken.Match;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+final class PredictionTable {
+
+    public static final Option[] NO_MATCH = new Option[0];
+    private static final Option[] CONFLICT = new Option[0];
+
+    private final TokenSet follow;
+    private final Option[][] namePredictions;
+    private final Map<Long, Option[]> valuePredictionMap;
+    private long[] valueKeys;
+    private Option[][] valuePredictions;
+    private Option[] anyPrediction;
+    private boolean passThrough;
+
+    public PredictionTable(TokenSet follow, int tokenNameCount) {
+        this.follow = follow;
+        namePredictions = new Option[tokenNameCount][];
+        valuePredictionMap = new TreeMap<>();
+    }
+
+    /*
+        Prediction chains refer to options by their position in the flattened option list of the grammar.
+    */
+    void write(DataOutputStream output, Map<Option, Integer> optionIds) throws IOException {
+
+        output.writeBoolean(passThrough);
+        writePrediction(output, anyPrediction, optionIds);
+
+        for (Option[] prediction : namePredictions)
+            writePrediction(output, prediction, optionIds);
+
+        output.writeInt(valueKeys.length);
+
+        for (int i = 0; i < valueKeys.length; i++) {
+            output.writeLong(valueKeys[i]);
+            writePrediction(output, valuePredictions[i], optionIds);
+        }
+
+    }
+
+    private static void writePrediction(DataOutputStream output, Option[] prediction, Map<Option, Integer> optionIds) throws IOException {
+
+        if (prediction == null)
+            output.writeInt(-1);
+        else if (prediction == CONFLICT)
+            output.writeInt(-2);
+        else {
+
+            output.writeInt(prediction.length);
+
+            for (Option option : prediction)
+                output.writeInt(optionIds.get(option));
+
+        }
+
+    }
+
+    static PredictionTable read(ByteBuffer input, TokenSet follow, int tokenNameCount, Option[] options) {
+
+        PredictionTable table = new PredictionTable(follow, tokenNameCount);
+
+        table.passThrough = input.get() != 0;
+        table.anyPrediction = readPrediction(input, options);
+
+        for (int i = 0; i < tokenNameCount; i++)
+            table.namePredictions[i] = readPrediction(input, options);
+
+        table.valueKeys = new long[GrammarFile.readCount(input, 12)];
+        table.valuePredictions = new Option[table.valueKeys.length][];
+
+        for (int i = 0; i < table.valueKeys.length; i++) {
+            table.valueKeys[i] = input.getLong();
+            table.valuePredictions[i] = readPrediction(input, options);
+        }
+
+        return table;
+
+    }
+
+    private static Option[] readPrediction(ByteBuffer input, Option[] options) {
+
+        int length = input.getInt();
+
+        if (length == -1)
+            return null;
+        else if (length == -2)
+            return CONFLICT;
+
+        if (length < 0 || length > input.remaining() / 4)
+            throw new BufferUnderflowException();
+
+        Option[] prediction = new Option[length];
+
+        for (int i = 0; i < length; i++)
+            prediction[i] = options[input.getInt()];
+
+        return prediction;
+
+    }
+
+    private static long getValueKey(int nameId, int valueId) {
+        return ((long)nameId << 32) | valueId;
+    }
+
+    private static Option[] merge(Option[] prediction, Option[] expansion) {
+        return prediction == null ? expansion : CONFLICT;
+    }
+
+    public void add(OptionToken token, Option[] expansion) {
+
+        if (token.getName() == null)
+            anyPrediction = merge(anyPrediction, expansion);
+        else if (token.getValue() == null)
+            namePredictions[token.getNameId()] = merge(namePredictions[token.getNameId()], expansion);
+        else {
+            long key = getValueKey(token.getNameId(), token.getValueId());
+            valuePredictionMap.put(key, merge(valuePredictionMap.get(key), expansion));
+        }
+
+    }
+
+    public void setPassThrough() {
+        passThrough = true;
+    }
+
+    public void freeze() {
+
+        valueKeys = new long[valuePredictionMap.size()];
+        valuePredictions = new Option[valuePredictionMap.size()][];
+
+        int i = 0;
+
+        for (Map.Entry<Long, Option[]> entry : valuePredictionMap.entrySet()) {
+            valueKeys[i] = entry.getKey();
+            valuePredictions[i++] = entry.getValue();
+        }
+
+        valuePredictionMap.clear();
+
+    }
+
+    /*
+        Values the prediction for tokens of the given name depends on, either in the table itself or in the
+        follow set.
+    */
+    BitSet getValueIds(int nameId) {
+
+        BitSet valueIds = follow.getValues(nameId);
+
+        for (long valueKey : valueKeys)
+            if ((int)(valueKey >>> 32) == nameId)
+                valueIds.set((int) valueKey);
+
+        return valueIds;
+
+    }
+
+    /*
+        Tells whether the table leaves the token to the dynamic search only because the rule may derive
+        nothing and the token may follow it, with no option of the rule starting with the token.
+    */
+    boolean passesThrough(Token token) {
+
+        if (!passThrough)
+            return false;
+        else if (token instanceof TokenStreamEnd)
+            return true;
+        else if (anyPrediction != null)
+            return false;
+
+        int nameId = token.getNameId();
+
+        if (nameId < 0)
+            return true;
+        else if (namePredictions[nameId] != null)
+            return false;
+        else
+            return token.getValueId() < 0 || Arrays.binarySearch(valueKeys, getValueKey(nameId, token.getValueId())) < 0;
+
+    }
+
+    boolean mayFollow(Token token) {
+        return token instanceof TokenStreamEnd ? follow.containsEnd() : follow.match(token) != Match.NONE;
+    }
+
+    /*
+        Returns the expansion chain the dynamic search would select for the first token,
+        NO_MATCH if it would find nothing or null if the decision depends on more context.
+        The token must be stamped with the grammar symbols.
+    */
+    public Option[] predict(Token token) {
+
+        if (token instanceof TokenStreamEnd)
+            return passThrough ? null : NO_MATCH;
+
+        Option[] prediction = null;
+        Match match = Match.VALUE;
+
+        int nameId = token.getNameId();
+
+        if (nameId >= 0 && token.getValueId() >= 0) {
+
+            int i = Arrays.binarySearch(valueKeys, getValueKey(nameId, token.getValueId()));
+
+            if (i >= 0)
+                prediction = valuePredictions[i];
+
+        }
+
+        if (prediction == null && nameId >= 0) {
+            prediction = namePredictions[nameId];
+            match = Match.NAME;
+        }
+
+        if (prediction == null) {
+            prediction = anyPrediction;
+            match = Match.ANY;
+        }
+
+        if (prediction == null)
+            return passThrough ? null : NO_MATCH;
+        else if (prediction == CONFLICT)
+            return null;
+        else if (passThrough && follow.match(token).compareTo(match) >= 0)
+            return null;
+        else
+            return prediction;
+
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+public class ReaderTokenizer extends Tokenizer {
+
+    private static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] chunk;
+    private final StringBuilder buffer;
+    private final String[] names;
+    private final TokenMatcher matcher;
+    private final boolean[] ignored;
+    private final int[] nameIds;
+    private final SymbolTable symbols;
+
+    private int position;
+    private boolean endOfInput;
+    private int line;
+    private int linePosition;
+
+    private Token[] tokens;
+    private int head;
+    private int count;
+
+    public ReaderTokenizer(PatternTokenizer template, Reader reader, int chunkSize) {
+
+        this.reader = reader;
+        chunk = new char[chunkSize];
+        buffer = new StringBuilder(chunkSize * 2);
+
+        int patternCount = template.getPatternCount();
+
+        names = new String[patternCount];
+        matcher = template.createMatcher(buffer);
+        ignored = new boolean[patternCount];
+        nameIds = new int[patternCount];
+        symbols = template.getSymbols();
+
+        for (int i = 0; i < patternCount; i++) {
+
+            names[i] = template.getPatternName(i);
+            ignored[i] = template.isIgnored(names[i]);
+
+            if (symbols != null)
+                nameIds[i] = symbols.getTokenNameId(names[i]);
+
+        }
+
+        line = 1;
+        linePosition = 1;
+
+        tokens = new Token[16];
+
+    }
+
+    public ReaderTokenizer(PatternTokenizer template, Reader reader) {
+        this(template, reader, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ReaderTokenizer(PatternTokenizer template, ReadableByteChannel channel, Charset charset) {
+        this(template, Channels.newReader(channel, charset.newDecoder(), DEFAULT_CHUNK_SIZE), DEFAULT_CHUNK_SIZE);
+    }
+
+    private boolean readChunk() {
+
+        if (endOfInput)
+            return false;
+
+        if (position > 0 && position >= buffer.length() / 2) {
+            buffer.delete(0, position);
+            position = 0;
+        }
+
+        try {
+
+            int length = reader.read(chunk);
+
+            if (length < 0) {
+                endOfInput = true;
+                return false;
+            }
+
+            buffer.append(chunk, 0, length);
+            return true;
+
+        } catch (IOException exception) {
+            throw new TokenizerException(exception);
+        }
+
+    }
+
+    private Token readToken() {
+
+        while (true) {
+
+            while (position >= buffer.length())
+                if (!readChunk())
+                    return null;
+
+            matcher.matchAll(position);
+
+            if (matcher.isHitEnd() && !endOfInput) {
+                readChunk();
+                continue;
+            }
+
+            int tokenPattern = matcher.getPattern();
+
+            if (tokenPattern < 0)
+                throw new TokenizerException(
+                        new ParseException(String.format("Unexpected input at line %d, position %d!", line, linePosition))
+                );
+
+            Token token = null;
+
+            if (!ignored[tokenPattern]) {
+
+                String tokenValue = matcher.getValueStart() < 0 ? null : buffer.substring(matcher.getValueStart(), matcher.getValueEnd());
+
+                token = new Token(names[tokenPattern]);
+                token.setValue(tokenValue);
+                token.setSource(buffer.substring(matcher.getSourceStart(), matcher.getSourceEnd()));
+                token.setLine(line);
+                token.setPosition(linePosition);
+
+                if (symbols != null)
+                    token.setSymbols(symbols, nameIds[tokenPattern], symbols.getValueId(tokenValue));
+
+            }
+
+            int tokenEnd = position + matcher.getLength();
+
+            while (position < tokenEnd)
+                if (buffer.charAt(position++) == '\n') {
+                    line++;
+                    linePosition = 1;
+                } else
+                    linePosition++;
+
+            if (token != null)
+                return token;
+
+        }
+
+    }
+
+    @Override
+    public boolean hasNext(int depth) {
+
+        while (count < depth) {
+
+            Token token = readToken();
+
+            if (token == null)
+                return false;
+
+            if (count == tokens.length) {
+
+                Token[] newTokens = new Token[tokens.length * 2];
+
+                for (int i = 0; i < count; i++)
+                    newTokens[i] = tokens[(head + i) % tokens.length];
+
+                tokens = newTokens;
+                head = 0;
+
+            }
+
+            tokens[(head + count++) % tokens.length] = token;
+
+        }
+
+        return true;
+
+    }
+
+    @Override
+    protected Token doPeek(int depth) {
+        return tokens[(head + depth - 1) % tokens.length];
+    }
+
+    @Override
+    protected Token doGet() {
+
+        Token token = tokens[head];
+
+        tokens[head] = null;
+        head = (head + 1) % tokens.length;
+        count--;
+
+        return token;
+
+    }
+
+}
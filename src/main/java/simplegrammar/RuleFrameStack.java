@@ -0,0 +1,109 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Arrays;
+
+/*
+    Tracks the number of pending elements of every expanded option. Options of output rules carry the rule name,
+    exit events are fired when all their elements have been matched. Frames of non-output options which are
+    about to be completed by a rule in tail position are dropped early to keep the stack flat on
+    right-recursive rules.
+*/
+class RuleFrameStack {
+
+    private String[] ruleNames;
+    private int[] counts;
+    private int size;
+
+    RuleFrameStack() {
+        ruleNames = new String[16];
+        counts = new int[16];
+    }
+
+    RuleFrameStack(RuleFrameStack ruleFrameStack) {
+        ruleNames = Arrays.copyOf(ruleFrameStack.ruleNames, Math.max(ruleFrameStack.size, 16));
+        counts = Arrays.copyOf(ruleFrameStack.counts, Math.max(ruleFrameStack.size, 16));
+        size = ruleFrameStack.size;
+    }
+
+    boolean sameAs(RuleFrameStack other) {
+
+        if (size != other.size)
+            return false;
+
+        for (int i = 0; i < size; i++)
+            if (counts[i] != other.counts[i])
+                return false;
+            else if (ruleNames[i] == null ? other.ruleNames[i] != null : !ruleNames[i].equals(other.ruleNames[i]))
+                return false;
+
+        return true;
+
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*
+        Name of the innermost output rule.
+    */
+    String getRuleName() {
+
+        for (int i = size - 1; i >= 0; i--)
+            if (ruleNames[i] != null)
+                return ruleNames[i];
+
+        return null;
+
+    }
+
+    void enter(String ruleName, int count, ParseListener listener) {
+
+        if (size > 0 && ruleNames[size - 1] == null && counts[size - 1] == 1)
+            size--;
+
+        if (size == ruleNames.length) {
+            ruleNames = Arrays.copyOf(ruleNames, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+
+        if (ruleName != null)
+            listener.enterRule(ruleName);
+
+        ruleNames[size] = ruleName;
+        counts[size++] = count + 1;
+
+        complete(listener);
+
+    }
+
+    void complete(ParseListener listener) {
+
+        while (size > 0 && --counts[size - 1] == 0) {
+
+            String ruleName = ruleNames[--size];
+            ruleNames[size] = null;
+
+            if (ruleName != null)
+                listener.exitRule(ruleName);
+
+        }
+
+    }
+
+}
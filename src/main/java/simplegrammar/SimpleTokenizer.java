@@ -32,16 +32,34 @@ public class SimpleTokenizer extends Tokenizer {
         position = -1;
     }
 
+    protected SimpleTokenizer(SimpleTokenizer template) {
+        ignoredTokens = new HashSet<>(template.ignoredTokens);
+        tokens = new ArrayList<>();
+        position = -1;
+    }
+
     public void ignoreTokens(String... tokens) {
         for (String token : tokens)
             ignoredTokens.add(token);
     }
 
+    public boolean isIgnored(String tokenName) {
+        return ignoredTokens.contains(tokenName);
+    }
+
     public void addToken(Token token) {
-        if (!ignoredTokens.contains(token.getName()))
+        if (!isIgnored(token.getName()))
             tokens.add(token);
     }
 
+    List<Token> getTokens() {
+        return tokens;
+    }
+
+    protected final void appendToken(Token token) {
+        tokens.add(token);
+    }
+
     public void addAll(Tokenizer tokenizer) {
         while (tokenizer.hasNext())
             addToken(tokenizer.get());
@@ -67,4 +85,9 @@ public class SimpleTokenizer extends Tokenizer {
         position = -1;
     }
 
+    public void clear() {
+        tokens.clear();
+        position = -1;
+    }
+
 }
@@ -0,0 +1,230 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.nio.CharBuffer;
+
+/*
+    Token referring to a region of the shared source text instead of holding own copies of the source and
+    the value. Strings are only created when requested. The source text must not change while tokens are in use,
+    PatternTokenizer.edit moves the tokens to the new text instead.
+*/
+public class SourceToken extends Token {
+
+    private CharSequence text;
+    private LineIndex lineIndex;
+    private int offset;
+    private int sourceStart;
+    private int sourceEnd;
+    private int valueStart;
+    private int valueEnd;
+    private int scanEnd;
+    private int maxScanEnd;
+
+    private String source;
+    private String value;
+    private boolean sourceSet;
+    private boolean valueSet;
+
+    public SourceToken(
+            String name,
+            CharSequence text,
+            LineIndex lineIndex,
+            int offset,
+            int sourceStart,
+            int sourceEnd,
+            int valueStart,
+            int valueEnd
+    ) {
+        super(name);
+        this.text = text;
+        this.lineIndex = lineIndex;
+        this.offset = offset;
+        this.sourceStart = sourceStart;
+        this.sourceEnd = sourceEnd;
+        this.valueStart = valueStart;
+        this.valueEnd = valueEnd;
+        scanEnd = Integer.MAX_VALUE;
+        maxScanEnd = Integer.MAX_VALUE;
+    }
+
+    /*
+        Moves the token to an edited copy of its source text, where the token's region is shifted by the given
+        number of characters.
+    */
+    void relocate(CharSequence text, LineIndex lineIndex, int shift) {
+
+        this.text = text;
+        this.lineIndex = lineIndex;
+        offset += shift;
+        sourceStart += shift;
+        sourceEnd += shift;
+
+        if (valueStart >= 0) {
+            valueStart += shift;
+            valueEnd += shift;
+        }
+
+        if (scanEnd != Integer.MAX_VALUE)
+            scanEnd += shift;
+
+    }
+
+    /*
+        End of the text the tokenizer has looked at while matching this token and the ignored tokens right after it,
+        Integer.MAX_VALUE if the scan reached the end of the text. The maximal scan end also covers all preceding
+        tokens of the same parse.
+    */
+    int getScanEnd() {
+        return scanEnd;
+    }
+
+    int getMaxScanEnd() {
+        return maxScanEnd;
+    }
+
+    void setScanEnd(int scanEnd, int previousMaxScanEnd) {
+        this.scanEnd = scanEnd;
+        maxScanEnd = Math.max(scanEnd, previousMaxScanEnd);
+    }
+
+    void extendScanEnd(int scanEnd) {
+        this.scanEnd = Math.max(this.scanEnd, scanEnd);
+        maxScanEnd = Math.max(maxScanEnd, scanEnd);
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getSourceStart() {
+        return sourceStart;
+    }
+
+    public int getSourceEnd() {
+        return sourceEnd;
+    }
+
+    public int getValueStart() {
+        return valueStart;
+    }
+
+    public int getValueEnd() {
+        return valueEnd;
+    }
+
+    public CharSequence getSourceSequence() {
+        return sourceSet ? super.getSource() : CharBuffer.wrap(text, sourceStart, sourceEnd);
+    }
+
+    public CharSequence getValueSequence() {
+        if (valueSet)
+            return super.getValue();
+        else
+            return valueStart < 0 ? null : CharBuffer.wrap(text, valueStart, valueEnd);
+    }
+
+    @Override
+    public Integer getLine() {
+
+        Integer line = super.getLine();
+
+        return line != null || lineIndex == null ? line : lineIndex.getLine(offset);
+
+    }
+
+    @Override
+    public Integer getPosition() {
+
+        Integer position = super.getPosition();
+
+        return position != null || lineIndex == null ? position : lineIndex.getPosition(offset);
+
+    }
+
+    @Override
+    public String getSource() {
+
+        if (sourceSet)
+            return super.getSource();
+
+        if (source == null)
+            source = text.subSequence(sourceStart, sourceEnd).toString();
+
+        return source;
+
+    }
+
+    @Override
+    public void setSource(String source) {
+        sourceSet = true;
+        super.setSource(source);
+    }
+
+    @Override
+    public String getValue() {
+
+        if (valueSet)
+            return super.getValue();
+        else if (valueStart < 0)
+            return null;
+
+        if (value == null)
+            value = text.subSequence(valueStart, valueEnd).toString();
+
+        return value;
+
+    }
+
+    @Override
+    public void setValue(String value) {
+        valueSet = true;
+        super.setValue(value);
+    }
+
+    @Override
+    int getValueId(SymbolTable symbols) {
+        if (valueSet)
+            return super.getValueId(symbols);
+        else
+            return valueStart < 0 ? -1 : symbols.getValueId(text, valueStart, valueEnd);
+    }
+
+    @Override
+    boolean valueEquals(String value) {
+
+        if (valueSet)
+            return super.valueEquals(value);
+        else if (valueStart < 0 || value.length() != valueEnd - valueStart)
+            return false;
+
+        for (int i = 0; i < value.length(); i++)
+            if (value.charAt(i) != text.charAt(valueStart + i))
+                return false;
+
+        return true;
+
+    }
+
+}
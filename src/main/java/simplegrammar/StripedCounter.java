@@ -0,0 +1,65 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Counter spread over several cells, each on its own cache line. Threads update the cell picked by their id,
+    so concurrent parses rarely touch the same line. Reading sums all the cells and is not atomic.
+*/
+final class StripedCounter {
+
+    static final int STRIPE_COUNT = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1));
+
+    private static final int CELL_SPACING = 16;
+
+    private final AtomicLongArray cells;
+
+    StripedCounter() {
+        cells = new AtomicLongArray(STRIPE_COUNT * CELL_SPACING);
+    }
+
+    static int getStripe() {
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 40) & (STRIPE_COUNT - 1);
+    }
+
+    void add(long value) {
+        cells.getAndAdd(getStripe() * CELL_SPACING, value);
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    long sum() {
+
+        long sum = 0;
+
+        for (int i = 0; i < STRIPE_COUNT; i++)
+            sum += cells.get(i * CELL_SPACING);
+
+        return sum;
+
+    }
+
+    void reset() {
+        for (int i = 0; i < STRIPE_COUNT; i++)
+            cells.set(i * CELL_SPACING, 0);
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class SymbolTable {
+
+    private final String[] ruleNames;
+    private final String[] tokenNames;
+    private final String[] values;
+
+    private final Map<String, Integer> ruleIds;
+    private final Map<String, Integer> tokenNameIds;
+    private final Map<String, Integer> valueIds;
+    private final int[] valueSlots;
+
+    private static Map<String, Integer> index(String[] symbols) {
+
+        Map<String, Integer> ids = new HashMap<>();
+
+        for (int i = 0; i < symbols.length; i++)
+            ids.put(symbols[i], i);
+
+        return ids;
+
+    }
+
+    private static int getId(Map<String, Integer> ids, String symbol) {
+
+        if (symbol == null)
+            return -1;
+
+        Integer id = ids.get(symbol);
+
+        return id == null ? -1 : id;
+
+    }
+
+    SymbolTable(Collection<String> ruleNames, Collection<String> tokenNames, Collection<String> values) {
+
+        this.ruleNames = ruleNames.toArray(new String[ruleNames.size()]);
+        this.tokenNames = tokenNames.toArray(new String[tokenNames.size()]);
+        this.values = values.toArray(new String[values.size()]);
+
+        ruleIds = index(this.ruleNames);
+        tokenNameIds = index(this.tokenNames);
+        valueIds = index(this.values);
+
+        int slotCount = Integer.highestOneBit(Math.max(this.values.length, 1) * 2) * 2;
+        valueSlots = new int[slotCount];
+
+        for (int i = 0; i < this.values.length; i++) {
+
+            int slot = hash(this.values[i], 0, this.values[i].length()) & (slotCount - 1);
+
+            while (valueSlots[slot] != 0)
+                slot = (slot + 1) & (slotCount - 1);
+
+            valueSlots[slot] = i + 1;
+
+        }
+
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+
+        int hash = 0;
+
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + text.charAt(i);
+
+        return hash ^ (hash >>> 16);
+
+    }
+
+    private static boolean regionEquals(String value, CharSequence text, int start, int end) {
+
+        if (value.length() != end - start)
+            return false;
+
+        for (int i = 0; i < value.length(); i++)
+            if (value.charAt(i) != text.charAt(start + i))
+                return false;
+
+        return true;
+
+    }
+
+    public int getRuleCount() {
+        return ruleNames.length;
+    }
+
+    public int getRuleId(String name) {
+        return getId(ruleIds, name);
+    }
+
+    public String getRuleName(int id) {
+        return ruleNames[id];
+    }
+
+    public int getTokenNameCount() {
+        return tokenNames.length;
+    }
+
+    public int getTokenNameId(String name) {
+        return getId(tokenNameIds, name);
+    }
+
+    public String getTokenName(int id) {
+        return tokenNames[id];
+    }
+
+    public int getValueCount() {
+        return values.length;
+    }
+
+    public int getValueId(String value) {
+        return getId(valueIds, value);
+    }
+
+    public int getValueId(CharSequence text, int start, int end) {
+
+        int slot = hash(text, start, end) & (valueSlots.length - 1);
+
+        while (valueSlots[slot] != 0) {
+
+            if (regionEquals(values[valueSlots[slot] - 1], text, start, end))
+                return valueSlots[slot] - 1;
+
+            slot = (slot + 1) & (valueSlots.length - 1);
+
+        }
+
+        return -1;
+
+    }
+
+    public String getValue(int id) {
+        return values[id];
+    }
+
+    Token stamp(Token token) {
+
+        if (token.getSymbols() != this)
+            token.setSymbols(this);
+
+        return token;
+
+    }
+
+}
@@ -16,16 +16,32 @@
 package simplegrammar;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SyntaxTreeNode {
+
+    private static final int MIN_INDEXED_CHILD_COUNT = 8;
+    private static final int[] NO_CHILDREN = new int[0];
     
     private final String value;
     private final List<SyntaxTreeNode> childNodes;
+    private volatile Map<String, int[]> childIndex;
+    private volatile int childIndexVersion;
     
     public SyntaxTreeNode(String value) {
         this.value = value;
-        childNodes = new ArrayList<>();
+        childNodes = new ChildNodeList();
+    }
+
+    /*
+        The given child node list is expected not to change once the node has been created.
+    */
+    SyntaxTreeNode(String value, List<SyntaxTreeNode> childNodes) {
+        this.value = value;
+        this.childNodes = childNodes;
     }
 
     public String getValue() {
@@ -43,7 +59,7 @@ public class SyntaxTreeNode {
         
         System.out.println(value);
         
-        for (SyntaxTreeNode node : childNodes)
+        for (SyntaxTreeNode node : getChildNodes())
             node.output(depth + 1);
         
     }
@@ -54,47 +70,152 @@ public class SyntaxTreeNode {
     
     public SyntaxTreeNode addChildNode(String value) {
         SyntaxTreeNode node = new SyntaxTreeNode(value);
-        childNodes.add(node);
+        getChildNodes().add(node);
         return node;
     }
     
     public SyntaxTreeNode getChildNode(int i) {
+
+        List<SyntaxTreeNode> childNodes = getChildNodes();
+
         if (i >=0 && i < childNodes.size())
             return childNodes.get(i);
         else
             return null;
+
     }
     
+    private static int getVersion(List<SyntaxTreeNode> childNodes) {
+        return childNodes instanceof ChildNodeList ? ((ChildNodeList)childNodes).getModificationCount() : childNodes.size();
+    }
+
+    /*
+        Positions of the child nodes grouped by value. Built on first use and rebuilt after any change of the child
+        node list.
+    */
+    private Map<String, int[]> getChildIndex() {
+
+        List<SyntaxTreeNode> childNodes = getChildNodes();
+        int version = getVersion(childNodes);
+
+        Map<String, int[]> childIndex = this.childIndex;
+
+        if (childIndex != null && childIndexVersion == version)
+            return childIndex;
+
+        int size = childNodes.size();
+        Map<String, int[]> counts = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+
+            int[] count = counts.get(childNodes.get(i).getValue());
+
+            if (count == null)
+                counts.put(childNodes.get(i).getValue(), new int[] {1});
+            else
+                count[0]++;
+
+        }
+
+        childIndex = new HashMap<>();
+
+        for (Map.Entry<String, int[]> count : counts.entrySet()) {
+            childIndex.put(count.getKey(), new int[count.getValue()[0]]);
+            count.getValue()[0] = 0;
+        }
+
+        for (int i = 0; i < size; i++) {
+            String childValue = childNodes.get(i).getValue();
+            childIndex.get(childValue)[counts.get(childValue)[0]++] = i;
+        }
+
+        this.childIndex = childIndex;
+        childIndexVersion = version;
+
+        return childIndex;
+
+    }
+
+    int[] getChildPositions(String value) {
+
+        List<SyntaxTreeNode> childNodes = getChildNodes();
+
+        if (value == null)
+            return NO_CHILDREN;
+
+        if (childNodes.size() >= MIN_INDEXED_CHILD_COUNT) {
+            int[] positions = getChildIndex().get(value);
+            return positions == null ? NO_CHILDREN : positions;
+        }
+
+        int[] positions = new int[childNodes.size()];
+        int count = 0;
+
+        for (int i = 0; i < childNodes.size(); i++)
+            if (value.equals(childNodes.get(i).getValue()))
+                positions[count++] = i;
+
+        return Arrays.copyOf(positions, count);
+
+    }
+
     public SyntaxTreeNode getChildNode(String value) {
-        
-        for (SyntaxTreeNode childNode : childNodes)
-            if (childNode.getValue().equals(value))
-                return childNode;
-        
-        return null;
-        
+
+        int[] positions = getChildPositions(value);
+
+        return positions.length == 0 ? null : getChildNodes().get(positions[0]);
+
     }
     
     public List<SyntaxTreeNode> getChildNodes(String... values) {
-        
-        List<SyntaxTreeNode> matchingChildNodes  = new ArrayList<>(5);
-        
-        for (SyntaxTreeNode childNode : childNodes)
-            for (String value : values)
-                if (childNode.getValue().equals(value)) {
-                    matchingChildNodes.add(childNode);
-                    break;
+
+        List<SyntaxTreeNode> childNodes = getChildNodes();
+
+        if (values.length == 1) {
+
+            int[] positions = getChildPositions(values[0]);
+            List<SyntaxTreeNode> matchingChildNodes = new ArrayList<>(positions.length);
+
+            for (int position : positions)
+                matchingChildNodes.add(childNodes.get(position));
+
+            return matchingChildNodes;
+
+        }
+
+        boolean[] matching = new boolean[childNodes.size()];
+        int count = 0;
+
+        for (String value : values)
+            for (int position : getChildPositions(value))
+                if (!matching[position]) {
+                    matching[position] = true;
+                    count++;
                 }
-        
+
+        List<SyntaxTreeNode> matchingChildNodes = new ArrayList<>(count);
+
+        for (int i = 0; i < matching.length; i++)
+            if (matching[i])
+                matchingChildNodes.add(childNodes.get(i));
+
         return matchingChildNodes;
         
     }
+
+    public List<SyntaxTreeNode> select(String path) {
+        return TreePath.compile(path).select(this);
+    }
     
     public String getChildValue(int i) {
+
+        List<SyntaxTreeNode> childNodes = getChildNodes();
+
         if (i >=0 && i < childNodes.size())
             return childNodes.get(i).getValue();
         else
             return null;
+
     }
     
 }
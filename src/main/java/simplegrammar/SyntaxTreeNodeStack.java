@@ -15,13 +15,79 @@
 */
 package simplegrammar;
 
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+public class SyntaxTreeNodeStack {
+
+    private SyntaxTreeNode[] nodes;
+    private int[] counts;
+    private int size;
+
+    public SyntaxTreeNodeStack() {
+        nodes = new SyntaxTreeNode[16];
+        counts = new int[16];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void push(SyntaxTreeNode node) {
+        push(node, 1);
+    }
 
-public class SyntaxTreeNodeStack extends Stack<SyntaxTreeNode>{
-    
     public void push(SyntaxTreeNode node, int count) {
-        for (int i = 1; i <= count; i++)
-            push(node);
+
+        if (count <= 0)
+            return;
+
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+
+        nodes[size] = node;
+        counts[size++] = count;
+
+    }
+
+    public SyntaxTreeNode peek() {
+
+        if (size == 0)
+            throw new EmptyStackException();
+
+        return nodes[size - 1];
+
+    }
+
+    SyntaxTreeNode[] toArray() {
+
+        int count = 0;
+
+        for (int i = 0; i < size; i++)
+            count += counts[i];
+
+        SyntaxTreeNode[] array = new SyntaxTreeNode[count];
+        count = 0;
+
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < counts[i]; j++)
+                array[count++] = nodes[i];
+
+        return array;
+
+    }
+
+    public SyntaxTreeNode pop() {
+
+        SyntaxTreeNode node = peek();
+
+        if (--counts[size - 1] == 0)
+            nodes[--size] = null;
+
+        return node;
+
     }
-    
+
 }
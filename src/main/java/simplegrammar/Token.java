@@ -17,15 +17,23 @@ package simplegrammar;
 
 public class Token {
 
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+
     private final String name;
     private String value;
 
     private String source;
-    private Integer line;
-    private Integer position;
+    private int line;
+    private int position;
+
+    private SymbolTable symbols;
+    private int nameId;
+    private int valueId;
     
     public Token(String name) {
         this.name = name;
+        line = UNKNOWN;
+        position = UNKNOWN;
     }
 
     public String getName() {
@@ -38,6 +46,7 @@ public class Token {
 
     public void setValue(String value) {
         this.value = value;
+        symbols = null;
     }
 
     public String getSource() {
@@ -49,19 +58,49 @@ public class Token {
     }
 
     public Integer getLine() {
-        return line;
+        return line == UNKNOWN ? null : line;
     }
 
     public void setLine(Integer line) {
-        this.line = line;
+        this.line = line == null ? UNKNOWN : line;
     }
 
     public Integer getPosition() {
-        return position;
+        return position == UNKNOWN ? null : position;
     }
 
     public void setPosition(Integer position) {
-        this.position = position;
+        this.position = position == null ? UNKNOWN : position;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public void setSymbols(SymbolTable symbols) {
+        setSymbols(symbols, symbols.getTokenNameId(name), getValueId(symbols));
+    }
+
+    int getValueId(SymbolTable symbols) {
+        return symbols.getValueId(getValue());
+    }
+
+    boolean valueEquals(String value) {
+        return value.equals(getValue());
+    }
+
+    void setSymbols(SymbolTable symbols, int nameId, int valueId) {
+        this.symbols = symbols;
+        this.nameId = nameId;
+        this.valueId = valueId;
+    }
+
+    public int getNameId() {
+        return nameId;
+    }
+
+    public int getValueId() {
+        return valueId;
     }
 
 }
@@ -0,0 +1,151 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+    Finds the longest match of the token patterns at a position. With two or more groups in a pattern, group 1
+    is the token source and group 2 its value, with one group the whole match is the source and the group is
+    the value. The source length decides the longest match, ties go to the pattern added first, and the text
+    is advanced by the source length.
+*/
+final class TokenMatcher {
+
+    private final Matcher[] matchers;
+    private CharSequence text;
+
+    private int pattern;
+    private int sourceStart;
+    private int sourceEnd;
+    private int valueStart;
+    private int valueEnd;
+    private boolean hitEnd;
+
+    TokenMatcher(List<Pattern> patterns, CharSequence text) {
+
+        this.text = text;
+        matchers = new Matcher[patterns.size()];
+
+        for (int i = 0; i < matchers.length; i++)
+            matchers[i] = patterns.get(i).matcher(text);
+
+        pattern = -1;
+
+    }
+
+    void reset(CharSequence text) {
+
+        this.text = text;
+
+        for (Matcher matcher : matchers)
+            matcher.reset(text);
+
+    }
+
+    int getPatternCount() {
+        return matchers.length;
+    }
+
+    int getGroupCount(int pattern) {
+        return matchers[pattern].groupCount();
+    }
+
+    void clear() {
+        pattern = -1;
+        hitEnd = false;
+    }
+
+    /*
+        Tries one pattern, keeping the match if it is longer than the one found so far.
+    */
+    void match(int index, int position) {
+
+        Matcher matcher = matchers[index];
+        matcher.region(position, text.length());
+
+        boolean found = matcher.find();
+
+        if (matcher.hitEnd())
+            hitEnd = true;
+
+        if (!found)
+            return;
+
+        int sourceGroup = matcher.groupCount() < 2 ? 0 : 1;
+        int valueGroup = matcher.groupCount() == 0 ? -1 : sourceGroup + 1;
+        int length = matcher.end(sourceGroup) - matcher.start(sourceGroup);
+
+        if (pattern < 0
+                || length > sourceEnd - sourceStart
+                || length == sourceEnd - sourceStart && index < pattern) {
+            pattern = index;
+            sourceStart = matcher.start(sourceGroup);
+            sourceEnd = matcher.end(sourceGroup);
+            valueStart = valueGroup < 0 ? -1 : matcher.start(valueGroup);
+            valueEnd = valueGroup < 0 ? -1 : matcher.end(valueGroup);
+        }
+
+    }
+
+    void matchAll(int position) {
+
+        clear();
+
+        for (int i = 0; i < matchers.length; i++)
+            match(i, position);
+
+    }
+
+    void reject() {
+        pattern = -1;
+    }
+
+    int getPattern() {
+        return pattern;
+    }
+
+    int getSourceStart() {
+        return sourceStart;
+    }
+
+    int getSourceEnd() {
+        return sourceEnd;
+    }
+
+    int getLength() {
+        return sourceEnd - sourceStart;
+    }
+
+    int getValueStart() {
+        return valueStart;
+    }
+
+    int getValueEnd() {
+        return valueEnd;
+    }
+
+    /*
+        Whether any pattern tried since clear() looked at the end of the text, so that more text could change
+        the match.
+    */
+    boolean isHitEnd() {
+        return hitEnd;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import simplegrammar.OptionToken.Match;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+final class TokenSet {
+
+    private final BitSet names;
+    private final BitSet[] values;
+    private boolean any;
+    private boolean end;
+
+    public TokenSet(int nameCount) {
+        names = new BitSet(nameCount);
+        values = new BitSet[nameCount];
+    }
+
+    private static void writeBits(DataOutputStream output, BitSet bits) throws IOException {
+
+        long[] words = bits.toLongArray();
+
+        output.writeInt(words.length);
+
+        for (long word : words)
+            output.writeLong(word);
+
+    }
+
+    private static BitSet readBits(ByteBuffer input) {
+
+        long[] words = new long[GrammarFile.readCount(input, 8)];
+
+        for (int i = 0; i < words.length; i++)
+            words[i] = input.getLong();
+
+        return BitSet.valueOf(words);
+
+    }
+
+    void write(DataOutputStream output) throws IOException {
+
+        output.writeByte((any ? 1 : 0) | (end ? 2 : 0));
+        writeBits(output, names);
+
+        int valueCount = 0;
+
+        for (BitSet tokenValues : values)
+            if (tokenValues != null)
+                valueCount++;
+
+        output.writeInt(valueCount);
+
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null) {
+                output.writeInt(i);
+                writeBits(output, values[i]);
+            }
+
+    }
+
+    static TokenSet read(ByteBuffer input, int nameCount) {
+
+        TokenSet tokens = new TokenSet(nameCount);
+        byte flags = input.get();
+
+        tokens.any = (flags & 1) != 0;
+        tokens.end = (flags & 2) != 0;
+        tokens.names.or(readBits(input));
+
+        for (int i = GrammarFile.readCount(input, 8); i > 0; i--) {
+            int nameId = input.getInt();
+            tokens.values[nameId] = readBits(input);
+        }
+
+        return tokens;
+
+    }
+
+    public boolean add(OptionToken token) {
+
+        if (token.getName() == null) {
+
+            if (any)
+                return false;
+
+            any = true;
+            return true;
+
+        } else if (token.getValue() == null) {
+
+            if (names.get(token.getNameId()))
+                return false;
+
+            names.set(token.getNameId());
+            return true;
+
+        } else {
+
+            if (values[token.getNameId()] == null)
+                values[token.getNameId()] = new BitSet();
+            else if (values[token.getNameId()].get(token.getValueId()))
+                return false;
+
+            values[token.getNameId()].set(token.getValueId());
+            return true;
+
+        }
+
+    }
+
+    public boolean addEnd() {
+
+        if (end)
+            return false;
+
+        end = true;
+        return true;
+
+    }
+
+    private static boolean contains(BitSet set, BitSet subset) {
+        BitSet difference = (BitSet)subset.clone();
+        difference.andNot(set);
+        return difference.isEmpty();
+    }
+
+    public boolean addAll(TokenSet tokens) {
+
+        boolean changed = false;
+
+        if (tokens.any && !any) {
+            any = true;
+            changed = true;
+        }
+
+        if (tokens.end && !end) {
+            end = true;
+            changed = true;
+        }
+
+        if (!contains(names, tokens.names)) {
+            names.or(tokens.names);
+            changed = true;
+        }
+
+        for (int i = 0; i < values.length; i++)
+            if (tokens.values[i] != null) {
+
+                if (values[i] == null)
+                    values[i] = new BitSet();
+                else if (contains(values[i], tokens.values[i]))
+                    continue;
+
+                values[i].or(tokens.values[i]);
+                changed = true;
+
+            }
+
+        return changed;
+
+    }
+
+    /*
+        Checks whether any token matched by the element is in the set.
+    */
+    public boolean overlaps(OptionToken token) {
+
+        if (any)
+            return true;
+        else if (token.getName() == null)
+            return !names.isEmpty() || hasValues();
+        else if (names.get(token.getNameId()))
+            return true;
+        else if (values[token.getNameId()] == null)
+            return false;
+        else
+            return token.getValue() == null || values[token.getNameId()].get(token.getValueId());
+
+    }
+
+    private boolean hasValues() {
+
+        for (BitSet tokenValues : values)
+            if (tokenValues != null)
+                return true;
+
+        return false;
+
+    }
+
+    BitSet getValues(int nameId) {
+        return values[nameId] == null ? new BitSet() : (BitSet) values[nameId].clone();
+    }
+
+    public boolean containsEnd() {
+        return end;
+    }
+
+    /*
+        The token must be stamped with the grammar symbols.
+    */
+    public Match match(Token token) {
+
+        if (token instanceof TokenStreamEnd)
+            return Match.NONE;
+
+        int nameId = token.getNameId();
+
+        if (nameId < 0)
+            return any ? Match.ANY : Match.NONE;
+        else if (values[nameId] != null && token.getValueId() >= 0 && values[nameId].get(token.getValueId()))
+            return Match.VALUE;
+        else if (names.get(nameId))
+            return Match.NAME;
+        else if (any)
+            return Match.ANY;
+        else
+            return Match.NONE;
+
+    }
+
+}
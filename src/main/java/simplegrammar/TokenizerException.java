@@ -15,24 +15,10 @@
 */
 package simplegrammar;
 
-import simplegrammar.OptionToken.Match;
+public class TokenizerException extends RuntimeException {
 
-import java.util.ArrayList;
-
-public class MatchingElementStacks extends ArrayList<ElementStack> {
-    
-    private Match bestMatch;
-    
-    public MatchingElementStacks() {
-        bestMatch = Match.NONE;
-    }
-
-    public Match getBestMatch() {
-        return bestMatch;
+    public TokenizerException(Exception cause) {
+        super(cause.getMessage(), cause);
     }
 
-    public void setBestMatch(Match match) {
-        this.bestMatch = match;
-    }
-    
 }
@@ -0,0 +1,38 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+/*
+    Prints every parse event to the standard output, for debugging small inputs.
+*/
+class TraceObserver implements ParseObserver {
+
+    @Override
+    public void prediction(String ruleName, int peekDepth, int configurationCount) {
+        System.out.println("predict {" + ruleName + "} peek depth " + peekDepth + ", configurations " + configurationCount);
+    }
+
+    @Override
+    public void expansion(String ruleName, int elementCount, boolean output) {
+        System.out.println("expand {" + ruleName + "} " + elementCount + " elements" + (output ? ", output" : ""));
+    }
+
+    @Override
+    public void token(String ruleName, Token token, int nodeCount) {
+        System.out.println(token.getName() + ":" + token.getValue() + " in {" + ruleName + "}");
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.List;
+
+public class TreeBuilder implements ParseListener {
+
+    private final SyntaxTreeNodeStack treeNodeStack;
+    private SyntaxTreeNode syntaxTree;
+
+    public TreeBuilder() {
+        treeNodeStack = new SyntaxTreeNodeStack();
+    }
+
+    TreeBuilder(SyntaxTreeNode[] openNodes) {
+
+        treeNodeStack = new SyntaxTreeNodeStack();
+        syntaxTree = openNodes[0];
+
+        for (SyntaxTreeNode node : openNodes)
+            treeNodeStack.push(node);
+
+    }
+
+    SyntaxTreeNode[] getOpenNodes() {
+        return treeNodeStack.toArray();
+    }
+
+    public SyntaxTreeNode getSyntaxTree() {
+        return syntaxTree;
+    }
+
+    @Override
+    public void enterRule(String ruleName) {
+
+        if (syntaxTree == null) {
+            syntaxTree = new SyntaxTreeNode(ruleName);
+            treeNodeStack.push(syntaxTree);
+        } else
+            treeNodeStack.push(treeNodeStack.peek().addChildNode(ruleName));
+
+    }
+
+    @Override
+    public void exitRule(String ruleName) {
+        treeNodeStack.pop();
+    }
+
+    void lazyRule(CompiledGrammar grammar, String ruleName, List<Token> tokens) {
+        treeNodeStack.peek().getChildNodes().add(new LazySyntaxTreeNode(grammar, ruleName, tokens));
+    }
+
+    @Override
+    public void token(Token token, boolean outputName, boolean outputValue) {
+
+        SyntaxTreeNode parentNode = treeNodeStack.peek();
+
+        if (outputName)
+            parentNode = parentNode.addChildNode(token.getName());
+
+        if (outputValue)
+            parentNode.addChildNode(token.getValue());
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Compiled path of child node values separated by slashes, e.g. "package_body/procedure/name". The "*" step
+    matches a child with any value. Steps are applied level by level starting from the children of the given node,
+    so a query visits every matching node only once.
+*/
+public final class TreePath {
+
+    private static final String ANY = "*";
+
+    private final String[] steps;
+
+    private TreePath(String[] steps) {
+        this.steps = steps;
+    }
+
+    public static TreePath compile(String path) {
+
+        List<String> steps = new ArrayList<>();
+
+        for (String step : path.split("/"))
+            if (!step.isEmpty())
+                steps.add(step);
+
+        if (steps.isEmpty())
+            throw new IllegalArgumentException("Empty path \"" + path + "\"!");
+
+        return new TreePath(steps.toArray(new String[steps.size()]));
+
+    }
+
+    public List<SyntaxTreeNode> select(SyntaxTreeNode node) {
+
+        List<SyntaxTreeNode> nodes = Collections.singletonList(node);
+
+        for (String step : steps) {
+
+            List<SyntaxTreeNode> matchingNodes = new ArrayList<>();
+
+            for (SyntaxTreeNode parentNode : nodes)
+                if (ANY.equals(step))
+                    matchingNodes.addAll(parentNode.getChildNodes());
+                else
+                    for (int position : parentNode.getChildPositions(step))
+                        matchingNodes.add(parentNode.getChildNodes().get(position));
+
+            if (matchingNodes.isEmpty())
+                return matchingNodes;
+
+            nodes = matchingNodes;
+
+        }
+
+        return nodes;
+
+    }
+
+    public SyntaxTreeNode selectFirst(SyntaxTreeNode node) {
+
+        List<SyntaxTreeNode> nodes = select(node);
+
+        return nodes.isEmpty() ? null : nodes.get(0);
+
+    }
+
+    public int[] select(CompactSyntaxTree tree, int node) {
+
+        int[] valueIds = new int[steps.length];
+
+        for (int i = 0; i < steps.length; i++)
+            if (ANY.equals(steps[i]))
+                valueIds[i] = -1;
+            else if ((valueIds[i] = tree.findValueId(steps[i])) < 0)
+                return new int[0];
+
+        int[] nodes = {node};
+        int nodeCount = 1;
+
+        for (int valueId : valueIds) {
+
+            int[] matchingNodes = new int[16];
+            int matchingNodeCount = 0;
+
+            for (int i = 0; i < nodeCount; i++)
+                for (int child = tree.getFirstChild(nodes[i]); child >= 0; child = tree.getNextSibling(child))
+                    if (valueId < 0 || tree.getValueId(child) == valueId) {
+
+                        if (matchingNodeCount == matchingNodes.length)
+                            matchingNodes = Arrays.copyOf(matchingNodes, matchingNodeCount * 2);
+
+                        matchingNodes[matchingNodeCount++] = child;
+
+                    }
+
+            nodes = matchingNodes;
+            nodeCount = matchingNodeCount;
+
+        }
+
+        return Arrays.copyOf(nodes, nodeCount);
+
+    }
+
+    public int[] select(CompactSyntaxTree tree) {
+        return tree.getNodeCount() == 0 ? new int[0] : select(tree, 0);
+    }
+
+}
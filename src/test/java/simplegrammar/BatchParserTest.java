@@ -0,0 +1,111 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchParserTest {
+
+    private PatternTokenizer template;
+    private TestGrammar grammar;
+    private BatchParser parser;
+    private List<String> sources;
+
+    @Before
+    public void createSources() throws Exception {
+
+        template = TestGrammar.createJsonTokenizer();
+        grammar = new TestGrammar(TestGrammar.JSON);
+        parser = new BatchParser(grammar.compile(), template);
+        sources = new ArrayList<>();
+
+        Random random = new Random(1);
+
+        for (int i = 0; i < 500; i++) {
+
+            StringBuilder source = new StringBuilder("[").append(i);
+
+            for (int j = random.nextInt(20); j > 0; j--)
+                source.append(", {\"k").append(j).append("\": [").append(random.nextInt(100)).append("]}");
+
+            /* Every tenth source is broken, its failure must stay in place as well. */
+            sources.add(i % 10 == 9 ? source.toString() : source.append("]").toString());
+
+        }
+
+    }
+
+    private String describe(ParseResult result) {
+        return result.isSuccessful() ? TestGrammar.dump(result.getSyntaxTree()) : result.getException().getMessage();
+    }
+
+    private void assertSequentialOrder(List<ParseResult> results) throws Exception {
+
+        assertEquals(sources.size(), results.size());
+
+        for (int i = 0; i < sources.size(); i++) {
+
+            String expected;
+
+            try {
+                expected = TestGrammar.dump(grammar.parse(TestGrammar.tokenize(template, sources.get(i))));
+            } catch (ParseException exception) {
+                expected = exception.getMessage();
+            }
+
+            assertEquals(sources.get(i), expected, describe(results.get(i)));
+
+        }
+
+    }
+
+    @Test
+    public void forkJoinKeepsOrder() throws Exception {
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            assertSequentialOrder(parser.parseAll(sources, pool));
+        } finally {
+            pool.shutdown();
+        }
+
+    }
+
+    @Test
+    public void executorKeepsOrder() throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            assertSequentialOrder(parser.parseAll(sources, executor, 4));
+        } finally {
+            executor.shutdown();
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class CompactSyntaxTreeTest {
+
+    /*
+        root
+          item
+            name
+          item
+            name
+          other
+    */
+    private static CompactSyntaxTree createTree() {
+
+        CompactTreeBuilder builder = new CompactTreeBuilder();
+
+        builder.enterRule("root");
+
+        for (int i = 0; i < 2; i++) {
+            builder.enterRule("item");
+            builder.enterRule("name");
+            builder.exitRule("name");
+            builder.exitRule("item");
+        }
+
+        builder.enterRule("other");
+        builder.exitRule("other");
+        builder.exitRule("root");
+
+        return builder.getSyntaxTree();
+
+    }
+
+    @Test
+    public void nodesKeepIdentity() {
+
+        CompactSyntaxTree tree = createTree();
+        SyntaxTreeNode root = tree.toSyntaxTreeNode();
+
+        assertSame(root, tree.toSyntaxTreeNode(0));
+        assertSame(root.getChildNodes().get(0), root.getChildNodes().get(0));
+        assertSame(tree.toSyntaxTreeNode(1), root.getChildNode("item"));
+        assertSame(root.getChildNode(2), root.getChildNode("other"));
+
+        List<SyntaxTreeNode> names = root.select("item/name");
+
+        assertEquals(2, names.size());
+        assertSame(root.getChildNode(0).getChildNode(0), names.get(0));
+        assertSame(root.getChildNode(1).getChildNode(0), names.get(1));
+        assertEquals(names, root.select("*/name"));
+
+    }
+
+    @Test
+    public void childNodesAreReadOnly() {
+
+        SyntaxTreeNode root = createTree().toSyntaxTreeNode();
+
+        try {
+            root.getChildNodes().add(new SyntaxTreeNode("item"));
+            fail();
+        } catch (UnsupportedOperationException exception) {
+        }
+
+        assertEquals(3, root.getChildNodes().size());
+
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class CompiledGrammarTest {
+
+    @Test
+    public void changesDropCompiledGrammar() throws Exception {
+
+        TestGrammar grammar = new TestGrammar(TestGrammar.JSON);
+        Option option = grammar.createOption("value");
+        CompiledGrammar compiled = grammar.compile();
+
+        assertSame(compiled, grammar.compile());
+
+        option.addToken("word", false, "undefined", true);
+        CompiledGrammar changed = grammar.compile();
+
+        assertNotSame(compiled, changed);
+        assertEquals(-1, compiled.getSymbols().getValueId("undefined"));
+        assertEquals("json\n  undefined\n", TestGrammar.dump(changed.parse(TestGrammar.tokenize(TestGrammar.createJsonTokenizer(), "undefined"))));
+
+        grammar.setRootRuleName("value");
+
+        assertNotSame(changed, grammar.compile());
+        assertEquals("value", grammar.compile().getRootRuleName());
+
+    }
+
+    @Test
+    public void compiledOptionsCanNotBeChanged() throws Exception {
+
+        CompiledGrammar grammar = new TestGrammar(TestGrammar.JSON).compile();
+
+        try {
+            grammar.getRuleOptions(0)[0].addEmpty();
+            fail();
+        } catch (UnsupportedOperationException exception) {
+        }
+
+    }
+
+    @Test
+    public void concurrentParsesAgree() throws Exception {
+
+        final CompiledGrammar grammar = new TestGrammar(TestGrammar.JSON).compile();
+        final PatternTokenizer template = TestGrammar.createJsonTokenizer();
+        final String text = "[1, {\"a\": [2, {\"b\": true}]}, \"c\", null]";
+        final String expected = TestGrammar.dump(grammar.parse(TestGrammar.tokenize(template, text)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> trees = new ArrayList<>();
+
+        try {
+
+            for (int i = 0; i < 400; i++)
+                trees.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return TestGrammar.dump(grammar.parse(TestGrammar.tokenize(template, text)));
+                    }
+                }));
+
+            for (Future<String> tree : trees)
+                assertEquals(expected, tree.get());
+
+        } finally {
+            executor.shutdown();
+        }
+
+    }
+
+}
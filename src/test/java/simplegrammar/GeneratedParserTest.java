@@ -0,0 +1,215 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Scanner;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+    Compiles the parsers ParserGenerator produces for the benchmark grammars and compares them with
+    CompiledGrammar.parse, on generated inputs and on inputs with parts removed or repeated.
+*/
+public class GeneratedParserTest {
+
+    private static final int INPUT_COUNT = 300;
+    private static final String PACKAGE_NAME = "simplegrammar.generated";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String readGrammar(TestLanguage language) throws Exception {
+        try (InputStream input = GeneratedParserTest.class.getResourceAsStream(language.getGrammarResource())) {
+            return new Scanner(input, "UTF-8").useDelimiter("\\A").next();
+        }
+    }
+
+    /*
+        Generates the parser into a temporary folder, compiles it against the library and returns its parse method.
+    */
+    private Method generate(CompiledGrammar grammar, String className) throws Exception {
+
+        Path sourceDirectory = folder.newFolder("sources").toPath();
+        Path classDirectory = folder.newFolder("classes").toPath();
+        Path sourceFile = sourceDirectory.resolve(className + ".java");
+
+        Files.write(sourceFile, new ParserGenerator(grammar).generate(PACKAGE_NAME, className).getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String libraryPath = new File(CompiledGrammar.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+
+        int status = compiler.run(
+                null,
+                null,
+                null,
+                "-nowarn",
+                "-classpath", libraryPath,
+                "-d", classDirectory.toString(),
+                sourceFile.toString()
+        );
+
+        assertEquals(0, status);
+
+        ClassLoader loader = new URLClassLoader(new URL[] {classDirectory.toUri().toURL()}, GeneratedParserTest.class.getClassLoader());
+
+        return loader.loadClass(PACKAGE_NAME + "." + className).getMethod("parse", Tokenizer.class);
+
+    }
+
+    private static void describe(SyntaxTreeNode node, StringBuilder description, int depth) {
+
+        for (int i = 0; i < depth; i++)
+            description.append("  ");
+
+        description.append(node.getValue()).append('\n');
+
+        for (SyntaxTreeNode childNode : node.getChildNodes())
+            describe(childNode, description, depth + 1);
+
+    }
+
+    private static String describe(SyntaxTreeNode tree) {
+        StringBuilder description = new StringBuilder();
+        describe(tree, description, 0);
+        return description.toString();
+    }
+
+    /*
+        Exceptions are described with their class, prefixed with "!".
+    */
+    private static String describe(ParseException exception) {
+        return "!" + exception.getClass().getName() + ": " + exception.getMessage();
+    }
+
+    private static PatternTokenizer tokenize(TestLanguage language, CompiledGrammar grammar, String input) throws ParseException {
+
+        PatternTokenizer tokenizer = language.createTokenizer();
+        tokenizer.setSymbols(grammar.getSymbols());
+        tokenizer.parse(input);
+
+        return tokenizer;
+
+    }
+
+    private static String mutate(Random random, String source, int mutationCount) {
+
+        for (int i = 0; i < mutationCount; i++) {
+
+            int start = random.nextInt(source.length());
+            int end = Math.min(source.length(), start + random.nextInt(8));
+
+            if (random.nextBoolean())
+                source = source.substring(0, start) + source.substring(end);
+            else
+                source = source.substring(0, end) + source.substring(start);
+
+        }
+
+        return source;
+
+    }
+
+    private void compare(TestLanguage language, String className) throws Exception {
+
+        CompiledGrammar grammar = new TestGrammar(readGrammar(language)).compile();
+        Method generatedParser = generate(grammar, className);
+        CompiledGrammar generatedGrammar = (CompiledGrammar) generatedParser.getDeclaringClass().getField("GRAMMAR").get(null);
+
+        Random random = new Random(1);
+        int validCount = 0;
+        int invalidCount = 0;
+
+        for (int i = 0; i < INPUT_COUNT; i++) {
+
+            StringBuilder source = new StringBuilder();
+            language.generate(random, source, 50 + random.nextInt(2000));
+
+            String input = mutate(random, source.toString(), i % 3);
+            PatternTokenizer tokens;
+            PatternTokenizer generatedTokens;
+
+            try {
+                tokens = tokenize(language, grammar, input);
+                generatedTokens = tokenize(language, generatedGrammar, input);
+            } catch (ParseException exception) {
+                continue;
+            }
+
+            String expected;
+            String actual;
+
+            try {
+                expected = describe(grammar.parse(tokens));
+                validCount++;
+            } catch (ParseException exception) {
+                expected = describe(exception);
+                invalidCount++;
+            }
+
+            try {
+                actual = describe((SyntaxTreeNode) generatedParser.invoke(null, generatedTokens));
+            } catch (InvocationTargetException exception) {
+
+                if (!(exception.getCause() instanceof ParseException))
+                    throw exception;
+
+                actual = describe((ParseException) exception.getCause());
+
+            }
+
+            assertEquals(input, expected, actual);
+
+        }
+
+        assertTrue(validCount > 0);
+        assertTrue(invalidCount > 0);
+
+    }
+
+    @Test
+    public void json() throws Exception {
+        compare(TestLanguage.JSON, "JsonParser");
+    }
+
+    @Test
+    public void expr() throws Exception {
+        compare(TestLanguage.EXPR, "ExprParser");
+    }
+
+    @Test
+    public void plsql() throws Exception {
+        compare(TestLanguage.PLSQL, "PlsqlParser");
+    }
+
+}
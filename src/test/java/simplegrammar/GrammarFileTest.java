@@ -0,0 +1,106 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GrammarFileTest {
+
+    private static final String TEXT = "[1, {\"a\": [2.5, {\"b\": true}], \"c\": null}, \"x\"]";
+
+    private PatternTokenizer template;
+    private CompiledGrammar grammar;
+    private byte[] bytes;
+
+    @Before
+    public void saveGrammar() throws Exception {
+
+        TestGrammar source = new TestGrammar(TestGrammar.JSON);
+        source.createLazyRule("object").addOpening("punct", "{").addClosing("punct", "}");
+
+        template = TestGrammar.createJsonTokenizer();
+        grammar = source.compile();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        grammar.save(output);
+        bytes = output.toByteArray();
+
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+
+        CompiledGrammar loaded = CompiledGrammar.load(ByteBuffer.wrap(bytes));
+
+        assertEquals(
+                TestGrammar.dump(grammar.parse(TestGrammar.tokenize(template, TEXT))),
+                TestGrammar.dump(loaded.parse(TestGrammar.tokenize(template, TEXT)))
+        );
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        loaded.save(output);
+
+        assertTrue(Arrays.equals(bytes, output.toByteArray()));
+
+    }
+
+    @Test
+    public void truncatedFile() {
+
+        for (int length = 0; length < bytes.length; length++)
+            try {
+                CompiledGrammar.load(ByteBuffer.wrap(bytes, 0, length));
+                fail("Truncated at " + length);
+            } catch (GrammarException exception) {
+                assertEquals("Compiled grammar file is corrupt!", exception.getMessage());
+                assertTrue(exception.getCause() != null);
+            }
+
+    }
+
+    @Test
+    public void corruptCountsAreRejected() {
+
+        /* The rule name count follows the magic, the version and the root rule name, then the first name length. */
+        int countOffset = 12 + grammar.getRootRuleName().length();
+
+        for (int offset : new int[] {countOffset, countOffset + 4})
+            for (int value : new int[] {Integer.MAX_VALUE, bytes.length, -2}) {
+
+                ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone());
+                corrupt.putInt(offset, value);
+
+                try {
+                    CompiledGrammar.load(corrupt);
+                    fail("Count " + value + " at " + offset);
+                } catch (GrammarException exception) {
+                    assertEquals("Compiled grammar file is corrupt!", exception.getMessage());
+                }
+
+            }
+
+    }
+
+}
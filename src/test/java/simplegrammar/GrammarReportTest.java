@@ -0,0 +1,136 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class GrammarReportTest {
+
+    private static final String FLAGS = "\"contextDependent\": false, \"ambiguous\": %s, \"unbounded\": false, \"explosive\": false}";
+
+    private static String rule(String name, int maxLookahead, int maxConfigurations, boolean leftRecursive, boolean ambiguous) {
+        return String.format(
+                "    {\"name\": \"%s\", \"maxLookahead\": %d, \"maxConfigurations\": %d, \"leftRecursive\": %s, " + FLAGS,
+                name,
+                maxLookahead,
+                maxConfigurations,
+                leftRecursive,
+                ambiguous
+        );
+    }
+
+    @Test
+    public void leftRecursion() throws Exception {
+
+        GrammarReport report = new TestGrammar(
+                "expr: expr {op,\"+\"} term;",
+                "expr: term;",
+                "term: {number};"
+        ).analyze();
+
+        assertEquals(
+                "{\n"
+                        + "  \"rules\": [\n"
+                        + rule("expr", -1, 0, true, false) + ",\n"
+                        + rule("term", 1, 1, false, false) + "\n"
+                        + "  ],\n"
+                        + "  \"leftRecursion\": [\n"
+                        + "    [\"expr\"]\n"
+                        + "  ],\n"
+                        + "  \"nullableLoops\": [],\n"
+                        + "  \"problems\": true\n"
+                        + "}\n",
+                report.toJson()
+        );
+
+    }
+
+    @Test
+    public void ambiguity() throws Exception {
+
+        GrammarReport report = new TestGrammar(
+                "list: first;",
+                "list: second;",
+                "first: {id};",
+                "second: {id};"
+        ).analyze();
+
+        assertEquals(
+                "{\n"
+                        + "  \"rules\": [\n"
+                        + rule("list", -1, 2, false, true) + ",\n"
+                        + rule("first", 1, 1, false, false) + ",\n"
+                        + rule("second", 1, 1, false, false) + "\n"
+                        + "  ],\n"
+                        + "  \"leftRecursion\": [],\n"
+                        + "  \"nullableLoops\": [],\n"
+                        + "  \"problems\": true\n"
+                        + "}\n",
+                report.toJson()
+        );
+
+    }
+
+    @Test
+    public void nullableLoop() throws Exception {
+
+        GrammarReport report = new TestGrammar(
+                "list: ^;",
+                "list: items list;",
+                "items: ^;",
+                "items: {id} items;"
+        ).analyze();
+
+        assertEquals(Collections.singletonList(Arrays.asList("list")), report.getNullableLoops());
+        assertEquals(Collections.singletonList(Arrays.asList("list")), report.getLeftRecursiveCycles());
+
+    }
+
+    @Test
+    public void longerLookaheadIsNoProblem() throws Exception {
+
+        GrammarReport report = new TestGrammar(
+                "list: first;",
+                "list: second;",
+                "first: {id} {op,\"=\"};",
+                "second: {id} {op,\"+\"};"
+        ).analyze();
+
+        assertEquals(2, report.getRule("list").getMaxLookahead());
+        assertFalse(report.getRule("list").isAmbiguous());
+        assertFalse(report.hasProblems());
+
+    }
+
+    @Test
+    public void jsonNeedsOneToken() throws Exception {
+
+        GrammarReport report = new TestGrammar(TestGrammar.JSON).analyze();
+
+        for (GrammarReport.RuleReport rule : report.getRules())
+            assertEquals(rule.getRuleName(), 1, rule.getMaxLookahead());
+
+        assertFalse(report.hasProblems());
+
+    }
+
+}
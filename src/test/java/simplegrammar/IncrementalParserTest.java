@@ -0,0 +1,105 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalParserTest {
+
+    private static final String[] INSERTIONS = {"", "1", ", 2", "{\"x\": [3]}", "]", "\"y\": ", "true, ", " "};
+
+    private CompiledGrammar grammar;
+    private PatternTokenizer template;
+    private IncrementalParser parser;
+
+    @Before
+    public void createParser() throws Exception {
+        grammar = new TestGrammar(TestGrammar.JSON).compile();
+        template = TestGrammar.createJsonTokenizer();
+        parser = new IncrementalParser(grammar, template);
+    }
+
+    private static String describe(IncrementalParse parse) {
+
+        if (!parse.isSuccessful())
+            return "!" + parse.getException().getMessage();
+
+        StringBuilder description = new StringBuilder(TestGrammar.dump(parse.getSyntaxTree()));
+
+        for (Token token : parse.getTokens())
+            description.append(token.getValue()).append('@').append(token.getLine()).append(':').append(token.getPosition()).append(' ');
+
+        return description.toString();
+
+    }
+
+    @Test
+    public void reparseMatchesFullParse() {
+
+        Random random = new Random(1);
+        int successCount = 0;
+
+        for (int i = 0; i < 50; i++) {
+
+            StringBuilder source = new StringBuilder();
+            TestLanguage.JSON.generate(random, source, 200 + random.nextInt(2000));
+
+            IncrementalParse parse = parser.parse(source.toString());
+
+            for (int j = 0; j < 20; j++) {
+
+                String text = parse.getText();
+                int offset = random.nextInt(text.length() + 1);
+                int removedLength = random.nextInt(Math.min(10, text.length() - offset) + 1);
+                String insertedText = INSERTIONS[random.nextInt(INSERTIONS.length)];
+
+                parse = parser.reparse(parse, offset, removedLength, insertedText);
+
+                assertEquals(text.substring(0, offset) + insertedText + text.substring(offset + removedLength), parse.getText());
+                assertEquals(parse.getText(), describe(parser.parse(parse.getText())), describe(parse));
+
+                if (parse.isSuccessful())
+                    successCount++;
+
+            }
+
+        }
+
+        assertTrue(successCount > 0);
+
+    }
+
+    @Test
+    public void supersededParseIsParsedAgain() {
+
+        IncrementalParse first = parser.parse("[1, 2, 3]");
+        IncrementalParse second = parser.reparse(first, 4, 1, "20");
+        IncrementalParse third = parser.reparse(first, 1, 1, "10");
+
+        assertEquals("[1, 20, 3]", second.getText());
+        assertEquals("[10, 2, 3]", third.getText());
+        assertEquals(describe(parser.parse("[1, 20, 3]")), describe(second));
+        assertEquals(describe(parser.parse("[10, 2, 3]")), describe(third));
+
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramHasNoQuantiles() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertTrue(Double.isNaN(histogram.getQuantile(0.5)));
+
+        histogram.record(100);
+        histogram.reset();
+
+        assertTrue(Double.isNaN(histogram.getQuantile(0.99)));
+
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < 16; i++)
+            histogram.record(i);
+
+        assertEquals(0, histogram.getQuantile(0), 0);
+        assertEquals(7, histogram.getQuantile(0.5), 0);
+        assertEquals(15, histogram.getQuantile(1), 0);
+
+    }
+
+    @Test
+    public void quantilesAreWithinRelativeError() {
+
+        Random random = new Random(1);
+
+        for (int i = 0; i < 50; i++) {
+
+            LatencyHistogram histogram = new LatencyHistogram();
+            long[] values = new long[1 + random.nextInt(2000)];
+
+            /* Log-uniform from nanoseconds to minutes. */
+            for (int j = 0; j < values.length; j++) {
+                values[j] = (long) Math.pow(2, random.nextDouble() * 36);
+                histogram.record(values[j]);
+            }
+
+            Arrays.sort(values);
+
+            for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999, 1}) {
+
+                long expected = values[(int) Math.max(1, Math.ceil(quantile * values.length)) - 1];
+
+                assertEquals(quantile + " of " + values.length, expected, histogram.getQuantile(quantile), expected / 16.0);
+
+            }
+
+        }
+
+    }
+
+    @Test
+    public void concurrentRecordsAreCounted() throws Exception {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; i++) {
+
+            final long value = 1000 * (i + 1);
+
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++)
+                        histogram.record(value);
+                }
+            };
+
+            threads[i].start();
+
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(1000, histogram.getQuantile(0.25), 1000 / 16.0);
+        assertEquals(2000, histogram.getQuantile(0.5), 2000 / 16.0);
+        assertEquals(3000, histogram.getQuantile(0.5001), 3000 / 16.0);
+        assertEquals(4000, histogram.getQuantile(1), 4000 / 16.0);
+
+    }
+
+}
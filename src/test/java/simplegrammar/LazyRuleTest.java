@@ -0,0 +1,97 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyRuleTest {
+
+    private static final String TEXT = "[1, {\"a\": [2, {\"b\": 3}]}, 4]";
+
+    private PatternTokenizer template;
+    private String eagerTree;
+
+    @Before
+    public void parseEagerly() throws Exception {
+        template = TestGrammar.createJsonTokenizer();
+        eagerTree = TestGrammar.dump(new TestGrammar(TestGrammar.JSON).parse(TestGrammar.tokenize(template, TEXT)));
+    }
+
+    private static TestGrammar createLazyGrammar() throws Exception {
+
+        TestGrammar grammar = new TestGrammar(TestGrammar.JSON);
+        grammar.createLazyRule("object").addOpening("punct", "{").addClosing("punct", "}");
+
+        return grammar;
+
+    }
+
+    @Test
+    public void placeholderIsParsedOnDemand() throws Exception {
+
+        SyntaxTreeNode tree = createLazyGrammar().parse(TestGrammar.tokenize(template, TEXT));
+        SyntaxTreeNode object = tree.getChildNode(0).getChildNode(1);
+
+        assertTrue(object instanceof LazySyntaxTreeNode);
+        assertEquals("object", object.getValue());
+        assertFalse(((LazySyntaxTreeNode)object).isParsed());
+        assertEquals(13, ((LazySyntaxTreeNode)object).getTokens().size());
+
+        assertEquals("member", object.getChildNode(0).getValue());
+        assertTrue(((LazySyntaxTreeNode)object).isParsed());
+        assertEquals(eagerTree, TestGrammar.dump(tree));
+
+    }
+
+    @Test
+    public void invalidRegionFailsOnAccess() throws Exception {
+
+        SyntaxTreeNode tree = createLazyGrammar().parse(TestGrammar.tokenize(template, "[{\"a\" 1}]"));
+        SyntaxTreeNode object = tree.getChildNode(0).getChildNode(0);
+
+        try {
+            object.getChildNodes();
+            fail();
+        } catch (IllegalStateException exception) {
+            assertEquals("Lazy rule \"object\" could not be parsed!", exception.getMessage());
+            assertTrue(exception.getCause() instanceof ParseException);
+        }
+
+    }
+
+    @Test
+    public void delimitersAddedAfterCompileApply() throws Exception {
+
+        TestGrammar grammar = new TestGrammar(TestGrammar.JSON);
+        LazyRule lazyRule = grammar.createLazyRule("object");
+        grammar.compile();
+
+        lazyRule.addOpening("punct", "{").addClosing("punct", "}");
+
+        SyntaxTreeNode tree = grammar.parse(TestGrammar.tokenize(template, TEXT));
+
+        assertTrue(tree.getChildNode(0).getChildNode(1) instanceof LazySyntaxTreeNode);
+        assertEquals(eagerTree, TestGrammar.dump(tree));
+
+    }
+
+}
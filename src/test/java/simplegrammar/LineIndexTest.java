@@ -0,0 +1,88 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineIndexTest {
+
+    @Test
+    public void offsetsMatchCountedLines() {
+
+        Random random = new Random(1);
+
+        for (int i = 0; i < 200; i++) {
+
+            StringBuilder text = new StringBuilder();
+
+            for (int j = random.nextInt(100); j > 0; j--)
+                text.append(random.nextInt(4) == 0 ? '\n' : 'x');
+
+            LineIndex lineIndex = new LineIndex(text);
+            int line = 1;
+            int position = 1;
+
+            for (int offset = 0; offset <= text.length(); offset++) {
+
+                assertEquals(text + "@" + offset, line, lineIndex.getLine(offset));
+                assertEquals(text + "@" + offset, position, lineIndex.getPosition(offset));
+
+                if (offset < text.length() && text.charAt(offset) == '\n') {
+                    line++;
+                    position = 1;
+                } else
+                    position++;
+
+            }
+
+        }
+
+    }
+
+    @Test
+    public void startShiftsFirstLineOnly() {
+
+        LineIndex lineIndex = new LineIndex("ab\ncd", 10, 5);
+
+        assertEquals(10, lineIndex.getLine(1));
+        assertEquals(6, lineIndex.getPosition(1));
+        assertEquals(11, lineIndex.getLine(4));
+        assertEquals(2, lineIndex.getPosition(4));
+
+    }
+
+    @Test
+    public void tokensResolveLinesLazily() throws ParseException {
+
+        PatternTokenizer tokenizer = TestGrammar.createJsonTokenizer();
+        tokenizer.parse("[1,\n  2,\n\n 3]", 3, 7);
+
+        StringBuilder description = new StringBuilder();
+
+        while (tokenizer.hasNext()) {
+            Token token = tokenizer.get();
+            description.append(token.getSource()).append('@').append(token.getLine()).append(':').append(token.getPosition()).append(' ');
+        }
+
+        assertEquals("[@3:7 1@3:8 ,@3:9 2@4:3 ,@4:4 3@6:2 ]@6:3 ", description.toString());
+
+    }
+
+}
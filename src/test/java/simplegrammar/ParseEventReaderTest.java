@@ -0,0 +1,84 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParseEventReaderTest {
+
+    /*
+        Replays the events of a reader into a tree builder.
+    */
+    private static SyntaxTreeNode read(ParseEventReader reader) throws ParseException {
+
+        TreeBuilder builder = new TreeBuilder();
+
+        while (reader.hasNext())
+            switch (reader.next()) {
+                case START_RULE:
+                    builder.enterRule(reader.getRuleName());
+                    break;
+                case END_RULE:
+                    builder.exitRule(reader.getRuleName());
+                    break;
+                default:
+                    builder.token(reader.getToken(), reader.isOutputName(), reader.isOutputValue());
+            }
+
+        return builder.getSyntaxTree();
+
+    }
+
+    private static void assertSameTree(Grammar grammar, PatternTokenizer template, String text) throws Exception {
+
+        String expected = TestGrammar.dump(grammar.parse(TestGrammar.tokenize(template, text)));
+        String actual = TestGrammar.dump(read(grammar.createEventReader(TestGrammar.tokenize(template, text))));
+
+        assertEquals(text, expected, actual);
+
+    }
+
+    @Test
+    public void deepRuleChain() throws Exception {
+
+        StringBuilder definition = new StringBuilder();
+
+        for (int i = 0; i < 12; i++)
+            definition.append("r").append(i).append("+: r").append(i + 1).append(";\n");
+
+        definition.append("r12+: {id,+};");
+
+        PatternTokenizer template = new PatternTokenizer();
+        template.addTokenPattern("id", "([a-z]+)");
+
+        assertSameTree(new TestGrammar(definition.toString()), template, "a");
+
+    }
+
+    @Test
+    public void nestedJson() throws Exception {
+
+        Grammar grammar = new TestGrammar(TestGrammar.JSON);
+        PatternTokenizer template = TestGrammar.createJsonTokenizer();
+
+        assertSameTree(grammar, template, "[[[[[[[[[[1]]]]]]]]]]");
+        assertSameTree(grammar, template, "{\"a\": [1, {\"b\": [true, null, {\"c\": {\"d\": [[\"e\"]]}}]}], \"f\": false}");
+
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ParseListenerTest {
+
+    private static class Recorder implements ParseListener {
+
+        final StringBuilder events = new StringBuilder();
+
+        @Override
+        public void enterRule(String ruleName) {
+            events.append('(').append(ruleName).append(' ');
+        }
+
+        @Override
+        public void exitRule(String ruleName) {
+            events.append(ruleName).append(") ");
+        }
+
+        @Override
+        public void token(Token token, boolean outputName, boolean outputValue) {
+            events.append(outputName ? token.getName() : "-").append(':').append(outputValue ? token.getValue() : "-").append(' ');
+        }
+
+    }
+
+    private static String record(String text) throws Exception {
+
+        Recorder recorder = new Recorder();
+        new TestGrammar(TestGrammar.JSON).parse(TestGrammar.tokenize(TestGrammar.createJsonTokenizer(), text), recorder);
+
+        return recorder.events.toString();
+
+    }
+
+    @Test
+    public void eventsFollowTheInput() throws Exception {
+
+        /* Tokens which are not output are reported as well, with both flags off. */
+        assertEquals(
+                "(json (array -:- -:1 -:- (object -:- (member -:a -:- -:true member) -:- object) -:- array) json) ",
+                record("[1, {\"a\": true}]")
+        );
+
+    }
+
+    @Test
+    public void listenerBuildsParseTree() throws Exception {
+
+        String text = "{\"a\": [1, 2, {\"b\": null}], \"c\": \"d\"}";
+        PatternTokenizer template = TestGrammar.createJsonTokenizer();
+        TestGrammar grammar = new TestGrammar(TestGrammar.JSON);
+        TreeBuilder builder = new TreeBuilder();
+
+        grammar.parse(TestGrammar.tokenize(template, text), builder);
+
+        assertEquals(TestGrammar.dump(grammar.parse(TestGrammar.tokenize(template, text))), TestGrammar.dump(builder.getSyntaxTree()));
+
+    }
+
+    @Test
+    public void eventsStopAtUnexpectedToken() throws Exception {
+
+        Recorder recorder = new Recorder();
+
+        try {
+            new TestGrammar(TestGrammar.JSON).parse(TestGrammar.tokenize(TestGrammar.createJsonTokenizer(), "[1 2]"), recorder);
+            fail();
+        } catch (ParseException exception) {
+            assertEquals("(json (array -:- -:1 ", recorder.events.toString());
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParseRecoveryTest {
+
+    private Grammar grammar;
+    private PatternTokenizer template;
+
+    @Before
+    public void createGrammar() throws Exception {
+        grammar = new TestGrammar(TestGrammar.JSON);
+        template = TestGrammar.createJsonTokenizer();
+    }
+
+    private ParseResult parseRecovering(String text) throws Exception {
+        return grammar.parseRecovering(TestGrammar.tokenize(template, text));
+    }
+
+    @Test
+    public void validInput() throws Exception {
+
+        String text = "{\"a\": [1, 2, {\"b\": null}], \"c\": true}";
+        ParseResult result = parseRecovering(text);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(TestGrammar.dump(grammar.parse(TestGrammar.tokenize(template, text))), TestGrammar.dump(result.getSyntaxTree()));
+
+    }
+
+    @Test
+    public void skippedTokensGoToErrorNode() throws Exception {
+
+        ParseResult result = parseRecovering("[1 2, 3]");
+
+        assertFalse(result.isSuccessful());
+        assertEquals("Unexpected number \"2\" at line 1, position 4!", result.getException().getMessage());
+        assertEquals("json\n  array\n    1\n    #error\n      number\n        2\n    3\n", TestGrammar.dump(result.getSyntaxTree()));
+
+    }
+
+    @Test
+    public void multipleErrors() throws Exception {
+
+        ParseResult result = parseRecovering("[1 2, 3 4]");
+
+        assertEquals(2, result.getErrors().size());
+        assertEquals("Unexpected number \"2\" at line 1, position 4!", result.getErrors().get(0).getMessage());
+        assertEquals("Unexpected number \"4\" at line 1, position 9!", result.getErrors().get(1).getMessage());
+        assertEquals(2, result.getSyntaxTree().select("array/#error").size());
+
+    }
+
+    @Test
+    public void unexpectedEnd() throws Exception {
+
+        ParseResult result = parseRecovering("[1,");
+
+        assertEquals(1, result.getErrors().size());
+        assertEquals("Unexpected end of the input!", result.getException().getMessage());
+        assertEquals(1, result.getSyntaxTree().select("array/#error").size());
+
+    }
+
+    /*
+        Random token soup: every parse has to terminate, and the first error has to be the one parse() reports.
+    */
+    @Test(timeout = 60000)
+    public void randomInputTerminates() throws Exception {
+
+        String[] words = {"[", "]", "{", "}", ",", ":", "1", "\"a\"", "true", "null"};
+        Random random = new Random(1);
+
+        for (int i = 0; i < 2000; i++) {
+
+            StringBuilder text = new StringBuilder();
+
+            for (int j = random.nextInt(30); j >= 0; j--)
+                text.append(words[random.nextInt(words.length)]).append(' ');
+
+            ParseResult result = parseRecovering(text.toString());
+            String expected;
+
+            try {
+                grammar.parse(TestGrammar.tokenize(template, text.toString()));
+                expected = null;
+            } catch (ParseException exception) {
+                expected = exception.getMessage();
+            }
+
+            assertEquals(text.toString(), expected, result.isSuccessful() ? null : result.getException().getMessage());
+
+        }
+
+    }
+
+}
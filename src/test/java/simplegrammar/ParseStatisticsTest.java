@@ -0,0 +1,86 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParseStatisticsTest {
+
+    private static int countNodes(SyntaxTreeNode node) {
+
+        int count = 0;
+
+        for (SyntaxTreeNode childNode : node.getChildNodes())
+            count += 1 + countNodes(childNode);
+
+        return count;
+
+    }
+
+    @Test
+    public void totalsMatchTheParse() throws Exception {
+
+        CompiledGrammar grammar = new TestGrammar(TestGrammar.JSON).compile();
+        PatternTokenizer tokenizer = TestGrammar.tokenize(TestGrammar.createJsonTokenizer(), "[1, {\"a\": true}]");
+        int tokenCount = tokenizer.getTokens().size();
+        ParseStatistics statistics = new ParseStatistics();
+
+        SyntaxTreeNode tree = grammar.parse(tokenizer, "json", statistics);
+        ParseStatistics.RuleStatistics total = statistics.getTotal();
+
+        assertEquals(tokenCount, total.getTokenCount());
+        assertEquals(countNodes(tree), total.getNodeCount());
+        assertEquals(1, total.getMaxPeekDepth());
+
+        assertEquals(4, statistics.getRuleStatistics("array").getTokenCount());
+        assertEquals(3, statistics.getRuleStatistics("member").getTokenCount());
+        assertEquals(2, statistics.getRuleStatistics("value").getPredictionCount());
+
+    }
+
+    @Test
+    public void repeatedPredictionIsCached() throws Exception {
+
+        CompiledGrammar grammar = new TestGrammar(
+                "list: first;",
+                "list: second;",
+                "first+: {id} {op,\"=\"};",
+                "second+: {id} {op,\"+\"};"
+        ).compile();
+
+        PatternTokenizer template = new PatternTokenizer();
+        template.addTokenPattern("id", "([a-z]+)");
+        template.addTokenPattern("op", "([=+])");
+
+        ParseStatistics first = new ParseStatistics();
+        ParseStatistics second = new ParseStatistics();
+
+        grammar.parse(TestGrammar.tokenize(template, "x+"), "list", first);
+        grammar.parse(TestGrammar.tokenize(template, "y+"), "list", second);
+
+        assertEquals(1, first.getRuleStatistics("list").getPredictionCount());
+        assertEquals(0, first.getRuleStatistics("list").getCachedPredictionCount());
+        assertEquals(2, first.getRuleStatistics("list").getMaxPeekDepth());
+
+        assertEquals(1, second.getRuleStatistics("list").getCachedPredictionCount());
+        assertEquals(0, second.getRuleStatistics("list").getConfigurationCount());
+        assertEquals(first.getTotal().getNodeCount(), second.getTotal().getNodeCount());
+
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PatternTokenizerTest {
+
+    private static PatternTokenizer createTemplate(boolean compiled) {
+
+        PatternTokenizer template = new PatternTokenizer();
+        template.addTokenPattern("whitespace", "\\s+");
+        template.addTokenPattern("comment", "/\\*.*?\\*/");
+        template.addTokenPattern("string", "'((?:[^']|'')*)'");
+        template.addTokenPattern("id", "([a-z][a-z0-9]*)");
+        template.addTokenPattern("number", "(\\d+(?:\\.\\d+)?)");
+        template.addTokenPattern("op", "([=<>()/*.;,+-])");
+        template.ignoreTokens("whitespace", "comment");
+        template.setCompiled(compiled);
+
+        return template;
+
+    }
+
+    private static List<String> describe(PatternTokenizer tokenizer) {
+
+        List<String> tokens = new ArrayList<>();
+
+        for (Token token : tokenizer.getTokens())
+            tokens.add(token.getName() + ":" + token.getValue() + ":" + token.getSource() + "@" + token.getLine() + ":"
+                    + token.getPosition() + ":" + ((SourceToken)token).getOffset());
+
+        return tokens;
+
+    }
+
+    /*
+        Tokens of a full parse of the text, null if the text can not be tokenized.
+    */
+    private static List<String> parse(PatternTokenizer template, String text) {
+
+        PatternTokenizer tokenizer = new PatternTokenizer(template);
+
+        try {
+            tokenizer.parse(text);
+        } catch (ParseException exception) {
+            return null;
+        }
+
+        return describe(tokenizer);
+
+    }
+
+    private static List<String> edit(PatternTokenizer tokenizer, int offset, int removedLength, String insertedText) {
+
+        try {
+            tokenizer.edit(offset, removedLength, insertedText);
+        } catch (ParseException exception) {
+            return null;
+        }
+
+        return describe(tokenizer);
+
+    }
+
+    /*
+        The keyword count moves the number pattern's states across the growth steps of the automaton arrays.
+    */
+    private static PatternTokenizer createKeywordTemplate(int keywordCount, boolean compiled) {
+
+        PatternTokenizer template = new PatternTokenizer();
+
+        for (int i = 0; i < keywordCount; i++)
+            template.addTokenPattern("keyword", "(kxy" + i + ")");
+
+        template.addTokenPattern("number", "(\\d+(?:\\.\\d+)?)");
+        template.addTokenPattern("whitespace", "\\s+");
+        template.addTokenPattern("id", "([a-z][a-z0-9]{0,3})");
+        template.addTokenPattern("string", "'((?:[^']|'')*)'");
+        template.addTokenPattern("op", "(==?|[.])");
+        template.ignoreTokens("whitespace");
+        template.setCompiled(compiled);
+
+        return template;
+
+    }
+
+    @Test
+    public void compiledMatchesRegex() {
+
+        assertEquals("[number:12.5:12.5@1:1:0]", String.valueOf(parse(createKeywordTemplate(8, true), "12.5")));
+
+        Random random = new Random(1);
+        String alphabet = "kxy0125.ab '\n=";
+
+        for (int keywordCount = 0; keywordCount < 140; keywordCount++) {
+
+            PatternTokenizer template = createKeywordTemplate(keywordCount, false);
+            PatternTokenizer compiledTemplate = createKeywordTemplate(keywordCount, true);
+
+            for (int i = 0; i < 20; i++) {
+
+                StringBuilder text = new StringBuilder();
+
+                for (int j = 1 + random.nextInt(40); j > 0; j--)
+                    text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+
+                assertEquals(text.toString(), parse(template, text.toString()), parse(compiledTemplate, text.toString()));
+
+            }
+
+        }
+
+    }
+
+    @Test
+    public void editRelexesTokensWhichLookedAhead() throws ParseException {
+
+        PatternTokenizer tokenizer = new PatternTokenizer(createTemplate(false));
+        tokenizer.parse("/*9b1.'/t>*e1/'=)<.c");
+
+        assertNull(parse(createTemplate(false), "/*9b1.'/t>*/'=)<.c"));
+        assertNull(edit(tokenizer, 11, 2, ""));
+
+    }
+
+    @Test
+    public void clearReleasesSource() throws ParseException {
+
+        PatternTokenizer tokenizer = new PatternTokenizer(createTemplate(true));
+        tokenizer.parse("a = 1;");
+        tokenizer.clear();
+
+        assertNull(tokenizer.getSource());
+        assertTrue(tokenizer.getTokens().isEmpty());
+
+        tokenizer.parse("b");
+        assertEquals(parse(createTemplate(true), "b"), describe(tokenizer));
+
+    }
+
+    private static void randomEdits(boolean compiled) throws ParseException {
+
+        PatternTokenizer template = createTemplate(compiled);
+        Random random = new Random(1);
+        String alphabet = "ab1.'/*=()<> \n";
+
+        for (int i = 0; i < 300; i++) {
+
+            StringBuilder text = new StringBuilder();
+
+            for (int j = 1 + random.nextInt(40); j > 0; j--)
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+
+            PatternTokenizer tokenizer = null;
+
+            for (int j = 0; j < 30; j++) {
+
+                if (tokenizer == null) {
+
+                    tokenizer = new PatternTokenizer(template);
+
+                    try {
+                        tokenizer.parse(text.toString());
+                    } catch (ParseException exception) {
+                        tokenizer = null;
+                    }
+
+                }
+
+                int offset = random.nextInt(text.length() + 1);
+                int removedLength = Math.min(random.nextInt(4), text.length() - offset);
+                StringBuilder insertedText = new StringBuilder();
+
+                for (int k = random.nextInt(4); k > 0; k--)
+                    insertedText.append(alphabet.charAt(random.nextInt(alphabet.length())));
+
+                if (text.length() - removedLength + insertedText.length() == 0)
+                    continue;
+
+                String oldText = text.toString();
+
+                text.replace(offset, offset + removedLength, insertedText.toString());
+
+                if (tokenizer == null)
+                    continue;
+
+                List<String> actual = edit(tokenizer, offset, removedLength, insertedText.toString());
+
+                assertEquals(oldText + " " + offset + " " + removedLength + " " + insertedText, parse(template, text.toString()), actual);
+
+                if (actual == null)
+                    tokenizer = null;
+
+            }
+
+        }
+
+    }
+
+    @Test
+    public void randomEditsMatchFullParse() throws ParseException {
+        randomEdits(false);
+    }
+
+    @Test
+    public void randomEditsMatchFullParseCompiled() throws ParseException {
+        randomEdits(true);
+    }
+
+}
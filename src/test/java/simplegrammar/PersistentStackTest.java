@@ -0,0 +1,119 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PersistentStackTest {
+
+    private Option[] options;
+
+    @Before
+    public void compileGrammar() throws Exception {
+        CompiledGrammar grammar = new TestGrammar(TestGrammar.JSON).compile();
+        options = grammar.getRuleOptions(grammar.getSymbols().getRuleId("value"));
+    }
+
+    private static List<AbstractOptionElement> list(ElementStack elementStack) {
+
+        List<AbstractOptionElement> elements = new ArrayList<>();
+
+        for (AbstractOptionElement element : elementStack)
+            elements.add(element);
+
+        return elements;
+
+    }
+
+    @Test
+    public void branchesShareTheirBase() {
+
+        ElementStack base = new ElementStack().pushOption(options[0]);
+        ElementStack left = base.push(options[1].getElements().get(0));
+        ElementStack right = base.push(options[2].getElements().get(0));
+
+        assertEquals(1, base.size());
+        assertEquals(2, left.size());
+        assertEquals(2, right.size());
+
+        assertSame(base, left.pop());
+        assertSame(base, right.pop());
+        assertSame(options[1].getElements().get(0), left.peek());
+        assertSame(options[2].getElements().get(0), right.peek());
+        assertEquals(options[0].getElements(), list(base));
+
+    }
+
+    @Test
+    public void equalStacksAreBuiltSeparately() {
+
+        ElementStack first = new ElementStack().pushOption(options[0]).pushOption(options[1]);
+        ElementStack second = new ElementStack().pushOption(options[0]).pushOption(options[1]);
+        ElementStack other = new ElementStack().pushOption(options[1]).pushOption(options[0]);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertTrue(first.sameAs(second));
+        assertNotEquals(first, other);
+        assertFalse(first.sameAs(first.pop()));
+
+    }
+
+    @Test
+    public void optionStackKeepsPushOrder() {
+
+        OptionStack empty = new OptionStack();
+        OptionStack all = empty.pushAll(new Option[] {options[0], options[1], options[2]});
+
+        assertTrue(empty.isEmpty());
+        assertEquals(3, all.size());
+        assertSame(options[0], all.peek());
+        assertArrayEquals(new Option[] {options[2], options[1], options[0]}, all.toArray());
+        assertTrue(all.pop().sameAs(empty.push(options[2]).push(options[1])));
+
+    }
+
+    @Test
+    public void emptyStacksCanNotBePopped() {
+
+        try {
+            new ElementStack().pop();
+            fail();
+        } catch (NoSuchElementException exception) {
+        }
+
+        try {
+            new OptionStack().peek();
+            fail();
+        } catch (NoSuchElementException exception) {
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PredictionStepTest {
+
+    private static PatternTokenizer tokenize(String text) throws ParseException {
+
+        PatternTokenizer tokenizer = new PatternTokenizer();
+        tokenizer.addTokenPattern("whitespace", "\\s+");
+        tokenizer.addTokenPattern("id", "([a-z]+)");
+        tokenizer.addTokenPattern("number", "(\\d+)");
+        tokenizer.addTokenPattern("op", "([=+;])");
+        tokenizer.ignoreTokens("whitespace");
+        tokenizer.parse(text);
+
+        return tokenizer;
+
+    }
+
+    /*
+        Every r may be either b or c, so the number of paths doubles with every token. Merged configurations keep
+        the search linear.
+    */
+    @Test(timeout = 10000)
+    public void reconvergingAmbiguityIsExploredOnce() throws Exception {
+
+        StringBuilder definition = new StringBuilder("s: ");
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < 40; i++) {
+            definition.append("r ");
+            text.append("x ");
+        }
+
+        definition.append("{op,\";\"};\nr: b;\nr: c;\nb+: {id,+};\nc+: {id,+};\n");
+
+        try {
+            new TestGrammar(definition.toString()).parse(tokenize(text + ";"));
+            fail();
+        } catch (ParseException exception) {
+        }
+
+    }
+
+    @Test
+    public void longRuleChainNeedsNoRecursion() throws Exception {
+
+        StringBuilder definition = new StringBuilder("s: r0 {op,\"=\"};\ns: r0 {op,\"+\"};\n");
+
+        for (int i = 0; i < 3000; i++)
+            definition.append('r').append(i).append(": r").append(i + 1).append(";\n");
+
+        definition.append("r3000+: {id,+};\n");
+
+        assertEquals("s\n  r3000\n    x\n", TestGrammar.dump(new TestGrammar(definition.toString()).parse(tokenize("x +"))));
+
+    }
+
+    @Test
+    public void leftRecursionStops() throws Exception {
+
+        TestGrammar grammar = new TestGrammar(
+                "expr: expr {op,\"+\"} term;",
+                "expr: term;",
+                "term+: {number,+};"
+        );
+
+        try {
+            grammar.parse(tokenize("1 + 2"));
+            fail();
+        } catch (IllegalStateException exception) {
+            assertEquals("Prediction does not terminate, the grammar may be left-recursive!", exception.getMessage());
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PredictionTableTest {
+
+    private static Token token(CompiledGrammar grammar, String name, String value) {
+
+        Token token = new Token(name);
+        token.setValue(value);
+
+        return grammar.getSymbols().stamp(token);
+
+    }
+
+    /*
+        The expansion chain as rule names with the option index, e.g. "value#1 array#0".
+    */
+    private static String predict(CompiledGrammar grammar, String ruleName, String tokenName, String tokenValue) {
+
+        Option[] prediction = grammar
+                .getPredictionTable(grammar.getSymbols().getRuleId(ruleName))
+                .predict(token(grammar, tokenName, tokenValue));
+
+        if (prediction == null)
+            return null;
+        else if (prediction == PredictionTable.NO_MATCH)
+            return "no match";
+
+        StringBuilder description = new StringBuilder();
+
+        for (Option option : prediction) {
+
+            Option[] options = grammar.getRuleOptions(grammar.getSymbols().getRuleId(option.getRuleName()));
+
+            if (description.length() > 0)
+                description.append(' ');
+
+            description.append(option.getRuleName()).append('#').append(Arrays.asList(options).indexOf(option));
+
+        }
+
+        return description.toString();
+
+    }
+
+    @Test
+    public void jsonIsPredictedByOneToken() throws Exception {
+
+        CompiledGrammar grammar = new TestGrammar(TestGrammar.JSON).compile();
+
+        assertEquals("value#0 object#0", predict(grammar, "value", "punct", "{"));
+        assertEquals("value#1 array#0", predict(grammar, "value", "punct", "["));
+        assertEquals("value#3", predict(grammar, "value", "number", "1"));
+        assertEquals("value#5", predict(grammar, "value", "word", "false"));
+        assertEquals("no match", predict(grammar, "value", "word", "maybe"));
+        assertEquals("no match", predict(grammar, "value", "punct", "}"));
+        assertEquals("json#0 value#2", predict(grammar, "json", "string", "a"));
+
+    }
+
+    @Test
+    public void nullableRulesLeaveFollowTokensToDynamicSearch() throws Exception {
+
+        CompiledGrammar grammar = new TestGrammar(TestGrammar.JSON).compile();
+        int members = grammar.getSymbols().getRuleId("members");
+
+        assertTrue(grammar.isNullableRule(members));
+        assertFalse(grammar.isNullableRule(grammar.getSymbols().getRuleId("member")));
+        assertEquals(OptionToken.Match.VALUE, grammar.getFollowSet(members).match(token(grammar, "punct", "}")));
+
+        assertNull(predict(grammar, "members", "punct", "}"));
+        assertEquals("members#1 member#0", predict(grammar, "members", "string", "a"));
+
+    }
+
+    @Test
+    public void conflictsAreLeftToDynamicSearch() throws Exception {
+
+        CompiledGrammar grammar = new TestGrammar(
+                "list: first;",
+                "list: second;",
+                "first: {id} {op,\"=\"};",
+                "second: {id} {op,\"+\"};"
+        ).compile();
+
+        assertNull(predict(grammar, "list", "id", "x"));
+        assertEquals("first#0", predict(grammar, "first", "id", "x"));
+
+    }
+
+}
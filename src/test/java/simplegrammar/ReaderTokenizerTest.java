@@ -0,0 +1,134 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ReaderTokenizerTest {
+
+    private static String describe(Token token) {
+        return token.getName() + ":" + token.getValue() + ":" + token.getSource() + "@" + token.getLine() + ":" + token.getPosition();
+    }
+
+    private static List<String> readAll(Tokenizer tokenizer) {
+
+        List<String> tokens = new ArrayList<>();
+
+        while (tokenizer.hasNext())
+            tokens.add(describe(tokenizer.get()));
+
+        return tokens;
+
+    }
+
+    private static void assertSameTokens(PatternTokenizer template, String text, int chunkSize) throws ParseException {
+
+        PatternTokenizer patternTokenizer = new PatternTokenizer(template);
+        List<String> expected;
+
+        try {
+            patternTokenizer.parse(text);
+            expected = readAll(patternTokenizer);
+        } catch (ParseException exception) {
+            expected = null;
+        }
+
+        List<String> actual;
+
+        try {
+            actual = readAll(new ReaderTokenizer(template, new StringReader(text), chunkSize));
+        } catch (TokenizerException exception) {
+            if (!(exception.getCause() instanceof ParseException))
+                throw exception;
+            actual = null;
+        }
+
+        assertEquals(text, expected, actual);
+
+    }
+
+    @Test
+    public void multiGroupPatternAdvancesBySourceGroup() throws ParseException {
+
+        PatternTokenizer template = new PatternTokenizer();
+        template.addTokenPattern("a", "(ab)(c)?d");
+        template.addTokenPattern("x", "(.)");
+
+        PatternTokenizer patternTokenizer = new PatternTokenizer(template);
+        patternTokenizer.parse("abcdx");
+
+        List<String> tokens = new ArrayList<>();
+
+        for (Token token : patternTokenizer.getTokens())
+            tokens.add(token.getName() + ":" + token.getSource());
+
+        assertEquals("[a:ab, x:c, x:d, x:x]", tokens.toString());
+        assertSameTokens(template, "abcdx", 8192);
+
+    }
+
+    @Test
+    public void randomInputs() throws ParseException {
+
+        PatternTokenizer template = new PatternTokenizer();
+        template.addTokenPattern("whitespace", "\\s+");
+        template.addTokenPattern("pair", "(ab)(c)?d");
+        template.addTokenPattern("quoted", "(\"([^\"]*)\")");
+        template.addTokenPattern("word", "([a-d]+)");
+        template.addTokenPattern("number", "\\d+");
+        template.addTokenPattern("other", "(.)");
+        template.ignoreTokens("whitespace");
+
+        Random random = new Random(1);
+        String alphabet = "abcd \n\"12x";
+
+        for (int i = 0; i < 2000; i++) {
+
+            StringBuilder text = new StringBuilder();
+
+            for (int j = 1 + random.nextInt(60); j > 0; j--)
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+
+            assertSameTokens(template, text.toString(), 1 + random.nextInt(8));
+
+        }
+
+    }
+
+    @Test
+    public void unexpectedInput() {
+
+        PatternTokenizer template = new PatternTokenizer();
+        template.addTokenPattern("word", "[a-z]+");
+
+        try {
+            readAll(new ReaderTokenizer(template, new StringReader("abc1"), 2));
+            fail();
+        } catch (TokenizerException exception) {
+            assertEquals("Unexpected input at line 1, position 4!", exception.getCause().getMessage());
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SourceTokenTest {
+
+    private static final String TEXT = "{\"key\": [12, true]}";
+
+    private static SourceToken token(int sourceStart, int sourceEnd, int valueStart, int valueEnd) {
+        return new SourceToken("string", TEXT, new LineIndex(TEXT), sourceStart, sourceStart, sourceEnd, valueStart, valueEnd);
+    }
+
+    @Test
+    public void regionsAreReadFromSource() {
+
+        SourceToken token = token(1, 6, 2, 5);
+
+        assertEquals("\"key\"", token.getSource());
+        assertEquals("key", token.getValue());
+        assertEquals("key", token.getValueSequence().toString());
+        assertSame(token.getValue(), token.getValue());
+        assertTrue(token.valueEquals("key"));
+        assertFalse(token.valueEquals("ke"));
+        assertFalse(token.valueEquals("kez"));
+
+        assertNull(token(9, 10, -1, -1).getValue());
+        assertNull(token(9, 10, -1, -1).getValueSequence());
+
+    }
+
+    @Test
+    public void setValueOverridesRegion() {
+
+        SourceToken token = token(1, 6, 2, 5);
+
+        token.setValue("other");
+        token.setSource("'other'");
+
+        assertEquals("other", token.getValue());
+        assertEquals("other", token.getValueSequence());
+        assertEquals("'other'", token.getSourceSequence());
+        assertTrue(token.valueEquals("other"));
+
+    }
+
+    @Test
+    public void tokenizerTokensMatchRegions() throws ParseException {
+
+        PatternTokenizer tokenizer = TestGrammar.createJsonTokenizer();
+        tokenizer.parse(TEXT);
+
+        StringBuilder description = new StringBuilder();
+
+        while (tokenizer.hasNext()) {
+
+            SourceToken token = (SourceToken) tokenizer.get();
+
+            assertSame(TEXT, token.getText());
+            assertEquals(TEXT.substring(token.getSourceStart(), token.getSourceEnd()), token.getSource());
+
+            description.append(token.getValue()).append('@').append(token.getOffset()).append(' ');
+
+        }
+
+        assertEquals("{@0 key@1 :@6 [@8 12@9 ,@11 true@13 ]@17 }@18 ", description.toString());
+
+    }
+
+    @Test
+    public void valueIdIsFoundWithoutString() throws Exception {
+
+        SymbolTable symbols = new TestGrammar(TestGrammar.JSON).compile().getSymbols();
+        SourceToken token = token(13, 17, 13, 17);
+
+        assertEquals(symbols.getValueId("true"), token.getValueId(symbols));
+        assertEquals(-1, token(1, 6, 2, 5).getValueId(symbols));
+
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SymbolTableTest {
+
+    @Test
+    public void grammarSymbolsAreInterned() throws Exception {
+
+        SymbolTable symbols = new TestGrammar(TestGrammar.JSON).compile().getSymbols();
+
+        assertEquals("json", symbols.getRuleName(symbols.getRuleId("json")));
+        assertEquals(-1, symbols.getRuleId("missing"));
+        assertEquals(-1, symbols.getRuleId(null));
+
+        for (String name : new String[] {"string", "number", "word", "punct"})
+            assertEquals(name, symbols.getTokenName(symbols.getTokenNameId(name)));
+
+        for (String value : new String[] {"true", "false", "null", "{", "}", "[", "]", ",", ":"})
+            assertEquals(value, symbols.getValue(symbols.getValueId(value)));
+
+        assertEquals(-1, symbols.getTokenNameId("whitespace"));
+        assertEquals(-1, symbols.getValueId("maybe"));
+
+    }
+
+    @Test
+    public void regionLookupMatchesStringLookup() {
+
+        List<String> values = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++)
+            values.add("v" + Integer.toString(i * 7919, 36));
+
+        SymbolTable symbols = new SymbolTable(Arrays.asList("rule"), Arrays.asList("id"), values);
+        String text = " " + values.get(17) + "x" + values.get(299) + " " + values.get(0) + "v";
+
+        for (String value : values) {
+
+            String padded = "(" + value + ")";
+
+            assertEquals(value, symbols.getValueId(value), symbols.getValueId(padded, 1, padded.length() - 1));
+            assertEquals(value, symbols.getValueId(value), symbols.getValueId(value, 0, value.length()));
+
+        }
+
+        int start = 1;
+        int end = start + values.get(17).length();
+
+        assertEquals(17, symbols.getValueId(text, start, end));
+        assertEquals(-1, symbols.getValueId(text, start, end + 1));
+        assertEquals(-1, symbols.getValueId(text, start + 1, end));
+        assertEquals(-1, symbols.getValueId(text, 0, 0));
+
+    }
+
+    @Test
+    public void tokensAreStampedWithIds() throws Exception {
+
+        CompiledGrammar grammar = new TestGrammar(TestGrammar.JSON).compile();
+        SymbolTable symbols = grammar.getSymbols();
+        PatternTokenizer tokenizer = TestGrammar.createJsonTokenizer();
+
+        tokenizer.setSymbols(symbols);
+        tokenizer.parse("{\"a\": true, \"b\": 1}");
+
+        Token token = tokenizer.get();
+
+        assertSame(symbols, token.getSymbols());
+        assertEquals(symbols.getTokenNameId("punct"), token.getNameId());
+        assertEquals(symbols.getValueId("{"), token.getValueId());
+
+        token = tokenizer.get();
+
+        assertEquals(symbols.getTokenNameId("string"), token.getNameId());
+        assertEquals(-1, token.getValueId());
+
+        tokenizer.get();
+        token = tokenizer.get();
+
+        assertEquals(symbols.getValueId("true"), token.getValueId());
+
+        /* Tokens made by hand get their ids on the first use with a grammar. */
+        token = new Token("word");
+        token.setValue("null");
+
+        assertSame(token, symbols.stamp(token));
+        assertEquals(symbols.getTokenNameId("word"), token.getNameId());
+        assertEquals(symbols.getValueId("null"), token.getValueId());
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SyntaxTreeNodeTest {
+
+    private static SyntaxTreeNode createNode() {
+
+        SyntaxTreeNode node = new SyntaxTreeNode("root");
+
+        for (int i = 0; i < 10; i++)
+            node.addChildNode(i % 2 == 0 ? "even" : "odd");
+
+        /* Builds the child index. */
+        assertEquals(5, node.getChildNodes("even").size());
+
+        return node;
+
+    }
+
+    @Test
+    public void setRebuildsIndex() {
+
+        SyntaxTreeNode node = createNode();
+        SyntaxTreeNode replacement = new SyntaxTreeNode("other");
+
+        node.getChildNodes().set(0, replacement);
+
+        assertEquals(4, node.getChildNodes("even").size());
+        assertSame(replacement, node.getChildNode("other"));
+
+    }
+
+    @Test
+    public void removeAndAddRebuildsIndex() {
+
+        SyntaxTreeNode node = createNode();
+
+        node.getChildNodes().remove(0);
+        node.addChildNode("other");
+
+        assertEquals(4, node.getChildNodes("even").size());
+        assertEquals(1, node.getChildNodes("other").size());
+        assertEquals("odd", node.getChildNode("odd").getValue());
+        assertSame(node.getChildNodes().get(0), node.getChildNode("odd"));
+
+    }
+
+    @Test
+    public void subListAndIteratorChangesRebuildIndex() {
+
+        SyntaxTreeNode node = createNode();
+
+        node.getChildNodes().subList(0, 2).set(0, new SyntaxTreeNode("other"));
+        assertEquals(1, node.getChildNodes("other").size());
+
+        ListIterator<SyntaxTreeNode> iterator = node.getChildNodes().listIterator();
+        iterator.next();
+        iterator.set(new SyntaxTreeNode("even"));
+        assertNull(node.getChildNode("other"));
+
+        Collections.reverse(node.getChildNodes());
+        List<SyntaxTreeNode> childNodes = node.getChildNodes();
+        assertSame(childNodes.get(1), node.getChildNode("even"));
+
+        node.getChildNodes().subList(0, 5).clear();
+        assertEquals(3, node.getChildNodes("even").size());
+        assertEquals(2, node.getChildNodes("odd").size());
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.io.StringReader;
+
+/*
+    Grammar read from definition lines, with helpers shared by the tests.
+*/
+class TestGrammar extends Grammar {
+
+    static final String JSON =
+            "json: value;\n" +
+            "value: object; value: array; value: {string,+}; value: {number,+};\n" +
+            "value: {word,\"true\"+}; value: {word,\"false\"+}; value: {word,\"null\"+};\n" +
+            "object+: {punct,\"{\"} members {punct,\"}\"};\n" +
+            "members: ^; members: member moreMembers;\n" +
+            "moreMembers: ^; moreMembers: {punct,\",\"} member moreMembers;\n" +
+            "member+: {string,+} {punct,\":\"} value;\n" +
+            "array+: {punct,\"[\"} elements {punct,\"]\"};\n" +
+            "elements: ^; elements: value moreElements;\n" +
+            "moreElements: ^; moreElements: {punct,\",\"} value moreElements;\n";
+
+    TestGrammar(String... lines) throws Exception {
+
+        StringBuilder source = new StringBuilder();
+
+        for (String line : lines)
+            source.append(line).append('\n');
+
+        append(new StringReader(source.toString()));
+
+    }
+
+    static PatternTokenizer createJsonTokenizer() {
+
+        PatternTokenizer tokenizer = new PatternTokenizer();
+        tokenizer.addTokenPattern("whitespace", "\\s+");
+        tokenizer.addTokenPattern("string", "\"((?:[^\"\\\\]|\\\\.)*)\"");
+        tokenizer.addTokenPattern("number", "(-?\\d+(?:\\.\\d+)?)");
+        tokenizer.addTokenPattern("word", "([a-z]+)");
+        tokenizer.addTokenPattern("punct", "([{}\\[\\],:])");
+        tokenizer.ignoreTokens("whitespace");
+
+        return tokenizer;
+
+    }
+
+    static PatternTokenizer tokenize(PatternTokenizer template, String text) throws ParseException {
+
+        PatternTokenizer tokenizer = new PatternTokenizer(template);
+        tokenizer.parse(text);
+
+        return tokenizer;
+
+    }
+
+    private static void dump(SyntaxTreeNode node, StringBuilder dump, int depth) {
+
+        for (int i = 0; i < depth; i++)
+            dump.append("  ");
+
+        dump.append(node.getValue()).append('\n');
+
+        for (SyntaxTreeNode childNode : node.getChildNodes())
+            dump(childNode, dump, depth + 1);
+
+    }
+
+    static String dump(SyntaxTreeNode node) {
+
+        StringBuilder dump = new StringBuilder();
+        dump(node, dump, 0);
+
+        return dump.toString();
+
+    }
+
+}
@@ -0,0 +1,430 @@
+/*
+    Copyright 2019 Sergejs Vinniks
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package simplegrammar;
+
+import java.util.Random;
+
+/*
+    Languages of the benchmarks module: the grammar, the tokenizer and a generator of realistic input.
+*/
+enum TestLanguage {
+
+    JSON("json.grammar") {
+
+        @Override
+        public PatternTokenizer createTokenizer() {
+
+            PatternTokenizer tokenizer = new PatternTokenizer();
+
+            tokenizer.addTokenPattern("whitespace", "\\s+");
+            tokenizer.addTokenPattern("string", "\"((?:[^\"\\\\]|\\\\.)*)\"");
+            tokenizer.addTokenPattern("number", "(-?\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?)");
+            tokenizer.addTokenPattern("word", "([a-z]+)");
+            tokenizer.addTokenPattern("punct", "([{}\\[\\],:])");
+            tokenizer.ignoreTokens("whitespace");
+
+            return tokenizer;
+
+        }
+
+        @Override
+        void generate(Random random, StringBuilder source, int size) {
+
+            source.append('[');
+
+            while (source.length() < size - 2) {
+
+                if (source.length() > 1)
+                    source.append(",\n");
+
+                appendValue(random, source, 0);
+
+            }
+
+            source.append("]\n");
+
+        }
+
+        private void appendValue(Random random, StringBuilder source, int depth) {
+
+            switch (depth == 0 ? 0 : random.nextInt(depth > 3 ? 4 : 6)) {
+
+                case 0:
+
+                    source.append('{');
+
+                    int memberCount = 1 + random.nextInt(6);
+
+                    for (int i = 0; i < memberCount; i++) {
+
+                        if (i > 0)
+                            source.append(", ");
+
+                        source.append("\"field").append(i).append("\": ");
+                        appendValue(random, source, depth + 1);
+
+                    }
+
+                    source.append('}');
+                    break;
+
+                case 1:
+                    source.append("\"value ").append(random.nextInt(10000)).append("\\n\"");
+                    break;
+
+                case 2:
+                    source.append(random.nextInt(2000000) - 1000000);
+                    break;
+
+                case 3:
+                    source.append(random.nextBoolean() ? "true" : random.nextBoolean() ? "false" : "null");
+                    break;
+
+                default:
+
+                    source.append('[');
+
+                    int elementCount = random.nextInt(5);
+
+                    for (int i = 0; i < elementCount; i++) {
+
+                        if (i > 0)
+                            source.append(", ");
+
+                        appendValue(random, source, depth + 1);
+
+                    }
+
+                    source.append(']');
+
+            }
+
+        }
+
+    },
+
+    EXPR("expr.grammar") {
+
+        @Override
+        public PatternTokenizer createTokenizer() {
+
+            PatternTokenizer tokenizer = new PatternTokenizer();
+
+            tokenizer.addTokenPattern("whitespace", "\\s+");
+            tokenizer.addTokenPattern("word", "(print)");
+            tokenizer.addTokenPattern("id", "([a-z_][a-z0-9_]*)");
+            tokenizer.addTokenPattern("number", "(\\d+(?:\\.\\d+)?)");
+            tokenizer.addTokenPattern("op", "([=;(),+*/-])");
+            tokenizer.ignoreTokens("whitespace");
+
+            return tokenizer;
+
+        }
+
+        @Override
+        void generate(Random random, StringBuilder source, int size) {
+
+            while (source.length() < size) {
+
+                if (random.nextInt(4) == 0)
+                    source.append("print ");
+                else
+                    source.append('v').append(random.nextInt(100)).append(" = ");
+
+                appendExpression(random, source, 0);
+                source.append(";\n");
+
+            }
+
+        }
+
+        private void appendExpression(Random random, StringBuilder source, int depth) {
+
+            switch (random.nextInt(depth > 3 ? 2 : 7)) {
+
+                case 0:
+                    source.append(random.nextInt(1000));
+                    break;
+
+                case 1:
+                    source.append('v').append(random.nextInt(100));
+                    break;
+
+                case 2:
+                    appendExpression(random, source, depth + 1);
+                    source.append(" + ");
+                    appendExpression(random, source, depth + 1);
+                    break;
+
+                case 3:
+                    appendExpression(random, source, depth + 1);
+                    source.append(" * ");
+                    appendExpression(random, source, depth + 1);
+                    break;
+
+                case 4:
+                    source.append('(');
+                    appendExpression(random, source, depth + 1);
+                    source.append(')');
+                    break;
+
+                case 5:
+                    source.append('-');
+                    appendExpression(random, source, depth + 1);
+                    break;
+
+                default:
+                    source.append("f").append(random.nextInt(10)).append('(');
+                    appendExpression(random, source, depth + 1);
+                    source.append(", ");
+                    appendExpression(random, source, depth + 1);
+                    source.append(')');
+
+            }
+
+        }
+
+    },
+
+    PLSQL("plsql.grammar") {
+
+        @Override
+        public PatternTokenizer createTokenizer() {
+
+            PatternTokenizer tokenizer = new PatternTokenizer();
+
+            tokenizer.addTokenPattern("whitespace", "\\s+");
+            tokenizer.addTokenPattern("comment", "--[^\\n]*");
+            tokenizer.addTokenPattern(
+                    "word",
+                    "(declare|begin|end|if|then|elsif|else|while|for|in|loop|return|null|not|is|number|boolean|varchar2)"
+            );
+            tokenizer.addTokenPattern("id", "([a-z_][a-z0-9_$#]*)");
+            tokenizer.addTokenPattern("number", "(\\d+(?:\\.\\d+)?)");
+            tokenizer.addTokenPattern("string", "'((?:[^']|'')*)'");
+            tokenizer.addTokenPattern("op", "(:=|\\.\\.|<>|\\|\\||[=<>;(),+*/-])");
+            tokenizer.ignoreTokens("whitespace", "comment");
+
+            return tokenizer;
+
+        }
+
+        @Override
+        void generate(Random random, StringBuilder source, int size) {
+            while (source.length() < size)
+                appendBlock(random, source, 0);
+        }
+
+        private void appendBlock(Random random, StringBuilder source, int depth) {
+
+            if (random.nextBoolean()) {
+
+                source.append("declare\n");
+
+                int declarationCount = 1 + random.nextInt(4);
+
+                for (int i = 0; i < declarationCount; i++) {
+
+                    source.append("  l_var").append(i);
+
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            source.append(" number");
+                            break;
+                        case 1:
+                            source.append(" boolean");
+                            break;
+                        default:
+                            source.append(" varchar2(").append(1 + random.nextInt(4000)).append(')');
+                    }
+
+                    if (random.nextBoolean()) {
+                        source.append(" := ");
+                        appendExpression(random, source, 0);
+                    }
+
+                    source.append(";\n");
+
+                }
+
+            }
+
+            source.append("begin\n");
+            appendStatements(random, source, depth);
+            source.append("end;\n");
+
+        }
+
+        private void appendStatements(Random random, StringBuilder source, int depth) {
+
+            int statementCount = 1 + random.nextInt(5);
+
+            for (int i = 0; i < statementCount; i++)
+                appendStatement(random, source, depth);
+
+        }
+
+        private void appendStatement(Random random, StringBuilder source, int depth) {
+
+            switch (random.nextInt(depth > 2 ? 4 : 9)) {
+
+                case 0:
+                case 1:
+                    source.append("l_var").append(random.nextInt(4)).append(" := ");
+                    appendExpression(random, source, 0);
+                    source.append(";\n");
+                    break;
+
+                case 2:
+                    source.append("log_message(");
+                    appendExpression(random, source, 0);
+                    source.append(", 'step ").append(random.nextInt(100)).append("');\n");
+                    break;
+
+                case 3:
+                    source.append(random.nextBoolean() ? "null;\n" : "-- nothing to do\nnull;\n");
+                    break;
+
+                case 4:
+                    source.append("if ");
+                    appendCondition(random, source);
+                    source.append(" then\n");
+                    appendStatements(random, source, depth + 1);
+
+                    if (random.nextBoolean()) {
+                        source.append("elsif ");
+                        appendCondition(random, source);
+                        source.append(" then\n");
+                        appendStatements(random, source, depth + 1);
+                    }
+
+                    if (random.nextBoolean()) {
+                        source.append("else\n");
+                        appendStatements(random, source, depth + 1);
+                    }
+
+                    source.append("end if;\n");
+                    break;
+
+                case 5:
+                    source.append("while ");
+                    appendCondition(random, source);
+                    source.append(" loop\n");
+                    appendStatements(random, source, depth + 1);
+                    source.append("end loop;\n");
+                    break;
+
+                case 6:
+                    source.append("for i in 1 .. ");
+                    appendExpression(random, source, 0);
+                    source.append(" loop\n");
+                    appendStatements(random, source, depth + 1);
+                    source.append("end loop;\n");
+                    break;
+
+                case 7:
+                    appendBlock(random, source, depth + 1);
+                    break;
+
+                default:
+                    source.append("return");
+
+                    if (random.nextBoolean()) {
+                        source.append(' ');
+                        appendExpression(random, source, 0);
+                    }
+
+                    source.append(";\n");
+
+            }
+
+        }
+
+        private void appendCondition(Random random, StringBuilder source) {
+
+            if (random.nextInt(4) == 0) {
+                source.append("l_var").append(random.nextInt(4)).append(" is null");
+                return;
+            }
+
+            appendExpression(random, source, 0);
+            source.append(new String[] {" = ", " <> ", " < ", " > "}[random.nextInt(4)]);
+            appendExpression(random, source, 0);
+
+        }
+
+        private void appendExpression(Random random, StringBuilder source, int depth) {
+
+            switch (random.nextInt(depth > 2 ? 3 : 7)) {
+
+                case 0:
+                    source.append(random.nextInt(1000));
+                    break;
+
+                case 1:
+                    source.append("l_var").append(random.nextInt(4));
+                    break;
+
+                case 2:
+                    source.append("'text ").append(random.nextInt(100)).append('\'');
+                    break;
+
+                case 3:
+                    appendExpression(random, source, depth + 1);
+                    source.append(" + ");
+                    appendExpression(random, source, depth + 1);
+                    break;
+
+                case 4:
+                    appendExpression(random, source, depth + 1);
+                    source.append(" || ");
+                    appendExpression(random, source, depth + 1);
+                    break;
+
+                case 5:
+                    source.append('(');
+                    appendExpression(random, source, depth + 1);
+                    source.append(')');
+                    break;
+
+                default:
+                    source.append("nvl(");
+                    appendExpression(random, source, depth + 1);
+                    source.append(", ");
+                    appendExpression(random, source, depth + 1);
+                    source.append(')');
+
+            }
+
+        }
+
+    };
+
+    private final String grammarResource;
+
+    TestLanguage(String grammarResource) {
+        this.grammarResource = grammarResource;
+    }
+
+    public String getGrammarResource() {
+        return grammarResource;
+    }
+
+    public abstract PatternTokenizer createTokenizer();
+
+    abstract void generate(Random random, StringBuilder source, int size);
+
+}